@@ -0,0 +1,27 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import mezyk.mateusz.app.tasks.TasksApp;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webApplicationType, String... args) {
+        String[] defaultArgs = {"--debug=false", "--logging.level.root=WARN", "--server.port=0", "--spring.main.banner-mode=off"};
+        String[] allArgs = new String[defaultArgs.length + args.length];
+        System.arraycopy(defaultArgs, 0, allArgs, 0, defaultArgs.length);
+        System.arraycopy(args, 0, allArgs, defaultArgs.length, args.length);
+        return new SpringApplicationBuilder(TasksApp.class)
+                .web(webApplicationType)
+                .run(allArgs);
+    }
+
+    static int port(ConfigurableApplicationContext context) {
+        return Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+}
@@ -0,0 +1,104 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.service.TaskService;
+import mezyk.mateusz.app.tasks.integration.service.TaskCursor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires bursts of concurrent clients at list endpoints backed by JDBC, comparing the Tomcat thread pool with
+ * the virtual-threads profile. Both modes get the connection limits of the virtual-threads profile so that only the
+ * request executor differs. Bursts of 10k clients need an open file limit above 20k.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TaskConcurrencyBenchmark {
+
+    public static final int TASK_COUNT = 10_000;
+
+    @Param({"platform", "virtual-threads"})
+    public String mode;
+
+    @Param({"1000", "5000", "10000"})
+    public int clients;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET, "--spring.profiles.active=" + mode,
+                "--server.tomcat.max-connections=20000", "--server.tomcat.accept-count=1000");
+        baseUrl = "http://localhost:" + BenchmarkApplication.port(context) + "/task";
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task("Title " + i, "Description of task number " + i));
+        }
+        ids = context.getBean(TaskService.class).saveTasks(tasks).stream().mapToLong(Task::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int burstOfTaskPages() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[clients];
+        for (int i = 0; i < clients; i++) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "?limit=20&cursor=" + TaskCursor.encode(randomId())))
+                    .GET()
+                    .build();
+            responses[i] = httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenAccept(TaskConcurrencyBenchmark::checkStatus);
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+
+    private static void checkStatus(HttpResponse<?> response) {
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
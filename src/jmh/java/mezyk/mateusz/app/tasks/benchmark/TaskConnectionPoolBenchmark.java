@@ -0,0 +1,150 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.service.TaskService;
+import mezyk.mateusz.app.tasks.integration.config.StatementCacheConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the same mix of {@code TaskEndpoint} routes from 64 concurrent clients against different Hikari pool sizes,
+ * with and without the JDBC statement cache. After every iteration the fork prints the mean and maximum connection
+ * acquire time and the statement cache hit ratio for that iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Threads(64)
+@Fork(1)
+public class TaskConnectionPoolBenchmark {
+
+    public static final int TASK_COUNT = 10_000;
+
+    @Param({"2", "5", "10", "20", "40"})
+    public int poolSize;
+
+    @Param({"true", "false"})
+    public boolean statementCache;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+    private long[] ids;
+    private Timer acquireTimer;
+    private long acquireCount;
+    private double acquireNanos;
+    private double statementHits;
+    private double statementMisses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(WebApplicationType.SERVLET,
+                "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                "--spring.datasource.hikari.minimum-idle=" + poolSize,
+                "--" + StatementCacheConfig.ENABLED_PROPERTY + "=" + statementCache,
+                "--tasks.admission.enabled=false");
+        baseUrl = "http://localhost:" + BenchmarkApplication.port(context) + "/task";
+        httpClient = HttpClient.newHttpClient();
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task("Title " + i, "Description of task number " + i));
+        }
+        ids = context.getBean(TaskService.class).saveTasks(tasks).stream().mapToLong(Task::getId).toArray();
+        acquireTimer = context.getBean(MeterRegistry.class).get("hikaricp.connections.acquire").timer();
+    }
+
+    @Setup(Level.Iteration)
+    public void startIteration() {
+        acquireCount = acquireTimer.count();
+        acquireNanos = acquireTimer.totalTime(TimeUnit.NANOSECONDS);
+        statementHits = statements("hit");
+        statementMisses = statements("miss");
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportIteration() {
+        long acquires = acquireTimer.count() - acquireCount;
+        double meanAcquireMicros = acquires == 0 ? 0
+                : (acquireTimer.totalTime(TimeUnit.NANOSECONDS) - acquireNanos) / acquires / 1000;
+        double hits = statements("hit") - statementHits;
+        double misses = statements("miss") - statementMisses;
+        System.out.printf("%npoolSize=%d statementCache=%b: %d acquires, mean acquire %.1f us, max acquire %.1f us, "
+                        + "statement cache hit ratio %.3f%n", poolSize, statementCache, acquires, meanAcquireMicros,
+                acquireTimer.max(TimeUnit.MICROSECONDS), hits + misses == 0 ? 0 : hits / (hits + misses));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public String mixedWorkload() throws IOException, InterruptedException {
+        int route = ThreadLocalRandom.current().nextInt(10);
+        if (route < 5) {
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + randomId())).GET());
+        }
+        if (route < 7) {
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "?limit=100")).GET());
+        }
+        if (route == 7) {
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "/query?completed=false&minId=" + randomId()
+                    + "&limit=50")).GET());
+        }
+        if (route == 8) {
+            return send(HttpRequest.newBuilder(URI.create(baseUrl + "/new"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Title\",\"description\":\"Description\"}")));
+        }
+        return send(HttpRequest.newBuilder(URI.create(baseUrl + "/update/" + randomId() + "/completed"))
+                .method("PATCH", HttpRequest.BodyPublishers.noBody()));
+    }
+
+    private double statements(String result) {
+        FunctionCounter counter = context.getBean(MeterRegistry.class)
+                .find(StatementCacheConfig.STATEMENTS).tag(StatementCacheConfig.RESULT_TAG, result).functionCounter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    private String send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
@@ -0,0 +1,93 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the status queries of {@code TaskRepository} against one million rows in H2, once on a table
+ * without indexes (full scan) and once with the {@code (completed, id)} index declared on {@code Task}.
+ * One in ten rows is completed, like a backlog where most work is still open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskIndexBenchmark {
+
+    public static final int ROW_COUNT = 1_000_000;
+    public static final int PAGE_SIZE = 100;
+
+    @Param({"scan", "index"})
+    public String layout;
+
+    private Connection connection;
+    private PreparedStatement completedPage;
+    private PreparedStatement statusCount;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:taskindex_" + layout, "sa", "");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table task (id bigint primary key, title varchar(255), " +
+                    "description varchar(255), completed boolean not null, version bigint)");
+            statement.execute("insert into task select x, concat('Title ', x), concat('Description ', x), " +
+                    "mod(x, 10) = 0, 0 from system_range(1, " + ROW_COUNT + ")");
+            if ("index".equals(layout)) {
+                statement.execute("create index idx_task_completed_id on task (completed, id)");
+            }
+            statement.execute("analyze");
+        }
+        completedPage = connection.prepareStatement(
+                "select id, title, description, completed from task where completed = true and id > ? order by id limit " + PAGE_SIZE);
+        statusCount = connection.prepareStatement("select completed, count(*) from task group by completed");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public long findCompletedPage() throws SQLException {
+        completedPage.setLong(1, ThreadLocalRandom.current().nextLong(ROW_COUNT - PAGE_SIZE * 10));
+        return drain(completedPage);
+    }
+
+    @Benchmark
+    public long countByStatus() throws SQLException {
+        return drain(statusCount);
+    }
+
+    private static long drain(PreparedStatement statement) throws SQLException {
+        long sum = 0;
+        try (ResultSet resultSet = statement.executeQuery()) {
+            while (resultSet.next()) {
+                sum += resultSet.getLong(1);
+            }
+        }
+        return sum;
+    }
+
+}
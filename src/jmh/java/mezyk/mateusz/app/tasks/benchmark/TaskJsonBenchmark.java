@@ -0,0 +1,52 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskJsonBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int size;
+
+    private ObjectWriter listWriter;
+    private List<TaskDto> dtos;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, TaskDto.class));
+        dtos = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            dtos.add(new TaskDto("Title " + id, "Description of task number " + id, id % 2 == 0, id));
+        }
+    }
+
+    @Benchmark
+    public byte[] serializeTaskDtos() throws JsonProcessingException {
+        return listWriter.writeValueAsBytes(dtos);
+    }
+
+}
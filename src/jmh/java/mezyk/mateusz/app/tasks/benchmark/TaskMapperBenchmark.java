@@ -0,0 +1,69 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import mezyk.mateusz.app.tasks.integration.service.DirectTaskMapperImpl;
+import mezyk.mateusz.app.tasks.integration.service.TaskMapper;
+import mezyk.mateusz.app.tasks.integration.service.TaskMapperImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskMapperBenchmark {
+
+    public static final int LIST_SIZE = 100_000;
+
+    @Param({"direct", "modelmapper"})
+    public String implementation;
+
+    private TaskMapper taskMapper;
+    private Task task;
+    private List<Task> tasks;
+
+    @Setup
+    public void setUp() {
+        taskMapper = "direct".equals(implementation) ? new DirectTaskMapperImpl() : new TaskMapperImpl();
+        task = createTask(1L);
+        tasks = new ArrayList<>(LIST_SIZE);
+        for (long id = 1; id <= LIST_SIZE; id++) {
+            tasks.add(createTask(id));
+        }
+    }
+
+    @Benchmark
+    public TaskDto mapToDto() {
+        return taskMapper.mapToDto(task);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<TaskDto> mapToDtos() {
+        return taskMapper.mapToDtos(tasks);
+    }
+
+    static Task createTask(long id) {
+        Task task = new Task("Title " + id, "Description of task number " + id);
+        task.setId(id);
+        task.setCompleted(id % 2 == 0);
+        return task;
+    }
+
+}
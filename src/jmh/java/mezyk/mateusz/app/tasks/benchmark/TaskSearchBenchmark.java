@@ -0,0 +1,58 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import mezyk.mateusz.app.tasks.core.data.search.TaskSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Searches a {@code TaskSearchIndex} holding one million tasks. Every task has two words out of a small vocabulary
+ * (each word is in about a tenth of the tasks) and a unique reference such as {@code ref123456}, so the queries cover
+ * a unique term, prefixes expanding to a few and to many references, a common word, a short term and an intersection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskSearchBenchmark {
+
+    public static final int TASK_COUNT = 1_000_000;
+    public static final int PAGE_SIZE = 20;
+
+    private static final String[] WORDS = {"plan", "comprar", "revisar", "llamar", "pagar", "enviar", "preparar",
+            "reservar", "limpiar", "organizar"};
+
+    @Param({"ref123456", "ref12345", "ref1", "plan", "de", "plan ref99"})
+    public String query;
+
+    private TaskSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new TaskSearchIndex();
+        for (long id = 1; id <= TASK_COUNT; id++) {
+            index.index(id, WORDS[(int) (id % WORDS.length)] + " de " + WORDS[(int) (id / WORDS.length % WORDS.length)],
+                    "ref" + id);
+        }
+    }
+
+    @Benchmark
+    public List<Long> search() {
+        return index.search(query, 0, PAGE_SIZE);
+    }
+
+}
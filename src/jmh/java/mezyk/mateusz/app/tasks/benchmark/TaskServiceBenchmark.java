@@ -0,0 +1,90 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskServiceBenchmark {
+
+    public static final int TASK_COUNT = 10_000;
+
+    private ConfigurableApplicationContext context;
+    private TaskServiceImpl taskService;
+    private long[] ids;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE);
+        taskService = context.getBean(TaskServiceImpl.class);
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task("Title " + i, "Description of task number " + i));
+        }
+        ids = taskService.saveTasks(tasks).stream().mapToLong(Task::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Task createAndDeleteTask() {
+        Task task = taskService.saveTask(new Task("Title", "Description"));
+        taskService.deleteTaskById(task.getId());
+        return task;
+    }
+
+    @Benchmark
+    public Task findTaskById() {
+        return taskService.findTaskById(randomId());
+    }
+
+    @Benchmark
+    public Task updateTask() {
+        long id = randomId();
+        Task task = new Task("Updated title " + id, "Updated description");
+        task.setId(id);
+        return taskService.updateTask(task, id);
+    }
+
+    @Benchmark
+    public Task markTaskCompleted() {
+        return taskService.markTaskCompleted(randomId());
+    }
+
+    @Benchmark
+    public List<TaskView> findTasksPage() {
+        return taskService.findTasksAfter(randomId(), 100);
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
@@ -0,0 +1,123 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskWireFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    public String format;
+
+    @Param({"none", "gzip"})
+    public String compression;
+
+    @Param({"100", "10000"})
+    public int size;
+
+    private ObjectWriter listWriter;
+    private ObjectReader listReader;
+    private List<TaskDto> dtos;
+    private byte[] encoded;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper(factory(format));
+        listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, TaskDto.class));
+        listReader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, TaskDto.class));
+        dtos = new ArrayList<>(size);
+        for (long id = 1; id <= size; id++) {
+            dtos.add(new TaskDto("Title " + id, "Description of task number " + id, id % 2 == 0, id));
+        }
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] encodeTaskDtos(Payload payload) throws IOException {
+        byte[] bytes = encode();
+        payload.bytes = bytes.length;
+        return bytes;
+    }
+
+    @Benchmark
+    public List<TaskDto> decodeTaskDtos() throws IOException {
+        try (InputStream in = decompress(new ByteArrayInputStream(encoded))) {
+            return listReader.readValue(in);
+        }
+    }
+
+    private byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = compress(bytes)) {
+            listWriter.writeValue(out, dtos);
+        }
+        return bytes.toByteArray();
+    }
+
+    private OutputStream compress(OutputStream out) throws IOException {
+        return "gzip".equals(compression) ? new GZIPOutputStream(out) : out;
+    }
+
+    private InputStream decompress(InputStream in) throws IOException {
+        return "gzip".equals(compression) ? new GZIPInputStream(in) : in;
+    }
+
+    private static JsonFactory factory(String format) {
+        switch (format) {
+            case "cbor":
+                return new CBORFactory();
+            case "smile":
+                return new SmileFactory();
+            default:
+                return new JsonFactory();
+        }
+    }
+
+}
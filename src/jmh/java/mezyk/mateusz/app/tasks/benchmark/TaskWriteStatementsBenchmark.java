@@ -0,0 +1,151 @@
+package mezyk.mateusz.app.tasks.benchmark;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the single-statement write paths of {@link TaskServiceImpl} with the previous
+ * "check existence, load, then save" sequence. Besides time, every benchmark reports the
+ * number of prepared JDBC statements per operation as the {@code statementsPerOperation} counter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskWriteStatementsBenchmark {
+
+    public static final int TASK_COUNT = 10_000;
+
+    @Param({"single-statement", "load-and-save"})
+    public String path;
+
+    private ConfigurableApplicationContext context;
+    private TaskServiceImpl taskService;
+    private TaskRepository taskRepository;
+    private Statistics statistics;
+    private long[] ids;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class StatementCounter {
+
+        public long statements;
+        public long operations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            statements = 0;
+            operations = 0;
+        }
+
+        public double statementsPerOperation() {
+            return operations == 0 ? 0 : (double) statements / operations;
+        }
+
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(WebApplicationType.NONE,
+                "--spring.jpa.properties.hibernate.generate_statistics=true");
+        taskService = context.getBean(TaskServiceImpl.class);
+        taskRepository = context.getBean(TaskRepository.class);
+        statistics = context.getBean(EntityManagerFactory.class).unwrap(SessionFactory.class).getStatistics();
+        List<Task> tasks = new ArrayList<>(TASK_COUNT);
+        for (int i = 0; i < TASK_COUNT; i++) {
+            tasks.add(new Task("Title " + i, "Description of task number " + i));
+        }
+        ids = taskService.saveTasks(tasks).stream().mapToLong(Task::getId).toArray();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Task updateTask(StatementCounter counter) {
+        long id = randomId();
+        Task task = new Task("Updated title " + id, "Updated description");
+        task.setId(id);
+        long before = statistics.getPrepareStatementCount();
+        Task result;
+        if ("single-statement".equals(path)) {
+            result = taskService.updateTask(task, id);
+        } else {
+            Task existingTask = taskRepository.findById(id).get();
+            existingTask.setTitle(task.getTitle());
+            existingTask.setDescription(task.getDescription());
+            result = taskRepository.save(existingTask);
+        }
+        count(counter, before);
+        return result;
+    }
+
+    @Benchmark
+    public Task markTaskCompleted(StatementCounter counter) {
+        long id = randomId();
+        long before = statistics.getPrepareStatementCount();
+        Task result;
+        if ("single-statement".equals(path)) {
+            result = taskService.markTaskCompleted(id);
+        } else {
+            Task task = taskRepository.findById(id).get();
+            task.setCompleted(true);
+            result = taskRepository.save(task);
+        }
+        count(counter, before);
+        return result;
+    }
+
+    @Benchmark
+    public Task deleteTask(StatementCounter counter) {
+        Task task = taskRepository.save(new Task("Title", "Description"));
+        long before = statistics.getPrepareStatementCount();
+        if ("single-statement".equals(path)) {
+            taskService.deleteTaskById(task.getId());
+        } else {
+            taskRepository.existsById(task.getId());
+            taskRepository.deleteById(task.getId());
+        }
+        count(counter, before);
+        return task;
+    }
+
+    private void count(StatementCounter counter, long before) {
+        counter.statements += statistics.getPrepareStatementCount() - before;
+        counter.operations++;
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+
+}
@@ -2,28 +2,14 @@ package mezyk.mateusz.app.tasks;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-import springfox.documentation.builders.PathSelectors;
-import springfox.documentation.builders.RequestHandlerSelectors;
-import springfox.documentation.spi.DocumentationType;
-import springfox.documentation.spring.web.plugins.Docket;
-import springfox.documentation.swagger2.annotations.EnableSwagger2;
+import org.springframework.cache.annotation.EnableCaching;
 
 @SpringBootApplication
-@EnableSwagger2
+@EnableCaching
 public class TasksApp {
 
     public static void main(String[] args) {
         SpringApplication.run(TasksApp.class, args);
     }
 
-    @Bean
-    public Docket docket() {
-        return new Docket(DocumentationType.SWAGGER_2)
-            .select()
-            .paths(PathSelectors.ant("/task/**"))
-            .apis(RequestHandlerSelectors.basePackage("mezyk.mateusz"))
-            .build();
-    }
-
 }
@@ -0,0 +1,158 @@
+package mezyk.mateusz.app.tasks.core.data.cache;
+
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class InvalidationGuardedCacheManager implements CacheManager {
+
+    private final CacheManager targetCacheManager;
+    private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+
+    public InvalidationGuardedCacheManager(CacheManager targetCacheManager) {
+        this.targetCacheManager = targetCacheManager;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = caches.get(name);
+        if (cache != null) {
+            return cache;
+        }
+        Cache target = targetCacheManager.getCache(name);
+        return target == null ? null : caches.computeIfAbsent(name, key -> new GuardedCache(target));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return targetCacheManager.getCacheNames();
+    }
+
+    private static final class GuardedCache implements Cache {
+
+        private static final int STRIPES = 1024;
+
+        private final Cache target;
+        private final AtomicLongArray invalidations = new AtomicLongArray(STRIPES);
+        private final ThreadLocal<Miss> lastMiss = new ThreadLocal<>();
+
+        private GuardedCache(Cache target) {
+            this.target = target;
+        }
+
+        @Override
+        public String getName() {
+            return target.getName();
+        }
+
+        @Override
+        public Object getNativeCache() {
+            return target.getNativeCache();
+        }
+
+        @Override
+        public ValueWrapper get(Object key) {
+            long stamp = invalidations.get(stripe(key));
+            ValueWrapper value = target.get(key);
+            if (value == null) {
+                lastMiss.set(new Miss(key, stamp));
+            }
+            return value;
+        }
+
+        @Override
+        public <T> T get(Object key, Class<T> type) {
+            return target.get(key, type);
+        }
+
+        @Override
+        public <T> T get(Object key, Callable<T> valueLoader) {
+            return target.get(key, valueLoader);
+        }
+
+        @Override
+        public void put(Object key, Object value) {
+            Long stamp = missStamp(key);
+            if (stamp == null) {
+                return;
+            }
+            target.put(key, value);
+            if (invalidations.get(stripe(key)) != stamp) {
+                target.evict(key);
+            }
+        }
+
+        @Override
+        public ValueWrapper putIfAbsent(Object key, Object value) {
+            Long stamp = missStamp(key);
+            if (stamp == null) {
+                return target.get(key);
+            }
+            ValueWrapper existing = target.putIfAbsent(key, value);
+            if (existing == null && invalidations.get(stripe(key)) != stamp) {
+                target.evict(key);
+            }
+            return existing;
+        }
+
+        @Override
+        public void evict(Object key) {
+            invalidations.incrementAndGet(stripe(key));
+            target.evict(key);
+        }
+
+        @Override
+        public boolean evictIfPresent(Object key) {
+            invalidations.incrementAndGet(stripe(key));
+            return target.evictIfPresent(key);
+        }
+
+        @Override
+        public void clear() {
+            invalidateAllStripes();
+            target.clear();
+        }
+
+        @Override
+        public boolean invalidate() {
+            invalidateAllStripes();
+            return target.invalidate();
+        }
+
+        private Long missStamp(Object key) {
+            Miss miss = lastMiss.get();
+            lastMiss.remove();
+            return miss == null || !miss.key.equals(key) || invalidations.get(stripe(key)) != miss.stamp
+                    ? null : miss.stamp;
+        }
+
+        private void invalidateAllStripes() {
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                invalidations.incrementAndGet(stripe);
+            }
+        }
+
+        private static int stripe(Object key) {
+            return Math.floorMod(key.hashCode(), STRIPES);
+        }
+
+    }
+
+    private static final class Miss {
+
+        private final Object key;
+        private final long stamp;
+
+        private Miss(Object key, long stamp) {
+            this.key = key;
+            this.stamp = stamp;
+        }
+
+    }
+
+}
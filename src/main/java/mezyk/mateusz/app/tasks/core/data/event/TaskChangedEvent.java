@@ -0,0 +1,62 @@
+package mezyk.mateusz.app.tasks.core.data.event;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+
+public final class TaskChangedEvent {
+
+    private final String tenant;
+
+    private final Long id;
+
+    private final String title;
+
+    private final String description;
+
+    private final boolean completed;
+
+    private final boolean deleted;
+
+    private TaskChangedEvent(String tenant, Long id, String title, String description, boolean completed,
+                             boolean deleted) {
+        this.tenant = tenant;
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.completed = completed;
+        this.deleted = deleted;
+    }
+
+    public static TaskChangedEvent saved(Task task) {
+        return new TaskChangedEvent(task.getTenant(), task.getId(), task.getTitle(), task.getDescription(),
+                task.getCompleted(), false);
+    }
+
+    public static TaskChangedEvent deleted(String tenant, Long id) {
+        return new TaskChangedEvent(tenant, id, null, null, false, true);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean getCompleted() {
+        return completed;
+    }
+
+    public boolean isDeleted() {
+        return deleted;
+    }
+
+}
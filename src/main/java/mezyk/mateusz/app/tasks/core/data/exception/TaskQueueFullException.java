@@ -0,0 +1,9 @@
+package mezyk.mateusz.app.tasks.core.data.exception;
+
+public class TaskQueueFullException extends RuntimeException {
+
+    public TaskQueueFullException(String message) {
+        super(message);
+    }
+
+}
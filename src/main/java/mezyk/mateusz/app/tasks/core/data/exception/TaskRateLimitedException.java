@@ -0,0 +1,16 @@
+package mezyk.mateusz.app.tasks.core.data.exception;
+
+public class TaskRateLimitedException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    public TaskRateLimitedException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+}
@@ -0,0 +1,9 @@
+package mezyk.mateusz.app.tasks.core.data.exception;
+
+public class TaskVersionConflictException extends RuntimeException {
+
+    public TaskVersionConflictException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,295 @@
+package mezyk.mateusz.app.tasks.core.data.jdbc;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StatementCachingDataSource extends DelegatingDataSource {
+
+    public static final String STATEMENT_CLOSED = "Statement is closed";
+
+    private static final Set<String> STATE_CHANGING_METHODS = Set.of("setMaxRows", "setLargeMaxRows", "setQueryTimeout",
+            "setFetchSize", "setFetchDirection", "setMaxFieldSize", "setEscapeProcessing", "setPoolable",
+            "setCursorName", "closeOnCompletion");
+
+    private final int cacheSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final AtomicInteger cachedStatements = new AtomicInteger();
+
+    public StatementCachingDataSource(DataSource targetDataSource, int cacheSize) {
+        super(targetDataSource);
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return cachingConnection(obtainTargetDataSource().getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return cachingConnection(obtainTargetDataSource().getConnection(username, password));
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getCachedStatements() {
+        return cachedStatements.get();
+    }
+
+    public double getHitRatio() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private Connection cachingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                new CachingConnection(connection));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private final class CachingConnection implements InvocationHandler {
+
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+        private boolean closed;
+
+        private CachingConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "prepareStatement":
+                    if (args.length == 1) {
+                        return prepare((Connection) proxy, (String) args[0]);
+                    }
+                    break;
+                case "close":
+                    try {
+                        closeStatements();
+                    } finally {
+                        connection.close();
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            return StatementCachingDataSource.invoke(connection, method, args);
+        }
+
+        private synchronized PreparedStatement prepare(Connection proxy, String sql) throws SQLException {
+            PreparedStatement statement = statements.remove(sql);
+            if (statement != null) {
+                cachedStatements.decrementAndGet();
+                hits.increment();
+            } else {
+                misses.increment();
+                statement = connection.prepareStatement(sql);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, new CachedStatement(this, proxy, sql, statement));
+        }
+
+        private synchronized void release(String sql, PreparedStatement statement) throws SQLException {
+            if (closed || statements.containsKey(sql)) {
+                statement.close();
+                return;
+            }
+            try {
+                ResultSet current = statement.getResultSet();
+                if (current != null) {
+                    current.close();
+                }
+                statement.clearParameters();
+                statement.clearBatch();
+                statement.clearWarnings();
+            } catch (SQLException e) {
+                statement.close();
+                return;
+            }
+            statements.put(sql, statement);
+            cachedStatements.incrementAndGet();
+            if (statements.size() > cacheSize) {
+                Iterator<PreparedStatement> eldest = statements.values().iterator();
+                PreparedStatement evicted = eldest.next();
+                eldest.remove();
+                cachedStatements.decrementAndGet();
+                evictions.increment();
+                evicted.close();
+            }
+        }
+
+        private void closeStatements() throws SQLException {
+            List<PreparedStatement> cached;
+            synchronized (this) {
+                closed = true;
+                cached = new ArrayList<>(statements.values());
+                statements.clear();
+                cachedStatements.addAndGet(-cached.size());
+            }
+            SQLException failure = null;
+            for (PreparedStatement statement : cached) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+    }
+
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final CachingConnection owner;
+        private final Connection connection;
+        private final String sql;
+        private final PreparedStatement statement;
+        private final List<ResultSet> resultSets = new ArrayList<>();
+        private boolean reusable = true;
+        private boolean closed;
+
+        private CachedStatement(CachingConnection owner, Connection connection, String sql, PreparedStatement statement) {
+            this.owner = owner;
+            this.connection = connection;
+            this.sql = sql;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            switch (name) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        if (reusable && closeResultSets()) {
+                            owner.release(sql, statement);
+                        } else {
+                            statement.close();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return connection;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException(STATEMENT_CLOSED);
+            }
+            if (STATE_CHANGING_METHODS.contains(name)) {
+                reusable = false;
+            }
+            Object result = StatementCachingDataSource.invoke(statement, method, args);
+            if (result instanceof ResultSet) {
+                resultSets.removeIf(this::isClosed);
+                resultSets.add((ResultSet) result);
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class},
+                        new StatementResultSet((ResultSet) result, (Statement) proxy));
+            }
+            return result;
+        }
+
+        private boolean closeResultSets() {
+            boolean closedAll = true;
+            for (ResultSet resultSet : resultSets) {
+                try {
+                    resultSet.close();
+                } catch (SQLException e) {
+                    closedAll = false;
+                }
+            }
+            resultSets.clear();
+            return closedAll;
+        }
+
+        private boolean isClosed(ResultSet resultSet) {
+            try {
+                return resultSet.isClosed();
+            } catch (SQLException e) {
+                return true;
+            }
+        }
+
+    }
+
+    private static final class StatementResultSet implements InvocationHandler {
+
+        private final ResultSet resultSet;
+        private final Statement statement;
+
+        private StatementResultSet(ResultSet resultSet, Statement statement) {
+            this.resultSet = resultSet;
+            this.statement = statement;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getStatement":
+                    return statement;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return StatementCachingDataSource.invoke(resultSet, method, args);
+            }
+        }
+
+    }
+
+}
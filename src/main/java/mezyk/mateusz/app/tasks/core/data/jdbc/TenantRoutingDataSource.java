@@ -0,0 +1,50 @@
+package mezyk.mateusz.app.tasks.core.data.jdbc;
+
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class TenantRoutingDataSource extends AbstractRoutingDataSource implements Closeable {
+
+    private final TenantShards tenantShards;
+    private final List<DataSource> shards;
+
+    public TenantRoutingDataSource(TenantShards tenantShards, List<DataSource> shards) {
+        if (shards.size() != tenantShards.getCount()) {
+            throw new IllegalArgumentException("Expected " + tenantShards.getCount() + " shards, got " + shards.size());
+        }
+        this.tenantShards = tenantShards;
+        this.shards = List.copyOf(shards);
+        Map<Object, Object> targets = new HashMap<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            targets.put(shard, shards.get(shard));
+        }
+        setTargetDataSources(targets);
+        setLenientFallback(false);
+    }
+
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return tenantShards.currentShard();
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (DataSource shard : shards) {
+            if (shard instanceof Closeable) {
+                ((Closeable) shard).close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,151 @@
+package mezyk.mateusz.app.tasks.core.data.journal;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public final class JournalRecord {
+
+    public enum Type {
+        SAVE, DELETE
+    }
+
+    private static final int NULL_LENGTH = -1;
+    private static final long NO_VERSION = 0;
+    private static final long NO_REVISION = 0;
+
+    private final Type type;
+    private final long id;
+    private final long version;
+    private final long revision;
+    private final boolean completed;
+    private final byte[] title;
+    private final byte[] description;
+    private final byte[] tenant;
+
+    private JournalRecord(Type type, long id, long version, long revision, boolean completed, byte[] title,
+                          byte[] description, byte[] tenant) {
+        this.type = type;
+        this.id = id;
+        this.version = version;
+        this.revision = revision;
+        this.completed = completed;
+        this.title = title;
+        this.description = description;
+        this.tenant = tenant;
+    }
+
+    public static JournalRecord save(Task task) {
+        long version = task.getVersion() == null ? NO_VERSION : task.getVersion();
+        long revision = task.getRevision() == null ? NO_REVISION : task.getRevision();
+        byte[] tenant = TenantContext.DEFAULT_TENANT.equals(task.getTenant()) ? null : encode(task.getTenant());
+        return new JournalRecord(Type.SAVE, task.getId(), version, revision, task.getCompleted(),
+                encode(task.getTitle()), encode(task.getDescription()), tenant);
+    }
+
+    public static JournalRecord delete(long id) {
+        return new JournalRecord(Type.DELETE, id, 0, NO_REVISION, false, null, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Task toTask() {
+        Task task = new Task(decode(title), decode(description));
+        task.setId(id);
+        task.setVersion(version);
+        task.setRevision(revision == NO_REVISION ? null : revision);
+        task.setCompleted(completed);
+        if (tenant != null) {
+            task.setTenant(decode(tenant));
+        }
+        return task;
+    }
+
+    int encodedSize() {
+        int size = Byte.BYTES + Long.BYTES;
+        if (type == Type.SAVE) {
+            size += Long.BYTES + Byte.BYTES + encodedSize(title) + encodedSize(description) + Long.BYTES;
+            if (tenant != null) {
+                size += encodedSize(tenant);
+            }
+        }
+        return size;
+    }
+
+    void writeTo(ByteBuffer buffer) {
+        buffer.put((byte) type.ordinal());
+        buffer.putLong(id);
+        if (type == Type.SAVE) {
+            buffer.putLong(version);
+            buffer.put((byte) (completed ? 1 : 0));
+            write(buffer, title);
+            write(buffer, description);
+            buffer.putLong(revision);
+            if (tenant != null) {
+                write(buffer, tenant);
+            }
+        }
+    }
+
+    static JournalRecord readFrom(ByteBuffer buffer) {
+        int ordinal = buffer.get();
+        if (ordinal < 0 || ordinal >= Type.values().length) {
+            throw new IllegalArgumentException("Unknown journal record type " + ordinal);
+        }
+        Type type = Type.values()[ordinal];
+        long id = buffer.getLong();
+        if (type != Type.SAVE) {
+            return new JournalRecord(type, id, 0, NO_REVISION, false, null, null, null);
+        }
+        long version = buffer.getLong();
+        boolean completed = buffer.get() != 0;
+        byte[] title = read(buffer);
+        byte[] description = read(buffer);
+        long revision = buffer.remaining() >= Long.BYTES ? buffer.getLong() : NO_REVISION;
+        byte[] tenant = buffer.hasRemaining() ? read(buffer) : null;
+        return new JournalRecord(type, id, version, revision, completed, title, description, tenant);
+    }
+
+    private static byte[] encode(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static int encodedSize(byte[] value) {
+        return Integer.BYTES + (value == null ? 0 : value.length);
+    }
+
+    private static void write(ByteBuffer buffer, byte[] value) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+        } else {
+            buffer.putInt(value.length);
+            buffer.put(value);
+        }
+    }
+
+    private static byte[] read(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException("Invalid journal field length " + length);
+        }
+        byte[] value = new byte[length];
+        buffer.get(value);
+        return value;
+    }
+
+}
@@ -0,0 +1,315 @@
+package mezyk.mateusz.app.tasks.core.data.journal;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+public class TaskJournal {
+
+    public static final String LOG_FILE = "tasks.wal";
+    public static final String SNAPSHOT_FILE = "tasks.snapshot";
+
+    public static final String JOURNAL_CLOSED = "Task journal is closed";
+    public static final String WRITER_FAILED = "Task journal writer stopped after a failure";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(TaskJournal.class);
+    private static final int SNAPSHOT_MAGIC = 0x5441534B;
+    private static final int SNAPSHOT_HEADER = Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final int FRAME_HEADER = Integer.BYTES + Integer.BYTES;
+    private static final int MAX_GROUP_SIZE = 4096;
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final Path directory;
+    private final boolean fsync;
+    private final int snapshotInterval;
+    private final BlockingQueue<PendingWrite> pendingWrites = new LinkedBlockingQueue<>();
+
+    private FileChannel log;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private Supplier<Snapshot> snapshotSource;
+    private long recordsSinceSnapshot;
+    private ByteBuffer groupBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+
+    public TaskJournal(Path directory, boolean fsync, int snapshotInterval) {
+        this.directory = directory;
+        this.fsync = fsync;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    public long open(Consumer<JournalRecord> replay, Supplier<Snapshot> snapshotSource) throws IOException {
+        Files.createDirectories(directory);
+        this.snapshotSource = snapshotSource;
+        long nextId = readSnapshot(replay);
+        log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        nextId = Math.max(nextId, replayLog(replay));
+        running = true;
+        writer = new Thread(this::writeLoop, "task-journal-writer");
+        writer.setDaemon(true);
+        writer.start();
+        return nextId;
+    }
+
+    public CompletableFuture<Void> append(List<JournalRecord> records) {
+        if (failure != null) {
+            throw new IllegalStateException(WRITER_FAILED, failure);
+        }
+        if (!running) {
+            throw new IllegalStateException(JOURNAL_CLOSED);
+        }
+        PendingWrite write = new PendingWrite(records);
+        pendingWrites.add(write);
+        if (failure != null) {
+            failPendingWrites();
+        }
+        return write.written;
+    }
+
+    public void close() throws IOException, InterruptedException {
+        running = false;
+        writer.join();
+        if (failure == null) {
+            writeSnapshot(snapshotSource.get());
+        }
+        log.close();
+    }
+
+    private void writeLoop() {
+        List<PendingWrite> group = new ArrayList<>();
+        try {
+            while (running || !pendingWrites.isEmpty()) {
+                PendingWrite first = pendingWrites.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                pendingWrites.drainTo(group, MAX_GROUP_SIZE);
+                writeGroup(group);
+                group.clear();
+                if (recordsSinceSnapshot >= snapshotInterval) {
+                    try {
+                        writeSnapshot(snapshotSource.get());
+                    } catch (IOException e) {
+                        LOGGER.error("Can't write task snapshot", e);
+                    }
+                }
+            }
+        } catch (Throwable e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            LOGGER.error(WRITER_FAILED, e);
+            failure = e;
+            group.forEach(write -> write.written.completeExceptionally(e));
+            failPendingWrites();
+        }
+    }
+
+    private void failPendingWrites() {
+        PendingWrite write;
+        while ((write = pendingWrites.poll()) != null) {
+            write.written.completeExceptionally(new IllegalStateException(WRITER_FAILED, failure));
+        }
+    }
+
+    private void writeGroup(List<PendingWrite> group) throws IOException {
+        int size = 0;
+        for (PendingWrite write : group) {
+            for (JournalRecord record : write.records) {
+                size += FRAME_HEADER + record.encodedSize();
+            }
+        }
+        ByteBuffer buffer = groupBuffer(size);
+        for (PendingWrite write : group) {
+            for (JournalRecord record : write.records) {
+                writeFrame(buffer, record);
+            }
+            recordsSinceSnapshot += write.records.size();
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            log.write(buffer);
+        }
+        if (fsync) {
+            log.force(false);
+        }
+        group.forEach(write -> write.written.complete(null));
+    }
+
+    private ByteBuffer groupBuffer(int size) {
+        if (groupBuffer.capacity() < size) {
+            groupBuffer = ByteBuffer.allocateDirect(Math.max(size, groupBuffer.capacity() * 2));
+        }
+        groupBuffer.clear();
+        return groupBuffer;
+    }
+
+    private void writeSnapshot(Snapshot snapshot) throws IOException {
+        List<JournalRecord> records = new ArrayList<>(snapshot.tasks.size());
+        long size = SNAPSHOT_HEADER;
+        for (Task task : snapshot.tasks) {
+            JournalRecord record = JournalRecord.save(task);
+            records.add(record);
+            size += FRAME_HEADER + record.encodedSize();
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Task snapshot of " + size + " bytes can't be memory mapped");
+        }
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            buffer.putInt(SNAPSHOT_MAGIC);
+            buffer.putLong(snapshot.nextId);
+            buffer.putInt(records.size());
+            for (JournalRecord record : records) {
+                writeFrame(buffer, record);
+            }
+            buffer.force();
+        }
+        Files.move(temporary, directory.resolve(SNAPSHOT_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+        log.truncate(0);
+        log.position(0);
+        log.force(true);
+        recordsSinceSnapshot = 0;
+    }
+
+    private long readSnapshot(Consumer<JournalRecord> replay) throws IOException {
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (!Files.exists(snapshot)) {
+            return 1;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < SNAPSHOT_HEADER || buffer.getInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Corrupted task snapshot " + snapshot);
+            }
+            long nextId = buffer.getLong();
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                JournalRecord record = readFrame(buffer);
+                if (record == null) {
+                    throw new IOException("Corrupted task snapshot " + snapshot);
+                }
+                replay.accept(record);
+            }
+            return nextId;
+        }
+    }
+
+    private long replayLog(Consumer<JournalRecord> replay) throws IOException {
+        long nextId = 1;
+        MappedByteBuffer buffer = log.map(FileChannel.MapMode.READ_ONLY, 0, log.size());
+        int validEnd = 0;
+        JournalRecord record;
+        while ((record = readFrame(buffer)) != null) {
+            replay.accept(record);
+            if (record.getType() == JournalRecord.Type.SAVE) {
+                nextId = Math.max(nextId, record.getId() + 1);
+            }
+            validEnd = buffer.position();
+            recordsSinceSnapshot++;
+        }
+        if (validEnd < log.size()) {
+            LOGGER.warn("Discarding {} bytes of incomplete task journal records", log.size() - validEnd);
+            log.truncate(validEnd);
+        }
+        log.position(validEnd);
+        return nextId;
+    }
+
+    private static void writeFrame(ByteBuffer buffer, JournalRecord record) {
+        int start = buffer.position();
+        buffer.position(start + FRAME_HEADER);
+        record.writeTo(buffer);
+        int end = buffer.position();
+        buffer.putInt(start, end - start - FRAME_HEADER);
+        buffer.putInt(start + Integer.BYTES, checksum(buffer, start + FRAME_HEADER, end));
+    }
+
+    private static JournalRecord readFrame(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < FRAME_HEADER) {
+            return null;
+        }
+        int start = buffer.position();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (length <= 0 || length > buffer.remaining()) {
+            buffer.position(start);
+            return null;
+        }
+        int end = start + FRAME_HEADER + length;
+        if (checksum(buffer, start + FRAME_HEADER, end) != checksum) {
+            buffer.position(start);
+            return null;
+        }
+        int limit = buffer.limit();
+        buffer.limit(end);
+        try {
+            return JournalRecord.readFrom(buffer);
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Unreadable task journal record at offset " + start, e);
+        } finally {
+            buffer.limit(limit).position(end);
+        }
+    }
+
+    private static int checksum(ByteBuffer buffer, int from, int to) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.limit(to).position(from);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    public static final class Snapshot {
+
+        private final Collection<Task> tasks;
+        private final long nextId;
+
+        public Snapshot(Collection<Task> tasks, long nextId) {
+            this.tasks = tasks;
+            this.nextId = nextId;
+        }
+
+        public Collection<Task> getTasks() {
+            return tasks;
+        }
+
+    }
+
+    private static final class PendingWrite {
+
+        private final List<JournalRecord> records;
+        private final CompletableFuture<Void> written = new CompletableFuture<>();
+
+        private PendingWrite(List<JournalRecord> records) {
+            this.records = records;
+        }
+
+    }
+
+}
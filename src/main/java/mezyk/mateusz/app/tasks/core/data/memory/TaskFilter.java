@@ -0,0 +1,26 @@
+package mezyk.mateusz.app.tasks.core.data.memory;
+
+public enum TaskFilter {
+
+    ALL {
+        @Override
+        long select(long live, long completed) {
+            return live;
+        }
+    },
+    ACTIVE {
+        @Override
+        long select(long live, long completed) {
+            return live & ~completed;
+        }
+    },
+    COMPLETED {
+        @Override
+        long select(long live, long completed) {
+            return live & completed;
+        }
+    };
+
+    abstract long select(long live, long completed);
+
+}
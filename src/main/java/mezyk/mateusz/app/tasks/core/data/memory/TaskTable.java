@@ -0,0 +1,549 @@
+package mezyk.mateusz.app.tasks.core.data.memory;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChange;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.StampedLock;
+
+public class TaskTable {
+
+    public static final long MISSING = -1L;
+    public static final long CONFLICT = -2L;
+    public static final long ANY_VERSION = -1L;
+
+    private static final long FREE = 0L;
+    private static final long DELETED = -1L;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+
+    private long[] slotIds = new long[INITIAL_CAPACITY * 2];
+    private int[] slotRows = new int[INITIAL_CAPACITY * 2];
+    private int usedSlots;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private long[] revisions = new long[INITIAL_CAPACITY];
+    private String[] titles = new String[INITIAL_CAPACITY];
+    private String[] descriptions = new String[INITIAL_CAPACITY];
+    private long[] live = new long[INITIAL_CAPACITY / Long.SIZE];
+    private long[] completed = new long[INITIAL_CAPACITY / Long.SIZE];
+    private int rowCount;
+    private int liveCount;
+    private int completedCount;
+    private long nextId = 1;
+
+    private long[] logRevisions = new long[INITIAL_CAPACITY];
+    private long[] logIds = new long[INITIAL_CAPACITY];
+    private int logSize;
+    private long lastRevision;
+    private long horizon;
+
+    public Task find(long id) {
+        long stamp = lock.tryOptimisticRead();
+        Task task;
+        try {
+            int row = row(id);
+            task = row < 0 ? null : task(row);
+        } catch (RuntimeException e) {
+            task = null;
+            stamp = 0;
+        }
+        if (stamp != 0 && lock.validate(stamp)) {
+            return task;
+        }
+        stamp = lock.readLock();
+        try {
+            int row = row(id);
+            return row < 0 ? null : task(row);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean contains(long id) {
+        long stamp = lock.tryOptimisticRead();
+        boolean found;
+        try {
+            found = row(id) >= 0;
+        } catch (RuntimeException e) {
+            found = false;
+            stamp = 0;
+        }
+        if (stamp != 0 && lock.validate(stamp)) {
+            return found;
+        }
+        stamp = lock.readLock();
+        try {
+            return row(id) >= 0;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<Task> tasks(TaskFilter filter) {
+        long stamp = lock.readLock();
+        try {
+            List<Task> tasks = new ArrayList<>(countUnlocked(filter));
+            for (int row = nextRow(filter, 0); row >= 0; row = nextRow(filter, row + 1)) {
+                tasks.add(task(row));
+            }
+            return tasks;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<Task> tasksAfter(long afterId, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<Task> tasks = new ArrayList<>(Math.min(limit, liveCount));
+            for (int row = nextRow(TaskFilter.ALL, firstRowAfter(afterId)); row >= 0 && tasks.size() < limit;
+                 row = nextRow(TaskFilter.ALL, row + 1)) {
+                tasks.add(task(row));
+            }
+            return tasks;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<TaskView> viewsAfter(long afterId, TaskFilter filter, int limit) {
+        long stamp = lock.readLock();
+        try {
+            List<TaskView> views = new ArrayList<>(Math.min(limit, countUnlocked(filter)));
+            for (int row = nextRow(filter, firstRowAfter(afterId)); row >= 0 && views.size() < limit;
+                 row = nextRow(filter, row + 1)) {
+                views.add(view(row));
+            }
+            return views;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<TaskView> views(Collection<Long> ids) {
+        long stamp = lock.readLock();
+        try {
+            List<TaskView> views = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                int row = id == null ? -1 : row(id);
+                if (row >= 0) {
+                    views.add(view(row));
+                }
+            }
+            return views;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public List<TaskView> query(TaskQuery query) {
+        TaskFilter filter = query.getCompleted() == null ? TaskFilter.ALL
+                : query.getCompleted() ? TaskFilter.COMPLETED : TaskFilter.ACTIVE;
+        long stamp = lock.readLock();
+        try {
+            return TaskQuery.SORT_BY_ID.equals(query.getSortProperty())
+                    ? queryById(query, filter)
+                    : queryByTitle(query, filter);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public TaskChanges changesAfter(long since, int limit) {
+        long stamp = lock.readLock();
+        try {
+            if (since < horizon || since > lastRevision) {
+                return TaskChanges.reset(lastRevision);
+            }
+            List<TaskChange> changed = new ArrayList<>();
+            List<Long> deleted = new ArrayList<>();
+            int index = Arrays.binarySearch(logRevisions, 0, logSize, since);
+            long revision = lastRevision;
+            for (index = index >= 0 ? index + 1 : -index - 1;
+                 index < logSize && changed.size() + deleted.size() < limit; index++) {
+                long id = logIds[index];
+                if (id < 0) {
+                    deleted.add(-id);
+                } else {
+                    int row = row(id);
+                    if (row < 0 || revisions[row] != logRevisions[index]) {
+                        continue;
+                    }
+                    changed.add(new TaskChange(id, titles[row], descriptions[row],
+                            (completed[row >>> 6] & (1L << row)) != 0, revisions[row]));
+                }
+                revision = logRevisions[index];
+            }
+            return new TaskChanges(changed, deleted, changed.size() + deleted.size() < limit ? lastRevision : revision);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int count(TaskFilter filter) {
+        long stamp = lock.readLock();
+        try {
+            return countUnlocked(filter);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public void insertAll(List<Task> tasks) {
+        long stamp = lock.writeLock();
+        try {
+            for (Task task : tasks) {
+                task.setId(insert(task.getTitle(), task.getDescription(), task.getCompleted()));
+                task.setVersion(0L);
+                task.setRevision(lastRevision);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public long update(long id, long expectedVersion, String title, String description, boolean taskCompleted,
+                       boolean updateContent) {
+        long stamp = lock.writeLock();
+        try {
+            int row = row(id);
+            if (row < 0) {
+                return MISSING;
+            }
+            if (expectedVersion != ANY_VERSION && versions[row] != expectedVersion) {
+                return CONFLICT;
+            }
+            if (updateContent) {
+                titles[row] = intern(title);
+                descriptions[row] = intern(description);
+            }
+            setCompleted(row, taskCompleted);
+            revisions[row] = record(id);
+            return ++versions[row];
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public long updateAll(List<Task> tasks) {
+        long stamp = lock.writeLock();
+        try {
+            for (Task task : tasks) {
+                if (row(task.getId()) < 0) {
+                    return task.getId();
+                }
+            }
+            for (Task task : tasks) {
+                int row = row(task.getId());
+                titles[row] = intern(task.getTitle());
+                descriptions[row] = intern(task.getDescription());
+                setCompleted(row, task.getCompleted());
+                revisions[row] = record(task.getId());
+                versions[row]++;
+            }
+            return 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean delete(long id) {
+        long stamp = lock.writeLock();
+        try {
+            return remove(id);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public long deleteAll(Collection<Long> ids) {
+        long stamp = lock.writeLock();
+        try {
+            for (Long id : ids) {
+                if (row(id) < 0) {
+                    return id;
+                }
+            }
+            for (Long id : ids) {
+                remove(id);
+            }
+            return 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private long insert(String title, String description, boolean taskCompleted) {
+        if (rowCount == ids.length) {
+            if (liveCount < rowCount / 2) {
+                compact();
+            } else {
+                grow();
+            }
+        }
+        if ((usedSlots + 1) * 2 > slotIds.length) {
+            rehash((liveCount + 1) * 4 > slotIds.length ? slotIds.length * 2 : slotIds.length);
+        }
+        int row = rowCount++;
+        long id = nextId++;
+        ids[row] = id;
+        versions[row] = 0;
+        revisions[row] = record(id);
+        titles[row] = intern(title);
+        descriptions[row] = intern(description);
+        live[row >>> 6] |= 1L << row;
+        setCompleted(row, taskCompleted);
+        liveCount++;
+        addSlot(id, row);
+        return id;
+    }
+
+    private boolean remove(long id) {
+        int slot = slot(id);
+        if (slot < 0) {
+            return false;
+        }
+        int row = slotRows[slot];
+        slotIds[slot] = DELETED;
+        setCompleted(row, false);
+        live[row >>> 6] &= ~(1L << row);
+        titles[row] = null;
+        descriptions[row] = null;
+        liveCount--;
+        record(-id);
+        return true;
+    }
+
+    private long record(long id) {
+        if (logSize == logIds.length) {
+            compactLog();
+            if (logSize * 2 > logIds.length) {
+                logRevisions = Arrays.copyOf(logRevisions, logIds.length * 2);
+                logIds = Arrays.copyOf(logIds, logIds.length * 2);
+            }
+        }
+        logRevisions[logSize] = ++lastRevision;
+        logIds[logSize++] = id;
+        return lastRevision;
+    }
+
+    private void compactLog() {
+        Set<Long> deletedIds = new HashSet<>();
+        int maxDeletes = Math.max(liveCount, INITIAL_CAPACITY);
+        int target = logSize;
+        for (int index = logSize - 1; index >= 0; index--) {
+            long id = logIds[index];
+            boolean kept;
+            if (id < 0) {
+                kept = row(-id) < 0 && deletedIds.add(-id);
+                if (kept && deletedIds.size() > maxDeletes) {
+                    horizon = Math.max(horizon, logRevisions[index]);
+                    kept = false;
+                }
+            } else {
+                int row = row(id);
+                kept = row >= 0 && revisions[row] == logRevisions[index];
+            }
+            if (kept) {
+                target--;
+                logRevisions[target] = logRevisions[index];
+                logIds[target] = id;
+            }
+        }
+        logSize -= target;
+        System.arraycopy(logRevisions, target, logRevisions, 0, logSize);
+        System.arraycopy(logIds, target, logIds, 0, logSize);
+    }
+
+    private int countUnlocked(TaskFilter filter) {
+        switch (filter) {
+            case ACTIVE:
+                return liveCount - completedCount;
+            case COMPLETED:
+                return completedCount;
+            default:
+                return liveCount;
+        }
+    }
+
+    private void setCompleted(int row, boolean taskCompleted) {
+        long bit = 1L << row;
+        boolean wasCompleted = (completed[row >>> 6] & bit) != 0;
+        if (taskCompleted && !wasCompleted) {
+            completed[row >>> 6] |= bit;
+            completedCount++;
+        } else if (!taskCompleted && wasCompleted) {
+            completed[row >>> 6] &= ~bit;
+            completedCount--;
+        }
+    }
+
+    private List<TaskView> queryById(TaskQuery query, TaskFilter filter) {
+        int from = query.getMinId() == null || query.getMinId() <= 0 ? 0 : firstRowAfter(query.getMinId() - 1);
+        int to = query.getMaxId() == null ? rowCount : firstRowAfter(query.getMaxId());
+        List<TaskView> views = new ArrayList<>(Math.max(0, Math.min(query.getLimit(), to - from)));
+        if (query.isDescending()) {
+            for (int row = to - 1; row >= from && views.size() < query.getLimit(); row--) {
+                if (selected(filter, row)) {
+                    views.add(view(row));
+                }
+            }
+        } else {
+            for (int row = nextRow(filter, from); row >= 0 && row < to && views.size() < query.getLimit();
+                 row = nextRow(filter, row + 1)) {
+                views.add(view(row));
+            }
+        }
+        return views;
+    }
+
+    private List<TaskView> queryByTitle(TaskQuery query, TaskFilter filter) {
+        List<TaskView> views = new ArrayList<>();
+        for (int row = nextRow(filter, 0); row >= 0; row = nextRow(filter, row + 1)) {
+            if (query.matches(ids[row], titles[row], (completed[row >>> 6] & (1L << row)) != 0)) {
+                views.add(view(row));
+            }
+        }
+        Comparator<TaskView> order = Comparator.comparing(TaskView::getTitle,
+                Comparator.nullsFirst(Comparator.<String>naturalOrder())).thenComparing(TaskView::getId);
+        views.sort(query.isDescending() ? order.reversed() : order);
+        return views.size() > query.getLimit() ? new ArrayList<>(views.subList(0, query.getLimit())) : views;
+    }
+
+    private boolean selected(TaskFilter filter, int row) {
+        return (filter.select(live[row >>> 6], completed[row >>> 6]) & (1L << row)) != 0;
+    }
+
+    private int nextRow(TaskFilter filter, int fromRow) {
+        if (fromRow >= rowCount) {
+            return -1;
+        }
+        int word = fromRow >>> 6;
+        long bits = filter.select(live[word], completed[word]) & (-1L << fromRow);
+        int words = (rowCount + Long.SIZE - 1) >>> 6;
+        while (bits == 0) {
+            if (++word == words) {
+                return -1;
+            }
+            bits = filter.select(live[word], completed[word]);
+        }
+        int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+        return row < rowCount ? row : -1;
+    }
+
+    private int firstRowAfter(long afterId) {
+        int index = Arrays.binarySearch(ids, 0, rowCount, afterId);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private int row(long id) {
+        int slot = slot(id);
+        return slot < 0 ? -1 : slotRows[slot];
+    }
+
+    private int slot(long id) {
+        if (id <= 0) {
+            return -1;
+        }
+        long[] keys = slotIds;
+        int mask = keys.length - 1;
+        for (int slot = mix(id) & mask, probes = 0; probes < keys.length; slot = (slot + 1) & mask, probes++) {
+            long key = keys[slot];
+            if (key == id) {
+                return slot;
+            }
+            if (key == FREE) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private void addSlot(long id, int row) {
+        int mask = slotIds.length - 1;
+        int slot = mix(id) & mask;
+        while (slotIds[slot] != FREE) {
+            slot = (slot + 1) & mask;
+        }
+        slotIds[slot] = id;
+        slotRows[slot] = row;
+        usedSlots++;
+    }
+
+    private void rehash(int capacity) {
+        slotIds = new long[capacity];
+        slotRows = new int[capacity];
+        usedSlots = 0;
+        for (int row = nextRow(TaskFilter.ALL, 0); row >= 0; row = nextRow(TaskFilter.ALL, row + 1)) {
+            addSlot(ids[row], row);
+        }
+    }
+
+    private void grow() {
+        int capacity = ids.length * 2;
+        ids = Arrays.copyOf(ids, capacity);
+        versions = Arrays.copyOf(versions, capacity);
+        revisions = Arrays.copyOf(revisions, capacity);
+        titles = Arrays.copyOf(titles, capacity);
+        descriptions = Arrays.copyOf(descriptions, capacity);
+        live = Arrays.copyOf(live, capacity / Long.SIZE);
+        completed = Arrays.copyOf(completed, capacity / Long.SIZE);
+    }
+
+    private void compact() {
+        int target = 0;
+        for (int row = nextRow(TaskFilter.ALL, 0); row >= 0; row = nextRow(TaskFilter.ALL, row + 1), target++) {
+            boolean taskCompleted = (completed[row >>> 6] & (1L << row)) != 0;
+            ids[target] = ids[row];
+            versions[target] = versions[row];
+            revisions[target] = revisions[row];
+            titles[target] = titles[row];
+            descriptions[target] = descriptions[row];
+            live[row >>> 6] &= ~(1L << row);
+            completed[row >>> 6] &= ~(1L << row);
+            live[target >>> 6] |= 1L << target;
+            if (taskCompleted) {
+                completed[target >>> 6] |= 1L << target;
+            }
+        }
+        Arrays.fill(titles, target, rowCount, null);
+        Arrays.fill(descriptions, target, rowCount, null);
+        rowCount = target;
+        rehash(slotIds.length);
+    }
+
+    private Task task(int row) {
+        Task task = new Task(titles[row], descriptions[row]);
+        task.setId(ids[row]);
+        task.setVersion(versions[row]);
+        task.setRevision(revisions[row]);
+        task.setCompleted((completed[row >>> 6] & (1L << row)) != 0);
+        return task;
+    }
+
+    private TaskView view(int row) {
+        return new TaskView(ids[row], titles[row], descriptions[row], (completed[row >>> 6] & (1L << row)) != 0);
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    private static int mix(long id) {
+        long h = id * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+}
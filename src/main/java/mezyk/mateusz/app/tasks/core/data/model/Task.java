@@ -1,23 +1,55 @@
 package mezyk.mateusz.app.tasks.core.data.model;
 
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Objects;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_task_tenant_id", columnList = "tenant, id"),
+        @Index(name = "idx_task_tenant_completed_id", columnList = "tenant, completed, id"),
+        @Index(name = "idx_task_tenant_revision", columnList = "tenant, revision"),
+        @Index(name = "idx_task_revision", columnList = "revision"),
+        @Index(name = "idx_task_tenant_title", columnList = "tenant, title"),
+        @Index(name = "idx_task_tenant_completed_title", columnList = "tenant, completed, title")
+})
 public class Task {
 
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "task_id_generator")
+    @GenericGenerator(name = "task_id_generator", strategy = "mezyk.mateusz.app.tasks.core.data.model.TaskIdGenerator",
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "task_id_seq"),
+                    @Parameter(name = SequenceStyleGenerator.INITIAL_PARAM, value = "1"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "50")
+            })
     private Long id;
 
+    @Column(nullable = false, updatable = false, length = TenantContext.MAX_LENGTH)
+    private String tenant = TenantContext.DEFAULT_TENANT;
+
     private String title;
 
     private String description;
 
     private boolean completed;
 
+    @Version
+    private Long version;
+
+    private Long revision;
+
     public Task() {
     }
 
@@ -34,6 +66,14 @@ public class Task {
         this.id = id;
     }
 
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
     public String getTitle() {
         return title;
     }
@@ -58,6 +98,22 @@ public class Task {
         this.completed = completed;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getRevision() {
+        return revision;
+    }
+
+    public void setRevision(Long revision) {
+        this.revision = revision;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
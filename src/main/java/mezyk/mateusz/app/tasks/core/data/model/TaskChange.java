@@ -0,0 +1,43 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+public final class TaskChange {
+
+    private final Long id;
+
+    private final String title;
+
+    private final String description;
+
+    private final boolean completed;
+
+    private final long revision;
+
+    public TaskChange(Long id, String title, String description, boolean completed, long revision) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.completed = completed;
+        this.revision = revision;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean getCompleted() {
+        return completed;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+}
@@ -0,0 +1,47 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+import java.util.Collections;
+import java.util.List;
+
+public final class TaskChanges {
+
+    private final List<TaskChange> changed;
+
+    private final List<Long> deleted;
+
+    private final long revision;
+
+    private final boolean reset;
+
+    public TaskChanges(List<TaskChange> changed, List<Long> deleted, long revision) {
+        this(changed, deleted, revision, false);
+    }
+
+    private TaskChanges(List<TaskChange> changed, List<Long> deleted, long revision, boolean reset) {
+        this.changed = changed;
+        this.deleted = deleted;
+        this.revision = revision;
+        this.reset = reset;
+    }
+
+    public static TaskChanges reset(long revision) {
+        return new TaskChanges(Collections.emptyList(), Collections.emptyList(), revision, true);
+    }
+
+    public List<TaskChange> getChanged() {
+        return changed;
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    public boolean getReset() {
+        return reset;
+    }
+
+}
@@ -0,0 +1,66 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Properties;
+
+public class TaskIdGenerator extends SequenceStyleGenerator {
+
+    public static final String SHARD_MISMATCH = "Can't generate an id for a task of tenant '%s' on shard %d "
+            + "through a connection routed to shard %d";
+
+    private int shards = 1;
+    private SequenceStyleGenerator[] shardGenerators = new SequenceStyleGenerator[0];
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        super.configure(type, params, serviceRegistry);
+        shards = ConfigurationHelper.getInt(TenantShards.SHARDS_PROPERTY,
+                serviceRegistry.getService(ConfigurationService.class).getSettings(), 1);
+        if (shards > 1) {
+            shardGenerators = new SequenceStyleGenerator[shards];
+            for (int shard = 0; shard < shards; shard++) {
+                shardGenerators[shard] = new SequenceStyleGenerator();
+                shardGenerators[shard].configure(type, params, serviceRegistry);
+            }
+        }
+    }
+
+    @Override
+    public void registerExportables(Database database) {
+        super.registerExportables(database);
+        for (SequenceStyleGenerator shardGenerator : shardGenerators) {
+            shardGenerator.registerExportables(database);
+        }
+    }
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        if (object instanceof Task && ((Task) object).getId() != null) {
+            return ((Task) object).getId();
+        }
+        if (shards == 1) {
+            return super.generate(session, object);
+        }
+        String tenant = object instanceof Task ? ((Task) object).getTenant() : TenantContext.current();
+        int shard = TenantShards.shardOf(tenant, shards);
+        // Each shard generator pools values of its own shard's sequence, so the sequence has to be read through a
+        // connection to that shard. A session that is already connected was routed when it connected.
+        int currentShard = TenantShards.currentShard(shards);
+        if (currentShard != shard && session.getJdbcCoordinator().getLogicalConnection().isPhysicallyConnected()) {
+            throw new IllegalStateException(String.format(SHARD_MISMATCH, tenant, shard, currentShard));
+        }
+        return TenantShards.onShard(shard, () -> (Long) shardGenerators[shard].generate(session, object)) * shards + shard;
+    }
+
+}
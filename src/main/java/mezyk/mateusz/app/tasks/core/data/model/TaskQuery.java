@@ -0,0 +1,99 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+
+public final class TaskQuery {
+
+    public static final String SORT_BY_ID = "id";
+    public static final String SORT_BY_TITLE = "title";
+    public static final String ASCENDING = "asc";
+    public static final String DESCENDING = "desc";
+    public static final String INVALID_SORT = "Sort must be <property>[,asc|desc], got: ";
+
+    private final Boolean completed;
+
+    private final String titlePrefix;
+
+    private final Long minId;
+
+    private final Long maxId;
+
+    private final String sortProperty;
+
+    private final boolean descending;
+
+    private final int limit;
+
+    public TaskQuery(Boolean completed, String titlePrefix, Long minId, Long maxId, String sortProperty,
+                     boolean descending, int limit) {
+        this.completed = completed;
+        this.titlePrefix = titlePrefix == null || titlePrefix.isEmpty() ? null : titlePrefix;
+        this.minId = minId;
+        this.maxId = maxId;
+        this.sortProperty = sortProperty;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    public static TaskQuery of(Boolean completed, String titlePrefix, Long minId, Long maxId, String sort, int limit) {
+        String[] parts = sort.split(",", -1);
+        if (parts.length > 2) {
+            throw new InvalidTaskRequestException(INVALID_SORT + sort);
+        }
+        String direction = parts.length == 2 ? parts[1].trim().toLowerCase() : ASCENDING;
+        if (!ASCENDING.equals(direction) && !DESCENDING.equals(direction)) {
+            throw new InvalidTaskRequestException(INVALID_SORT + sort);
+        }
+        return new TaskQuery(completed, titlePrefix, minId, maxId, parts[0].trim(), DESCENDING.equals(direction), limit);
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public String getTitlePrefix() {
+        return titlePrefix;
+    }
+
+    public String getTitleUpperBound() {
+        if (titlePrefix == null) {
+            return null;
+        }
+        int end = titlePrefix.length();
+        while (end > 0 && titlePrefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return titlePrefix.substring(0, end - 1) + (char) (titlePrefix.charAt(end - 1) + 1);
+    }
+
+    public Long getMinId() {
+        return minId;
+    }
+
+    public Long getMaxId() {
+        return maxId;
+    }
+
+    public String getSortProperty() {
+        return sortProperty;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public boolean matches(Long id, String title, boolean taskCompleted) {
+        return (completed == null || completed == taskCompleted)
+                && (minId == null || id >= minId)
+                && (maxId == null || id <= maxId)
+                && (titlePrefix == null || (title != null && title.startsWith(titlePrefix)));
+    }
+
+}
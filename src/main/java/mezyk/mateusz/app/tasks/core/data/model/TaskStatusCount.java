@@ -0,0 +1,9 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+public interface TaskStatusCount {
+
+    Boolean getCompleted();
+
+    Long getCount();
+
+}
@@ -0,0 +1,54 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.springframework.data.domain.Persistable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+@Entity
+@Table(indexes = {
+        @Index(name = "idx_task_tombstone_tenant_revision", columnList = "tenant, revision"),
+        @Index(name = "idx_task_tombstone_revision", columnList = "revision")
+})
+public class TaskTombstone implements Persistable<Long> {
+
+    @Id
+    private Long id;
+
+    @Column(nullable = false, length = TenantContext.MAX_LENGTH)
+    private String tenant;
+
+    private long revision;
+
+    public TaskTombstone() {
+    }
+
+    public TaskTombstone(Long id, String tenant, long revision) {
+        this.id = id;
+        this.tenant = tenant;
+        this.revision = revision;
+    }
+
+    @Override
+    public Long getId() {
+        return id;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public long getRevision() {
+        return revision;
+    }
+
+    @Override
+    public boolean isNew() {
+        return true;
+    }
+
+}
@@ -0,0 +1,36 @@
+package mezyk.mateusz.app.tasks.core.data.model;
+
+public final class TaskView {
+
+    private final Long id;
+
+    private final String title;
+
+    private final String description;
+
+    private final boolean completed;
+
+    public TaskView(Long id, String title, String description, boolean completed) {
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.completed = completed;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean getCompleted() {
+        return completed;
+    }
+
+}
@@ -0,0 +1,820 @@
+package mezyk.mateusz.app.tasks.core.data.repository;
+
+import mezyk.mateusz.app.tasks.core.data.journal.JournalRecord;
+import mezyk.mateusz.app.tasks.core.data.journal.TaskJournal;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChange;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityNotFoundException;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+@Repository
+@Primary
+@ConditionalOnProperty(name = JournalTaskRepository.STORAGE_PROPERTY, havingValue = "journal")
+public class JournalTaskRepository implements TaskRepository {
+
+    public static final String STORAGE_PROPERTY = "tasks.storage";
+    public static final String EXAMPLE_NOT_SUPPORTED = "Query by example is not supported by the journal storage";
+    public static final String JOURNAL_FAILURE = "Can't append to the task journal";
+
+    private static final NavigableMap<Long, Task> EMPTY_TENANT = Collections.emptyNavigableMap();
+
+    private final ConcurrentSkipListMap<Long, Task> tasks = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<String, ConcurrentSkipListMap<Long, Task>> tenants =
+            new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Long, Long> revisions = new ConcurrentSkipListMap<>();
+    private final Map<Long, Change> pending = new HashMap<>();
+    private final Object writeLock = new Object();
+    private final TaskJournal journal;
+    private long nextId;
+    private long nextTicket = 1;
+    private long appliedTicket;
+
+    @Autowired
+    public JournalTaskRepository(@Value("${tasks.journal.directory}") String directory,
+                                 @Value("${tasks.journal.fsync}") boolean fsync,
+                                 @Value("${tasks.journal.snapshot-interval}") int snapshotInterval) {
+        this(new TaskJournal(Paths.get(directory), fsync, snapshotInterval));
+    }
+
+    public JournalTaskRepository(TaskJournal journal) {
+        this.journal = journal;
+    }
+
+    @PostConstruct
+    public void recover() throws IOException {
+        synchronized (writeLock) {
+            nextId = journal.open(this::replay, this::snapshot);
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        journal.close();
+    }
+
+    @Override
+    public List<Task> findAllByTenant(String tenant) {
+        return copies(visible(tenant), task -> true);
+    }
+
+    @Override
+    public List<Task> findAllByTenantAndCompletedFalse(String tenant) {
+        return copies(visible(tenant), task -> !task.getCompleted());
+    }
+
+    @Override
+    public List<Task> findAllByTenantAndCompletedTrue(String tenant) {
+        return copies(visible(tenant), Task::getCompleted);
+    }
+
+    @Override
+    public Optional<Task> findByTenantAndId(String tenant, Long id) {
+        return Optional.ofNullable(current(id)).filter(owned(tenant)).map(JournalTaskRepository::copy);
+    }
+
+    @Override
+    public boolean existsByTenantAndId(String tenant, Long id) {
+        Task task = current(id);
+        return task != null && tenant.equals(task.getTenant());
+    }
+
+    @Override
+    public List<Task> findAllByTenantAndIdIn(String tenant, Collection<Long> ids) {
+        return ids.stream().map(this::current).filter(Objects::nonNull).filter(owned(tenant))
+                .map(JournalTaskRepository::copy).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<String> findTenants() {
+        if (staged() == null) {
+            return new ArrayList<>(tenants.keySet());
+        }
+        return visible().values().stream().map(Task::getTenant).filter(Objects::nonNull).distinct().sorted()
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TaskView> findViewsAfter(String tenant, Long afterId, Pageable pageable) {
+        return viewsAfter(visible(tenant), afterId, pageable, task -> true);
+    }
+
+    @Override
+    public List<TaskView> findActiveViewsAfter(String tenant, Long afterId, Pageable pageable) {
+        return viewsAfter(visible(tenant), afterId, pageable, task -> !task.getCompleted());
+    }
+
+    @Override
+    public List<TaskView> findCompletedViewsAfter(String tenant, Long afterId, Pageable pageable) {
+        return viewsAfter(visible(tenant), afterId, pageable, Task::getCompleted);
+    }
+
+    @Override
+    public List<TaskStatusCount> countByStatus(String tenant) {
+        Collection<Task> owned = visible(tenant).values();
+        long completed = owned.stream().filter(Task::getCompleted).count();
+        long active = owned.size() - completed;
+        List<TaskStatusCount> counts = new ArrayList<>(2);
+        if (active > 0) {
+            counts.add(new StatusCount(false, active));
+        }
+        if (completed > 0) {
+            counts.add(new StatusCount(true, completed));
+        }
+        return counts;
+    }
+
+    @Override
+    public Stream<Task> streamAllOrderedById(String tenant) {
+        return visible(tenant).values().stream().map(JournalTaskRepository::copy);
+    }
+
+    @Override
+    public List<TaskView> findViewsByIds(String tenant, Collection<Long> ids) {
+        return ids.stream().map(this::current).filter(Objects::nonNull).filter(owned(tenant))
+                .map(JournalTaskRepository::view).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TaskView> findViews(String tenant, TaskQuery query) {
+        Stream<Task> matches;
+        if (TaskQuery.SORT_BY_ID.equals(query.getSortProperty())) {
+            long minId = query.getMinId() == null ? Long.MIN_VALUE : query.getMinId();
+            long maxId = query.getMaxId() == null ? Long.MAX_VALUE : query.getMaxId();
+            if (minId > maxId) {
+                return Collections.emptyList();
+            }
+            NavigableMap<Long, Task> range = visible(tenant).subMap(minId, true, maxId, true);
+            matches = (query.isDescending() ? range.descendingMap() : range).values().stream()
+                    .filter(task -> query.matches(task.getId(), task.getTitle(), task.getCompleted()));
+        } else {
+            Comparator<Task> order = property(TaskQuery.SORT_BY_TITLE).thenComparing(Task::getId);
+            matches = visible(tenant).values().stream()
+                    .filter(task -> query.matches(task.getId(), task.getTitle(), task.getCompleted()))
+                    .sorted(query.isDescending() ? order.reversed() : order);
+        }
+        return matches.limit(query.getLimit())
+                .map(JournalTaskRepository::view)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<TaskChange> findChangesBetween(String tenant, Long since, Long until, Pageable pageable) {
+        if (since >= until) {
+            return Collections.emptyList();
+        }
+        return revisions.subMap(since, false, until, true).entrySet().stream()
+                .map(revision -> tasks.get(revision.getValue()))
+                .filter(task -> task != null && tenant.equals(task.getTenant()) && task.getRevision() != null
+                        && task.getRevision() <= until)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(task -> new TaskChange(task.getId(), task.getTitle(), task.getDescription(), task.getCompleted(),
+                        task.getRevision()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public long findMaxRevision() {
+        Map.Entry<Long, Long> last = revisions.lastEntry();
+        return last == null ? 0 : last.getKey();
+    }
+
+    @Override
+    public int updateContent(String tenant, Long id, String title, String description, boolean completed,
+                             Long revision) {
+        return update(tenant, id, null, title, description, completed, true, revision);
+    }
+
+    @Override
+    public int updateContentIfVersion(String tenant, Long id, Long version, String title, String description,
+                                      boolean completed, Long revision) {
+        return update(tenant, id, version, title, description, completed, true, revision);
+    }
+
+    @Override
+    public int updateCompleted(String tenant, Long id, boolean completed, Long revision) {
+        return update(tenant, id, null, null, null, completed, false, revision);
+    }
+
+    @Override
+    public int updateCompletedIfVersion(String tenant, Long id, Long version, boolean completed, Long revision) {
+        return update(tenant, id, version, null, null, completed, false, revision);
+    }
+
+    @Override
+    public int removeById(String tenant, Long id) {
+        return deleteAllByIds(tenant, Collections.singleton(id));
+    }
+
+    @Override
+    public List<Long> findExistingIds(String tenant, Collection<Long> ids) {
+        return ids.stream().filter(id -> existsByTenantAndId(tenant, id)).collect(Collectors.toList());
+    }
+
+    @Override
+    public int deleteAllByIds(String tenant, Collection<Long> ids) {
+        return removeAll(ids, owned(tenant));
+    }
+
+    @Override
+    public List<Task> findAll() {
+        return copies(visible(), task -> true);
+    }
+
+    @Override
+    public List<Task> findAll(Sort sort) {
+        List<Task> all = findAll();
+        all.sort(comparator(sort));
+        return all;
+    }
+
+    @Override
+    public Page<Task> findAll(Pageable pageable) {
+        List<Task> all = findAll(pageable.getSort());
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(all);
+        }
+        int from = (int) Math.min(pageable.getOffset(), all.size());
+        int to = Math.min(from + pageable.getPageSize(), all.size());
+        return new PageImpl<>(all.subList(from, to), pageable, all.size());
+    }
+
+    @Override
+    public List<Task> findAllById(Iterable<Long> ids) {
+        return StreamSupport.stream(ids.spliterator(), false).map(this::current).filter(Objects::nonNull)
+                .map(JournalTaskRepository::copy).collect(Collectors.toList());
+    }
+
+    @Override
+    public long count() {
+        return visible().size();
+    }
+
+    @Override
+    public Optional<Task> findById(Long id) {
+        return Optional.ofNullable(current(id)).map(JournalTaskRepository::copy);
+    }
+
+    @Override
+    public boolean existsById(Long id) {
+        return current(id) != null;
+    }
+
+    @Override
+    public Task getOne(Long id) {
+        return findById(id).orElseThrow(() -> new EntityNotFoundException("Unable to find Task with id " + id));
+    }
+
+    @Override
+    public <S extends Task> S save(S task) {
+        saveAll(Collections.singletonList(task));
+        return task;
+    }
+
+    @Override
+    public <S extends Task> List<S> saveAll(Iterable<S> entities) {
+        List<S> saved = new ArrayList<>();
+        entities.forEach(saved::add);
+        JournalTransaction transaction = transaction();
+        synchronized (writeLock) {
+            for (S task : saved) {
+                Task current = task.getId() == null ? null : transaction.current(task.getId());
+                if (current != null && task.getVersion() != null && !task.getVersion().equals(current.getVersion())) {
+                    throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+                }
+            }
+            for (S task : saved) {
+                Task current = task.getId() == null ? null : transaction.current(task.getId());
+                if (current == null) {
+                    task.setId(nextId++);
+                    task.setVersion(0L);
+                } else {
+                    task.setVersion(current.getVersion() + 1);
+                }
+                transaction.stage(task.getId(), copy(task), null);
+            }
+        }
+        commitIfStandalone(transaction);
+        return saved;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public <S extends Task> S saveAndFlush(S task) {
+        return save(task);
+    }
+
+    @Override
+    public void deleteById(Long id) {
+        if (removeAll(Collections.singleton(id), task -> true) == 0) {
+            throw new EmptyResultDataAccessException(String.format("No %s entity with id %s exists!", Task.class, id), 1);
+        }
+    }
+
+    @Override
+    public void delete(Task task) {
+        removeAll(Collections.singleton(task.getId()), stored -> true);
+    }
+
+    @Override
+    public void deleteAll(Iterable<? extends Task> entities) {
+        Set<Long> ids = new HashSet<>();
+        entities.forEach(task -> ids.add(task.getId()));
+        removeAll(ids, task -> true);
+    }
+
+    @Override
+    public void deleteInBatch(Iterable<Task> entities) {
+        deleteAll(entities);
+    }
+
+    @Override
+    public void deleteAll() {
+        removeAll(new ArrayList<>(visible().keySet()), task -> true);
+    }
+
+    @Override
+    public void deleteAllInBatch() {
+        deleteAll();
+    }
+
+    @Override
+    public <S extends Task> Optional<S> findOne(Example<S> example) {
+        throw new InvalidDataAccessApiUsageException(EXAMPLE_NOT_SUPPORTED);
+    }
+
+    @Override
+    public <S extends Task> List<S> findAll(Example<S> example) {
+        throw new InvalidDataAccessApiUsageException(EXAMPLE_NOT_SUPPORTED);
+    }
+
+    @Override
+    public <S extends Task> List<S> findAll(Example<S> example, Sort sort) {
+        throw new InvalidDataAccessApiUsageException(EXAMPLE_NOT_SUPPORTED);
+    }
+
+    @Override
+    public <S extends Task> Page<S> findAll(Example<S> example, Pageable pageable) {
+        throw new InvalidDataAccessApiUsageException(EXAMPLE_NOT_SUPPORTED);
+    }
+
+    @Override
+    public <S extends Task> long count(Example<S> example) {
+        throw new InvalidDataAccessApiUsageException(EXAMPLE_NOT_SUPPORTED);
+    }
+
+    @Override
+    public <S extends Task> boolean exists(Example<S> example) {
+        throw new InvalidDataAccessApiUsageException(EXAMPLE_NOT_SUPPORTED);
+    }
+
+    private int removeAll(Collection<Long> ids, Predicate<Task> filter) {
+        JournalTransaction transaction = transaction();
+        int removed = 0;
+        synchronized (writeLock) {
+            for (Long id : new HashSet<>(ids)) {
+                Task current = transaction.current(id);
+                if (current != null && filter.test(current)) {
+                    transaction.stage(id, null, null);
+                    removed++;
+                }
+            }
+        }
+        commitIfStandalone(transaction);
+        return removed;
+    }
+
+    private int update(String tenant, Long id, Long expectedVersion, String title, String description,
+                       boolean completed, boolean updateContent, Long revision) {
+        UnaryOperator<Task> operation = current -> {
+            Task updated = copy(current);
+            if (updateContent) {
+                updated.setTitle(title);
+                updated.setDescription(description);
+            }
+            updated.setCompleted(completed);
+            updated.setVersion(current.getVersion() + 1);
+            updated.setRevision(revision);
+            return updated;
+        };
+        JournalTransaction transaction = transaction();
+        synchronized (writeLock) {
+            Task current = transaction.current(id);
+            if (current == null || !tenant.equals(current.getTenant())
+                    || (expectedVersion != null && !expectedVersion.equals(current.getVersion()))) {
+                return 0;
+            }
+            transaction.stage(id, operation.apply(current), expectedVersion == null ? operation : null);
+        }
+        commitIfStandalone(transaction);
+        return 1;
+    }
+
+    private JournalTransaction transaction() {
+        JournalTransaction transaction = (JournalTransaction) TransactionSynchronizationManager.getResource(this);
+        if (transaction == null) {
+            transaction = new JournalTransaction();
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.bindResource(this, transaction);
+                TransactionSynchronizationManager.registerSynchronization(transaction);
+                transaction.bound = true;
+            }
+        }
+        return transaction;
+    }
+
+    private void commitIfStandalone(JournalTransaction transaction) {
+        if (!transaction.bound) {
+            commit(transaction);
+        }
+    }
+
+    private void commit(JournalTransaction transaction) {
+        if (transaction.changes.isEmpty()) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>(transaction.changes.values());
+        transaction.changes.clear();
+        CompletableFuture<Void> written;
+        long ticket;
+        synchronized (writeLock) {
+            List<JournalRecord> records = new ArrayList<>(changes.size());
+            for (Change change : changes) {
+                Change latest = pending.get(change.id);
+                change.rebase(latest == null ? tasks.get(change.id) : latest.task);
+                records.add(change.task == null ? JournalRecord.delete(change.id) : JournalRecord.save(change.task));
+            }
+            try {
+                written = journal.append(records);
+            } catch (IllegalStateException e) {
+                throw new DataAccessResourceFailureException(JOURNAL_FAILURE, e);
+            }
+            ticket = nextTicket++;
+            for (Change change : changes) {
+                change.written = written;
+                change.previous = pending.put(change.id, change);
+            }
+        }
+        boolean durable = false;
+        try {
+            written.join();
+            durable = true;
+        } catch (CompletionException e) {
+            throw new DataAccessResourceFailureException(JOURNAL_FAILURE, e.getCause());
+        } finally {
+            apply(ticket, changes, durable);
+        }
+    }
+
+    private void apply(long ticket, List<Change> changes, boolean durable) {
+        boolean interrupted = false;
+        synchronized (writeLock) {
+            try {
+                while (appliedTicket != ticket - 1) {
+                    try {
+                        writeLock.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                for (Change change : changes) {
+                    if (pending.get(change.id) == change) {
+                        pending.remove(change.id);
+                    }
+                    change.previous = null;
+                    if (durable) {
+                        if (change.task == null) {
+                            remove(change.id);
+                        } else {
+                            put(change.task);
+                        }
+                    }
+                }
+            } finally {
+                appliedTicket = ticket;
+                writeLock.notifyAll();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Task current(Long id) {
+        JournalTransaction transaction = (JournalTransaction) TransactionSynchronizationManager.getResource(this);
+        return transaction == null ? tasks.get(id) : transaction.current(id);
+    }
+
+    private NavigableMap<Long, Task> visible() {
+        JournalTransaction transaction = staged();
+        if (transaction == null) {
+            return tasks;
+        }
+        NavigableMap<Long, Task> visible = new TreeMap<>(tasks);
+        transaction.changes.values().forEach(change -> change.applyTo(visible));
+        return visible;
+    }
+
+    private NavigableMap<Long, Task> visible(String tenant) {
+        NavigableMap<Long, Task> owned = tenants.get(tenant);
+        if (owned == null) {
+            owned = EMPTY_TENANT;
+        }
+        JournalTransaction transaction = staged();
+        if (transaction == null) {
+            return owned;
+        }
+        NavigableMap<Long, Task> visible = new TreeMap<>(owned);
+        for (Change change : transaction.changes.values()) {
+            if (change.task != null && tenant.equals(change.task.getTenant())) {
+                visible.put(change.id, change.task);
+            } else {
+                visible.remove(change.id);
+            }
+        }
+        return visible;
+    }
+
+    private JournalTransaction staged() {
+        JournalTransaction transaction = (JournalTransaction) TransactionSynchronizationManager.getResource(this);
+        return transaction == null || transaction.changes.isEmpty() ? null : transaction;
+    }
+
+    private void replay(JournalRecord record) {
+        switch (record.getType()) {
+            case SAVE:
+                put(record.toTask());
+                break;
+            case DELETE:
+                remove(record.getId());
+                break;
+        }
+    }
+
+    private void put(Task task) {
+        Task previous = tasks.put(task.getId(), task);
+        if (previous != null) {
+            unindex(previous);
+        }
+        if (task.getTenant() != null) {
+            tenants.computeIfAbsent(task.getTenant(), tenant -> new ConcurrentSkipListMap<>()).put(task.getId(), task);
+        }
+        if (task.getRevision() != null) {
+            revisions.put(task.getRevision(), task.getId());
+        }
+    }
+
+    private Task remove(Long id) {
+        Task removed = tasks.remove(id);
+        if (removed != null) {
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    private void unindex(Task task) {
+        if (task.getRevision() != null) {
+            revisions.remove(task.getRevision());
+        }
+        ConcurrentSkipListMap<Long, Task> owned = task.getTenant() == null ? null : tenants.get(task.getTenant());
+        if (owned != null && owned.remove(task.getId()) != null && owned.isEmpty()) {
+            tenants.remove(task.getTenant(), owned);
+        }
+    }
+
+    private TaskJournal.Snapshot snapshot() {
+        synchronized (writeLock) {
+            Map<Long, Task> state = new TreeMap<>(tasks);
+            for (Change change : pending.values()) {
+                Change written = change;
+                while (written != null && !written.isWritten()) {
+                    written = written.previous;
+                }
+                if (written != null) {
+                    written.applyTo(state);
+                }
+            }
+            return new TaskJournal.Snapshot(new ArrayList<>(state.values()), nextId);
+        }
+    }
+
+    private static Predicate<Task> owned(String tenant) {
+        return task -> tenant.equals(task.getTenant());
+    }
+
+    private static List<Task> copies(NavigableMap<Long, Task> source, Predicate<Task> filter) {
+        return source.values().stream().filter(filter).map(JournalTaskRepository::copy).collect(Collectors.toList());
+    }
+
+    private static List<TaskView> viewsAfter(NavigableMap<Long, Task> source, Long afterId, Pageable pageable,
+                                             Predicate<Task> filter) {
+        return source.tailMap(afterId, false).values().stream()
+                .filter(filter)
+                .skip(pageable.getOffset())
+                .limit(pageable.getPageSize())
+                .map(JournalTaskRepository::view)
+                .collect(Collectors.toList());
+    }
+
+    private static Comparator<Task> comparator(Sort sort) {
+        Comparator<Task> comparator = Comparator.comparing(Task::getId);
+        List<Comparator<Task>> orders = new ArrayList<>();
+        for (Sort.Order order : sort) {
+            Comparator<Task> property = property(order.getProperty());
+            orders.add(order.isAscending() ? property : property.reversed());
+        }
+        Collections.reverse(orders);
+        for (Comparator<Task> order : orders) {
+            comparator = order.thenComparing(comparator);
+        }
+        return comparator;
+    }
+
+    private static Comparator<Task> property(String property) {
+        switch (property) {
+            case "id":
+                return Comparator.comparing(Task::getId);
+            case "title":
+                return Comparator.comparing(Task::getTitle, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "description":
+                return Comparator.comparing(Task::getDescription, Comparator.nullsFirst(Comparator.naturalOrder()));
+            case "completed":
+                return Comparator.comparing(Task::getCompleted);
+            case "version":
+                return Comparator.comparing(Task::getVersion);
+            case "revision":
+                return Comparator.comparing(Task::getRevision, Comparator.nullsFirst(Comparator.naturalOrder()));
+            default:
+                throw new InvalidDataAccessApiUsageException("Can't sort tasks by " + property);
+        }
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task(task.getTitle(), task.getDescription());
+        copy.setId(task.getId());
+        copy.setTenant(task.getTenant());
+        copy.setCompleted(task.getCompleted());
+        copy.setVersion(task.getVersion());
+        copy.setRevision(task.getRevision());
+        return copy;
+    }
+
+    private static TaskView view(Task task) {
+        return new TaskView(task.getId(), task.getTitle(), task.getDescription(), task.getCompleted());
+    }
+
+    private final class JournalTransaction implements TransactionSynchronization {
+
+        private final Map<Long, Change> changes = new LinkedHashMap<>();
+        private boolean bound;
+
+        private Task current(Long id) {
+            Change change = changes.get(id);
+            return change == null ? tasks.get(id) : change.task;
+        }
+
+        private void stage(Long id, Task task, UnaryOperator<Task> operation) {
+            Change change = changes.get(id);
+            if (change == null) {
+                changes.put(id, new Change(id, tasks.get(id), task, operation));
+            } else {
+                UnaryOperator<Task> previous = change.operation;
+                change.task = task;
+                change.operation = previous == null || operation == null ? null
+                        : latest -> operation.apply(previous.apply(latest));
+            }
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(JournalTaskRepository.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(JournalTaskRepository.this, this);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commit(this);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(JournalTaskRepository.this);
+        }
+
+    }
+
+    private static final class Change {
+
+        private final Long id;
+        private final Task base;
+        private Task task;
+        private UnaryOperator<Task> operation;
+        private CompletableFuture<Void> written;
+        private Change previous;
+
+        private Change(Long id, Task base, Task task, UnaryOperator<Task> operation) {
+            this.id = id;
+            this.base = base;
+            this.task = task;
+            this.operation = operation;
+        }
+
+        private void rebase(Task latest) {
+            if (task == null || latest == base) {
+                return;
+            }
+            if (operation == null || latest == null) {
+                throw new ObjectOptimisticLockingFailureException(Task.class, id);
+            }
+            task = operation.apply(latest);
+        }
+
+        private boolean isWritten() {
+            return written.isDone() && !written.isCompletedExceptionally();
+        }
+
+        private void applyTo(Map<Long, Task> state) {
+            if (task == null) {
+                state.remove(id);
+            } else {
+                state.put(id, task);
+            }
+        }
+
+    }
+
+    private static final class StatusCount implements TaskStatusCount {
+
+        private final Boolean completed;
+        private final Long count;
+
+        private StatusCount(Boolean completed, Long count) {
+            this.completed = completed;
+            this.count = count;
+        }
+
+        @Override
+        public Boolean getCompleted() {
+            return completed;
+        }
+
+        @Override
+        public Long getCount() {
+            return count;
+        }
+
+    }
+
+}
@@ -0,0 +1,12 @@
+package mezyk.mateusz.app.tasks.core.data.repository;
+
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+
+import java.util.List;
+
+public interface TaskQueryRepository {
+
+    List<TaskView> findViews(String tenant, TaskQuery query);
+
+}
@@ -0,0 +1,64 @@
+package mezyk.mateusz.app.tasks.core.data.repository;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+
+import javax.persistence.EntityManager;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TaskQueryRepositoryImpl implements TaskQueryRepository {
+
+    private final EntityManager entityManager;
+
+    public TaskQueryRepositoryImpl(EntityManager entityManager) {
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public List<TaskView> findViews(String tenant, TaskQuery query) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<TaskView> criteria = builder.createQuery(TaskView.class);
+        Root<Task> task = criteria.from(Task.class);
+        Path<Long> id = task.get("id");
+        Path<String> title = task.get("title");
+        criteria.select(builder.construct(TaskView.class, id, title, task.get("description"), task.get("completed")));
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(task.get("tenant"), tenant));
+        if (query.getCompleted() != null) {
+            predicates.add(builder.equal(task.get("completed"), query.getCompleted()));
+        }
+        if (query.getTitlePrefix() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(title, query.getTitlePrefix()));
+            String upperBound = query.getTitleUpperBound();
+            if (upperBound != null) {
+                predicates.add(builder.lessThan(title, upperBound));
+            }
+        }
+        if (query.getMinId() != null) {
+            predicates.add(builder.greaterThanOrEqualTo(id, query.getMinId()));
+        }
+        if (query.getMaxId() != null) {
+            predicates.add(builder.lessThanOrEqualTo(id, query.getMaxId()));
+        }
+        criteria.where(predicates.toArray(new Predicate[0]));
+
+        if (TaskQuery.SORT_BY_TITLE.equals(query.getSortProperty())) {
+            criteria.orderBy(query.isDescending() ? builder.desc(title) : builder.asc(title),
+                    query.isDescending() ? builder.desc(id) : builder.asc(id));
+        } else {
+            criteria.orderBy(query.isDescending() ? builder.desc(id) : builder.asc(id));
+        }
+        return entityManager.createQuery(criteria)
+                .setMaxResults(query.getLimit())
+                .getResultList();
+    }
+
+}
@@ -1,16 +1,111 @@
 package mezyk.mateusz.app.tasks.core.data.repository;
 
 import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChange;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TaskRepository extends JpaRepository<Task, Long> {
+public interface TaskRepository extends JpaRepository<Task, Long>, TaskQueryRepository {
 
-    List<Task> findAllByCompletedFalse();
+    List<Task> findAllByTenant(String tenant);
 
-    List<Task> findAllByCompletedTrue();
+    List<Task> findAllByTenantAndCompletedFalse(String tenant);
+
+    List<Task> findAllByTenantAndCompletedTrue(String tenant);
+
+    Optional<Task> findByTenantAndId(String tenant, Long id);
+
+    boolean existsByTenantAndId(String tenant, Long id);
+
+    List<Task> findAllByTenantAndIdIn(String tenant, Collection<Long> ids);
+
+    @Query("select distinct t.tenant from Task t order by t.tenant")
+    List<String> findTenants();
+
+    @Query("select new mezyk.mateusz.app.tasks.core.data.model.TaskView(t.id, t.title, t.description, t.completed) " +
+            "from Task t where t.tenant = :tenant and t.id > :afterId order by t.id")
+    List<TaskView> findViewsAfter(@Param("tenant") String tenant, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new mezyk.mateusz.app.tasks.core.data.model.TaskView(t.id, t.title, t.description, t.completed) " +
+            "from Task t where t.tenant = :tenant and t.completed = false and t.id > :afterId order by t.id")
+    List<TaskView> findActiveViewsAfter(@Param("tenant") String tenant, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select new mezyk.mateusz.app.tasks.core.data.model.TaskView(t.id, t.title, t.description, t.completed) " +
+            "from Task t where t.tenant = :tenant and t.completed = true and t.id > :afterId order by t.id")
+    List<TaskView> findCompletedViewsAfter(@Param("tenant") String tenant, @Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select t.completed as completed, count(t) as count from Task t where t.tenant = :tenant group by t.completed")
+    List<TaskStatusCount> countByStatus(@Param("tenant") String tenant);
+
+    @Query("select t from Task t where t.tenant = :tenant order by t.id")
+    @QueryHints({
+            @QueryHint(name = "org.hibernate.fetchSize", value = "500"),
+            @QueryHint(name = "org.hibernate.readOnly", value = "true")
+    })
+    Stream<Task> streamAllOrderedById(@Param("tenant") String tenant);
+
+    @Query("select new mezyk.mateusz.app.tasks.core.data.model.TaskView(t.id, t.title, t.description, t.completed) " +
+            "from Task t where t.tenant = :tenant and t.id in :ids")
+    List<TaskView> findViewsByIds(@Param("tenant") String tenant, @Param("ids") Collection<Long> ids);
+
+    @Query("select new mezyk.mateusz.app.tasks.core.data.model.TaskChange(t.id, t.title, t.description, t.completed, t.revision) " +
+            "from Task t where t.tenant = :tenant and t.revision > :since and t.revision <= :until order by t.revision")
+    List<TaskChange> findChangesBetween(@Param("tenant") String tenant, @Param("since") Long since,
+                                        @Param("until") Long until, Pageable pageable);
+
+    @Query("select coalesce(max(t.revision), 0) from Task t")
+    long findMaxRevision();
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Task t set t.title = :title, t.description = :description, t.completed = :completed, " +
+            "t.version = t.version + 1, t.revision = :revision where t.tenant = :tenant and t.id = :id")
+    int updateContent(@Param("tenant") String tenant, @Param("id") Long id, @Param("title") String title,
+                      @Param("description") String description, @Param("completed") boolean completed,
+                      @Param("revision") Long revision);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Task t set t.title = :title, t.description = :description, t.completed = :completed, " +
+            "t.version = t.version + 1, t.revision = :revision " +
+            "where t.tenant = :tenant and t.id = :id and t.version = :version")
+    int updateContentIfVersion(@Param("tenant") String tenant, @Param("id") Long id, @Param("version") Long version,
+                               @Param("title") String title, @Param("description") String description,
+                               @Param("completed") boolean completed, @Param("revision") Long revision);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Task t set t.completed = :completed, t.version = t.version + 1, t.revision = :revision " +
+            "where t.tenant = :tenant and t.id = :id")
+    int updateCompleted(@Param("tenant") String tenant, @Param("id") Long id, @Param("completed") boolean completed,
+                        @Param("revision") Long revision);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Task t set t.completed = :completed, t.version = t.version + 1, t.revision = :revision " +
+            "where t.tenant = :tenant and t.id = :id and t.version = :version")
+    int updateCompletedIfVersion(@Param("tenant") String tenant, @Param("id") Long id, @Param("version") Long version,
+                                 @Param("completed") boolean completed, @Param("revision") Long revision);
+
+    @Modifying
+    @Query("delete from Task t where t.tenant = :tenant and t.id = :id")
+    int removeById(@Param("tenant") String tenant, @Param("id") Long id);
+
+    @Query("select t.id from Task t where t.tenant = :tenant and t.id in :ids")
+    List<Long> findExistingIds(@Param("tenant") String tenant, @Param("ids") Collection<Long> ids);
+
+    @Modifying
+    @Query("delete from Task t where t.tenant = :tenant and t.id in :ids")
+    int deleteAllByIds(@Param("tenant") String tenant, @Param("ids") Collection<Long> ids);
 
 }
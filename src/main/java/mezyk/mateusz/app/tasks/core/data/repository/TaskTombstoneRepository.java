@@ -0,0 +1,23 @@
+package mezyk.mateusz.app.tasks.core.data.repository;
+
+import mezyk.mateusz.app.tasks.core.data.model.TaskTombstone;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface TaskTombstoneRepository extends JpaRepository<TaskTombstone, Long> {
+
+    @Query("select t from TaskTombstone t where t.tenant = :tenant and t.revision > :since and t.revision <= :until " +
+            "order by t.revision")
+    List<TaskTombstone> findBetween(@Param("tenant") String tenant, @Param("since") Long since, @Param("until") Long until,
+                                    Pageable pageable);
+
+    @Query("select coalesce(max(t.revision), 0) from TaskTombstone t")
+    long findMaxRevision();
+
+}
@@ -0,0 +1,154 @@
+package mezyk.mateusz.app.tasks.core.data.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+public class TaskSearchIndex {
+
+    public static final double PREFIX_MATCH_WEIGHT = 0.5;
+    public static final int MIN_PREFIX_LENGTH = 3;
+    public static final int MAX_PREFIX_EXPANSIONS = 128;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Comparator<Map.Entry<Long, Double>> RANKING =
+            Map.Entry.<Long, Double>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    private final ConcurrentSkipListMap<String, Map<Long, Integer>> postings = new ConcurrentSkipListMap<>();
+    private final Map<Long, String[]> documents = new ConcurrentHashMap<>();
+
+    public synchronized void index(Long id, String... fields) {
+        remove(id);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String field : fields) {
+            for (String term : tokenize(field)) {
+                frequencies.merge(term, 1, Integer::sum);
+            }
+        }
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            postings.computeIfAbsent(frequency.getKey(), term -> new ConcurrentHashMap<>()).put(id, frequency.getValue());
+        }
+        documents.put(id, frequencies.keySet().toArray(new String[0]));
+    }
+
+    public synchronized void remove(Long id) {
+        String[] terms = documents.remove(id);
+        if (terms == null) {
+            return;
+        }
+        for (String term : terms) {
+            postings.computeIfPresent(term, (key, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    public synchronized void clear() {
+        postings.clear();
+        documents.clear();
+    }
+
+    public int size() {
+        return documents.size();
+    }
+
+    public List<Long> search(String query, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(tokenize(query));
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+        int documentCount = Math.max(documents.size(), 1);
+        Map<Long, Double> scores = null;
+        for (String term : terms) {
+            Map<Long, Double> matches = match(term, documentCount);
+            scores = scores == null ? matches : intersect(scores, matches);
+            if (scores.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+        return top(scores, offset, limit);
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        String normalized = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD);
+        normalized = DIACRITICS.matcher(normalized).replaceAll("");
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private Map<Long, Double> match(String prefix, int documentCount) {
+        Map<Long, Double> matches = new HashMap<>();
+        Map<String, Map<Long, Integer>> expansions = prefix.length() < MIN_PREFIX_LENGTH
+                ? postings.subMap(prefix, true, prefix, true)
+                : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        int expanded = 0;
+        for (Map.Entry<String, Map<Long, Integer>> posting : expansions.entrySet()) {
+            if (expanded++ == MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            Map<Long, Integer> ids = posting.getValue();
+            double idf = Math.log(1 + (double) documentCount / ids.size());
+            double weight = posting.getKey().length() == prefix.length() ? idf : idf * PREFIX_MATCH_WEIGHT;
+            for (Map.Entry<Long, Integer> hit : ids.entrySet()) {
+                matches.merge(hit.getKey(), hit.getValue() * weight, Math::max);
+            }
+        }
+        return matches;
+    }
+
+    private static Map<Long, Double> intersect(Map<Long, Double> left, Map<Long, Double> right) {
+        Map<Long, Double> smaller = left.size() <= right.size() ? left : right;
+        Map<Long, Double> larger = smaller == left ? right : left;
+        Map<Long, Double> both = new HashMap<>();
+        for (Map.Entry<Long, Double> score : smaller.entrySet()) {
+            Double other = larger.get(score.getKey());
+            if (other != null) {
+                both.put(score.getKey(), score.getValue() + other);
+            }
+        }
+        return both;
+    }
+
+    private static List<Long> top(Map<Long, Double> scores, int offset, int limit) {
+        int wanted = offset + limit;
+        if (offset >= scores.size()) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(Math.min(wanted, scores.size()), RANKING.reversed());
+        for (Map.Entry<Long, Double> score : scores.entrySet()) {
+            best.add(score);
+            if (best.size() > wanted) {
+                best.poll();
+            }
+        }
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(best);
+        ranked.sort(RANKING);
+        List<Long> ids = new ArrayList<>(Math.min(limit, ranked.size() - offset));
+        for (int i = offset; i < ranked.size(); i++) {
+            ids.add(ranked.get(i).getKey());
+        }
+        return ids;
+    }
+
+}
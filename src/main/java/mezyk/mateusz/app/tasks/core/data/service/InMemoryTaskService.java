@@ -0,0 +1,309 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskDataViolationException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskVersionConflictException;
+import mezyk.mateusz.app.tasks.core.data.memory.TaskFilter;
+import mezyk.mateusz.app.tasks.core.data.memory.TaskTable;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl.*;
+
+@Service
+@ConditionalOnProperty(name = InMemoryTaskService.STORAGE_PROPERTY, havingValue = "memory")
+public class InMemoryTaskService implements TaskService {
+
+    public static final String STORAGE_PROPERTY = "tasks.storage";
+
+    private final TaskTable taskTable = new TaskTable();
+    private final ApplicationEventPublisher eventPublisher;
+
+    public InMemoryTaskService(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public Task saveTask(Task task) {
+        if (task.getId() == null || !taskTable.contains(task.getId())) {
+            taskTable.insertAll(Collections.singletonList(task));
+        } else {
+            long expectedVersion = task.getVersion() == null ? TaskTable.ANY_VERSION : task.getVersion();
+            long version = taskTable.update(task.getId(), expectedVersion, task.getTitle(), task.getDescription(),
+                    task.getCompleted(), true);
+            if (version == TaskTable.CONFLICT) {
+                throw new ObjectOptimisticLockingFailureException(Task.class, task.getId());
+            }
+            if (version == TaskTable.MISSING) {
+                taskTable.insertAll(Collections.singletonList(task));
+            } else {
+                task.setVersion(version);
+            }
+        }
+        eventPublisher.publishEvent(TaskChangedEvent.saved(task));
+        return task;
+    }
+
+    @Override
+    public List<Task> saveTasks(List<Task> tasks) {
+        checkBulkSize(tasks);
+        taskTable.insertAll(tasks);
+        tasks.forEach(task -> eventPublisher.publishEvent(TaskChangedEvent.saved(task)));
+        return tasks;
+    }
+
+    @Override
+    public Task updateTask(Task task, Long id) {
+        return updateTask(task, id, null);
+    }
+
+    @Override
+    public Task updateTask(Task task, Long id, Long expectedVersion) {
+        if (id == null || task.getId() == null) {
+            throw new TaskNotFoundException(NO_ID_EXCEPTION_MESSAGE);
+        }
+        if (!id.equals(task.getId())) {
+            throw new TaskDataViolationException(
+                    String.format("The id of resource object can't be changed. Path variable id = %d while resource object id = %d",
+                            id, task.getId()));
+        }
+        long version = taskTable.update(id, versionOrAny(expectedVersion), task.getTitle(), task.getDescription(),
+                task.getCompleted(), true);
+        checkUpdated(version, id, expectedVersion);
+        task.setVersion(version);
+        eventPublisher.publishEvent(TaskChangedEvent.saved(task));
+        return task;
+    }
+
+    @Override
+    public List<Task> updateTasks(List<Task> tasks) {
+        checkBulkSize(tasks);
+        for (Task task : tasks) {
+            if (task.getId() == null) {
+                throw new TaskNotFoundException(NO_ID_EXCEPTION_MESSAGE);
+            }
+        }
+        long missingId = taskTable.updateAll(tasks);
+        if (missingId != 0) {
+            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + missingId);
+        }
+        tasks.forEach(task -> eventPublisher.publishEvent(TaskChangedEvent.saved(task)));
+        return tasks;
+    }
+
+    @Override
+    public Task markTaskCompleted(Long id) {
+        return markTask(id, null, true);
+    }
+
+    @Override
+    public Task markTaskCompleted(Long id, Long expectedVersion) {
+        return markTask(id, expectedVersion, true);
+    }
+
+    @Override
+    public Task markTaskActive(Long id) {
+        return markTask(id, null, false);
+    }
+
+    @Override
+    public Task markTaskActive(Long id, Long expectedVersion) {
+        return markTask(id, expectedVersion, false);
+    }
+
+    @Override
+    public Task findTaskById(Long id) {
+        if (id == null) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        Task task = taskTable.find(id);
+        if (task == null) {
+            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + id);
+        }
+        return task;
+    }
+
+    @Override
+    public List<Task> findAllTasks() {
+        return taskTable.tasks(TaskFilter.ALL);
+    }
+
+    @Override
+    public List<Task> findAllActiveTasks() {
+        return taskTable.tasks(TaskFilter.ACTIVE);
+    }
+
+    @Override
+    public List<Task> findAllCompletedTasks() {
+        return taskTable.tasks(TaskFilter.COMPLETED);
+    }
+
+    @Override
+    public List<TaskView> findTasksAfter(Long afterId, int limit) {
+        return taskTable.viewsAfter(pageStart(afterId), TaskFilter.ALL, checkLimit(limit));
+    }
+
+    @Override
+    public List<TaskView> findActiveTasksAfter(Long afterId, int limit) {
+        return taskTable.viewsAfter(pageStart(afterId), TaskFilter.ACTIVE, checkLimit(limit));
+    }
+
+    @Override
+    public List<TaskView> findCompletedTasksAfter(Long afterId, int limit) {
+        return taskTable.viewsAfter(pageStart(afterId), TaskFilter.COMPLETED, checkLimit(limit));
+    }
+
+    @Override
+    public List<TaskView> findTaskViewsByIds(Collection<Long> ids) {
+        return taskTable.views(ids);
+    }
+
+    @Override
+    public List<TaskView> queryTasks(TaskQuery query) {
+        return taskTable.query(TaskQueryGuard.check(query));
+    }
+
+    @Override
+    public TaskChanges findChangesSince(long since, int limit) {
+        return taskTable.changesAfter(since, checkLimit(limit));
+    }
+
+    @Override
+    public List<TaskStatusCount> countTasksByStatus() {
+        List<TaskStatusCount> counts = new ArrayList<>(2);
+        int active = taskTable.count(TaskFilter.ACTIVE);
+        int completed = taskTable.count(TaskFilter.COMPLETED);
+        if (active > 0) {
+            counts.add(new StatusCount(false, active));
+        }
+        if (completed > 0) {
+            counts.add(new StatusCount(true, completed));
+        }
+        return counts;
+    }
+
+    @Override
+    public List<String> findTenants() {
+        return Collections.singletonList(TenantContext.DEFAULT_TENANT);
+    }
+
+    @Override
+    public void exportTasks(Consumer<Task> consumer) {
+        long afterId = FIRST_PAGE_AFTER_ID;
+        List<Task> chunk;
+        do {
+            chunk = taskTable.tasksAfter(afterId, EXPORT_CLEAR_INTERVAL);
+            chunk.forEach(consumer);
+            if (!chunk.isEmpty()) {
+                afterId = chunk.get(chunk.size() - 1).getId();
+            }
+        } while (chunk.size() == EXPORT_CLEAR_INTERVAL);
+    }
+
+    @Override
+    public void deleteTaskById(Long id) {
+        if (id == null) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        if (!taskTable.delete(id)) {
+            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + id);
+        }
+        eventPublisher.publishEvent(TaskChangedEvent.deleted(TenantContext.DEFAULT_TENANT, id));
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Long> ids) {
+        checkBulkSize(ids);
+        Set<Long> uniqueIds = new LinkedHashSet<>(ids);
+        if (uniqueIds.contains(null)) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        long missingId = taskTable.deleteAll(uniqueIds);
+        if (missingId != 0) {
+            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + missingId);
+        }
+        uniqueIds.forEach(id -> eventPublisher.publishEvent(TaskChangedEvent.deleted(TenantContext.DEFAULT_TENANT, id)));
+    }
+
+    private Task markTask(Long id, Long expectedVersion, boolean completed) {
+        if (id == null) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        long version = taskTable.update(id, versionOrAny(expectedVersion), null, null, completed, false);
+        checkUpdated(version, id, expectedVersion);
+        Task task = findTaskById(id);
+        eventPublisher.publishEvent(TaskChangedEvent.saved(task));
+        return task;
+    }
+
+    private static void checkUpdated(long version, Long id, Long expectedVersion) {
+        if (version == TaskTable.CONFLICT) {
+            throw new TaskVersionConflictException(String.format(VERSION_CONFLICT, expectedVersion, id));
+        }
+        if (version == TaskTable.MISSING) {
+            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + id);
+        }
+    }
+
+    private static long versionOrAny(Long expectedVersion) {
+        return expectedVersion == null ? TaskTable.ANY_VERSION : expectedVersion;
+    }
+
+    private static void checkBulkSize(List<?> elements) {
+        if (elements.size() > MAX_BULK_SIZE) {
+            throw new InvalidTaskRequestException(BULK_TOO_LARGE);
+        }
+    }
+
+    private static long pageStart(Long afterId) {
+        return afterId == null ? FIRST_PAGE_AFTER_ID : afterId;
+    }
+
+    private static int checkLimit(int limit) {
+        if (limit < 1) {
+            throw new InvalidTaskRequestException(INVALID_LIMIT);
+        }
+        return limit;
+    }
+
+    private static final class StatusCount implements TaskStatusCount {
+
+        private final Boolean completed;
+        private final Long count;
+
+        private StatusCount(Boolean completed, long count) {
+            this.completed = completed;
+            this.count = count;
+        }
+
+        @Override
+        public Boolean getCompleted() {
+            return completed;
+        }
+
+        @Override
+        public Long getCount() {
+            return count;
+        }
+
+    }
+
+}
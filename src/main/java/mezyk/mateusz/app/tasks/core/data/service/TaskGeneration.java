@@ -0,0 +1,32 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+@Component
+public class TaskGeneration {
+
+    private final long epoch = System.currentTimeMillis();
+    private final AtomicLong generation = new AtomicLong();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        generation.incrementAndGet();
+    }
+
+    public long advance() {
+        return generation.incrementAndGet();
+    }
+
+    public long current() {
+        return generation.get();
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+}
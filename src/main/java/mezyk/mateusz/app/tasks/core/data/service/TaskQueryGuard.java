@@ -0,0 +1,35 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+
+import static mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl.INVALID_LIMIT;
+
+public final class TaskQueryGuard {
+
+    public static final String UNSUPPORTED_SORT = "Tasks can only be sorted by id or title, got: ";
+    public static final String TITLE_PREFIX_NEEDS_TITLE_SORT = "Filtering by title prefix requires sort=title";
+    public static final String ID_RANGE_NEEDS_ID_SORT = "Filtering by id range requires sort=id";
+
+    private TaskQueryGuard() {
+    }
+
+    public static TaskQuery check(TaskQuery query) {
+        if (query.getLimit() < 1) {
+            throw new InvalidTaskRequestException(INVALID_LIMIT);
+        }
+        if (TaskQuery.SORT_BY_ID.equals(query.getSortProperty())) {
+            if (query.getTitlePrefix() != null) {
+                throw new InvalidTaskRequestException(TITLE_PREFIX_NEEDS_TITLE_SORT);
+            }
+        } else if (TaskQuery.SORT_BY_TITLE.equals(query.getSortProperty())) {
+            if (query.getMinId() != null || query.getMaxId() != null) {
+                throw new InvalidTaskRequestException(ID_RANGE_NEEDS_ID_SORT);
+            }
+        } else {
+            throw new InvalidTaskRequestException(UNSUPPORTED_SORT + query.getSortProperty());
+        }
+        return query;
+    }
+
+}
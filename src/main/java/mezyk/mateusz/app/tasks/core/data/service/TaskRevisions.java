@@ -0,0 +1,84 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskTombstoneRepository;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.util.List;
+import java.util.TreeSet;
+
+@Component
+@ConditionalOnExpression("'${tasks.storage:jpa}' != 'memory'")
+public class TaskRevisions {
+
+    private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository taskTombstoneRepository;
+    private final TenantShards tenantShards;
+    private final boolean durableTombstones;
+    private final TreeSet<Long> inFlight = new TreeSet<>();
+    private long lastRevision;
+    private long horizon;
+
+    public TaskRevisions(TaskRepository taskRepository, TaskTombstoneRepository taskTombstoneRepository,
+                         TenantShards tenantShards, @Value("${tasks.storage:jpa}") String storage) {
+        this.taskRepository = taskRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
+        this.tenantShards = tenantShards;
+        this.durableTombstones = !"journal".equals(storage);
+    }
+
+    @PostConstruct
+    public synchronized void init() {
+        long lastTaskRevision = max(tenantShards.onEachShard(taskRepository::findMaxRevision));
+        long lastTombstoneRevision = max(tenantShards.onEachShard(taskTombstoneRepository::findMaxRevision));
+        lastRevision = Math.max(lastTaskRevision, lastTombstoneRevision);
+        horizon = durableTombstones ? 0 : lastTaskRevision;
+    }
+
+    public long reserve(int count) {
+        long first;
+        synchronized (this) {
+            first = lastRevision + 1;
+            lastRevision += count;
+            inFlight.add(first);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    release(first);
+                }
+            });
+        } else {
+            release(first);
+        }
+        return first;
+    }
+
+    public synchronized long stableRevision() {
+        return inFlight.isEmpty() ? lastRevision : inFlight.first() - 1;
+    }
+
+    public synchronized long getHorizon() {
+        return horizon;
+    }
+
+    private synchronized void release(long first) {
+        inFlight.remove(first);
+    }
+
+    private static long max(List<Long> revisions) {
+        long max = 0;
+        for (long revision : revisions) {
+            max = Math.max(max, revision);
+        }
+        return max;
+    }
+
+}
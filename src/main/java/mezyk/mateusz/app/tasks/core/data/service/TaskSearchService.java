@@ -0,0 +1,13 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+
+import java.util.List;
+
+public interface TaskSearchService {
+
+    List<TaskView> searchTasks(String query, int offset, int limit);
+
+    void rebuildIndex();
+
+}
@@ -0,0 +1,126 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.search.TaskSearchIndex;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+@Service
+public class TaskSearchServiceImpl implements TaskSearchService {
+
+    public static final String INVALID_OFFSET = "Search offset can't be negative";
+
+    private final TaskService taskService;
+    private volatile Map<String, TaskSearchIndex> indexes = new ConcurrentHashMap<>();
+    private Map<String, TaskSearchIndex> rebuilding;
+    private Map<String, Set<Long>> changedWhileRebuilding;
+
+    public TaskSearchServiceImpl(TaskService taskService) {
+        this.taskService = taskService;
+    }
+
+    @Override
+    public List<TaskView> searchTasks(String query, int offset, int limit) {
+        if (offset < 0) {
+            throw new InvalidTaskRequestException(INVALID_OFFSET);
+        }
+        if (limit < 1) {
+            throw new InvalidTaskRequestException(TaskServiceImpl.INVALID_LIMIT);
+        }
+        TaskSearchIndex taskSearchIndex = indexes.get(TenantContext.current());
+        if (taskSearchIndex == null) {
+            return Collections.emptyList();
+        }
+        List<TaskView> ranked = new ArrayList<>(limit);
+        int position = offset;
+        while (ranked.size() < limit) {
+            int wanted = limit - ranked.size();
+            List<Long> ids = taskSearchIndex.search(query, position, wanted);
+            if (ids.isEmpty()) {
+                break;
+            }
+            Map<Long, TaskView> views = taskService.findTaskViewsByIds(ids).stream()
+                    .collect(Collectors.toMap(TaskView::getId, Function.identity()));
+            for (Long id : ids) {
+                TaskView view = views.get(id);
+                if (view != null) {
+                    ranked.add(view);
+                    position++;
+                } else {
+                    taskSearchIndex.remove(id);
+                }
+            }
+            if (ids.size() < wanted) {
+                break;
+            }
+        }
+        return ranked;
+    }
+
+    @Override
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIndex() {
+        Map<String, TaskSearchIndex> rebuilt = new ConcurrentHashMap<>();
+        synchronized (this) {
+            rebuilding = rebuilt;
+            changedWhileRebuilding = new ConcurrentHashMap<>();
+        }
+        try {
+            for (String tenant : taskService.findTenants()) {
+                TaskSearchIndex taskSearchIndex = rebuilt.computeIfAbsent(tenant, key -> new TaskSearchIndex());
+                TenantContext.run(tenant, () -> taskService.exportTasks(task -> {
+                    synchronized (this) {
+                        if (!changedWhileRebuilding.getOrDefault(tenant, Collections.emptySet()).contains(task.getId())) {
+                            taskSearchIndex.index(task.getId(), task.getTitle(), task.getDescription());
+                        }
+                    }
+                }));
+            }
+            synchronized (this) {
+                indexes = rebuilt;
+            }
+        } finally {
+            synchronized (this) {
+                rebuilding = null;
+                changedWhileRebuilding = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onTaskChanged(TaskChangedEvent event) {
+        apply(indexes, event);
+        if (rebuilding != null) {
+            apply(rebuilding, event);
+            changedWhileRebuilding.computeIfAbsent(event.getTenant(), tenant -> new HashSet<>()).add(event.getId());
+        }
+    }
+
+    private static void apply(Map<String, TaskSearchIndex> indexes, TaskChangedEvent event) {
+        if (event.isDeleted()) {
+            TaskSearchIndex taskSearchIndex = indexes.get(event.getTenant());
+            if (taskSearchIndex != null) {
+                taskSearchIndex.remove(event.getId());
+            }
+        } else {
+            indexes.computeIfAbsent(event.getTenant(), key -> new TaskSearchIndex())
+                    .index(event.getId(), event.getTitle(), event.getDescription());
+        }
+    }
+
+}
@@ -1,19 +1,35 @@
 package mezyk.mateusz.app.tasks.core.data.service;
 
 import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface TaskService {
 
     Task saveTask(Task task);
 
+    List<Task> saveTasks(List<Task> tasks);
+
     Task updateTask(Task task, Long id);
 
+    Task updateTask(Task task, Long id, Long expectedVersion);
+
+    List<Task> updateTasks(List<Task> tasks);
+
     Task markTaskCompleted(Long id);
 
+    Task markTaskCompleted(Long id, Long expectedVersion);
+
     Task markTaskActive(Long id);
 
+    Task markTaskActive(Long id, Long expectedVersion);
+
     Task findTaskById(Long id);
 
     List<Task> findAllTasks();
@@ -22,6 +38,26 @@ public interface TaskService {
 
     List<Task> findAllCompletedTasks();
 
+    List<TaskView> findTasksAfter(Long afterId, int limit);
+
+    List<TaskView> findActiveTasksAfter(Long afterId, int limit);
+
+    List<TaskView> findCompletedTasksAfter(Long afterId, int limit);
+
+    List<TaskView> findTaskViewsByIds(Collection<Long> ids);
+
+    List<TaskView> queryTasks(TaskQuery query);
+
+    TaskChanges findChangesSince(long since, int limit);
+
+    List<TaskStatusCount> countTasksByStatus();
+
+    List<String> findTenants();
+
+    void exportTasks(Consumer<Task> consumer);
+
     void deleteTaskById(Long id);
 
+    void deleteTasksByIds(List<Long> ids);
+
 }
@@ -1,34 +1,128 @@
 package mezyk.mateusz.app.tasks.core.data.service;
 
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
 import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskDataViolationException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskVersionConflictException;
 import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChange;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskTombstone;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
 import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskTombstoneRepository;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
+@ConditionalOnExpression("'${tasks.storage:jpa}' != 'memory'")
 public class TaskServiceImpl implements TaskService {
 
+    public static final String TASK_CACHE = "tasks";
+    public static final String TASK_KEY = "T(mezyk.mateusz.app.tasks.core.data.tenant.TenantContext).cacheKey(#id)";
+    public static final String SAVED_TASK_KEY = "T(mezyk.mateusz.app.tasks.core.data.tenant.TenantContext).cacheKey(#task.id)";
     public static final String NO_ID_EXCEPTION_MESSAGE = "Task to update has no id";
     public static final String NO_TASK_EXCEPTION_MESSAGE = "There is no task with id = ";
     public static final String NULL_ID = "Can't find task with id == null";
+    public static final String VERSION_CONFLICT = "Task was modified concurrently, expected version = %d for task with id = %d";
+    public static final String INVALID_LIMIT = "Page limit must be greater than 0";
+    public static final long FIRST_PAGE_AFTER_ID = 0L;
+    public static final int EXPORT_CLEAR_INTERVAL = 1000;
+    public static final int BULK_CHUNK_SIZE = 1000;
+    public static final int MAX_BULK_SIZE = 100_000;
+    public static final String BULK_TOO_LARGE = "Bulk request can't contain more than " + MAX_BULK_SIZE + " elements";
 
     private final TaskRepository taskRepository;
+    private final TaskTombstoneRepository taskTombstoneRepository;
+    private final TaskRevisions taskRevisions;
+    private final EntityManager entityManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TenantShards tenantShards;
 
-    public TaskServiceImpl(TaskRepository taskRepository) {
+    public TaskServiceImpl(TaskRepository taskRepository, TaskTombstoneRepository taskTombstoneRepository,
+                           TaskRevisions taskRevisions, EntityManager entityManager,
+                           ApplicationEventPublisher eventPublisher, TenantShards tenantShards) {
         this.taskRepository = taskRepository;
+        this.taskTombstoneRepository = taskTombstoneRepository;
+        this.taskRevisions = taskRevisions;
+        this.entityManager = entityManager;
+        this.eventPublisher = eventPublisher;
+        this.tenantShards = tenantShards;
     }
 
     @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = SAVED_TASK_KEY, condition = "#task.id != null")
+    @Transactional
     public Task saveTask(Task task) {
-        return taskRepository.save(task);
+        String tenant = TenantContext.current();
+        if (task.getId() != null && task.getVersion() != null
+                && !taskRepository.existsByTenantAndId(tenant, task.getId())) {
+            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + task.getId());
+        }
+        task.setTenant(tenant);
+        task.setRevision(taskRevisions.reserve(1));
+        Task savedTask = taskRepository.save(task);
+        eventPublisher.publishEvent(TaskChangedEvent.saved(savedTask));
+        return savedTask;
+    }
+
+    @Override
+    @Transactional
+    public List<Task> saveTasks(List<Task> tasks) {
+        checkBulkSize(tasks);
+        String tenant = TenantContext.current();
+        for (int from = 0; from < tasks.size(); from += BULK_CHUNK_SIZE) {
+            List<Task> chunk = tasks.subList(from, Math.min(from + BULK_CHUNK_SIZE, tasks.size()));
+            long revision = taskRevisions.reserve(chunk.size());
+            for (Task task : chunk) {
+                task.setTenant(tenant);
+                task.setRevision(revision++);
+            }
+            taskRepository.saveAll(chunk);
+            taskRepository.flush();
+            entityManager.clear();
+            chunk.forEach(task -> eventPublisher.publishEvent(TaskChangedEvent.saved(task)));
+        }
+        return tasks;
     }
 
     @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
     public Task updateTask(Task task, Long id) {
+        return updateTask(task, id, null);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
+    public Task updateTask(Task task, Long id, Long expectedVersion) {
         if (id == null || task.getId() == null) {
             throw new TaskNotFoundException(NO_ID_EXCEPTION_MESSAGE);
         }
@@ -37,58 +131,298 @@ public class TaskServiceImpl implements TaskService {
                     String.format("The id of resource object can't be changed. Path variable id = %d while resource object id = %d",
                             id, task.getId()));
         }
-        if (!taskRepository.existsById(id)) {
-            throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + task.getId());
+        String tenant = TenantContext.current();
+        long revision = taskRevisions.reserve(1);
+        int updated = expectedVersion == null
+                ? taskRepository.updateContent(tenant, id, task.getTitle(), task.getDescription(),
+                        task.getCompleted(), revision)
+                : taskRepository.updateContentIfVersion(tenant, id, expectedVersion, task.getTitle(),
+                        task.getDescription(), task.getCompleted(), revision);
+        if (updated == 0) {
+            throw missingOrConflicting(tenant, id, expectedVersion);
+        }
+        Task updatedTask = expectedVersion == null ? findTask(id) : task;
+        updatedTask.setTenant(tenant);
+        updatedTask.setRevision(revision);
+        if (expectedVersion != null) {
+            updatedTask.setVersion(expectedVersion + 1);
         }
+        eventPublisher.publishEvent(TaskChangedEvent.saved(updatedTask));
+        return updatedTask;
+    }
 
-        return saveTask(task);
+    @Override
+    @CacheEvict(cacheNames = TASK_CACHE, allEntries = true)
+    @Transactional
+    public List<Task> updateTasks(List<Task> tasks) {
+        checkBulkSize(tasks);
+        String tenant = TenantContext.current();
+        List<Task> updatedTasks = new ArrayList<>(tasks.size());
+        for (int from = 0; from < tasks.size(); from += BULK_CHUNK_SIZE) {
+            List<Task> chunk = tasks.subList(from, Math.min(from + BULK_CHUNK_SIZE, tasks.size()));
+            List<Long> ids = new ArrayList<>(chunk.size());
+            for (Task task : chunk) {
+                if (task.getId() == null) {
+                    throw new TaskNotFoundException(NO_ID_EXCEPTION_MESSAGE);
+                }
+                ids.add(task.getId());
+            }
+            Map<Long, Task> existingTasks = taskRepository.findAllByTenantAndIdIn(tenant, ids).stream()
+                    .collect(Collectors.toMap(Task::getId, Function.identity()));
+            long revision = taskRevisions.reserve(chunk.size());
+            for (Task task : chunk) {
+                Task existingTask = existingTasks.get(task.getId());
+                if (existingTask == null) {
+                    throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + task.getId());
+                }
+                existingTask.setTitle(task.getTitle());
+                existingTask.setDescription(task.getDescription());
+                existingTask.setCompleted(task.getCompleted());
+                existingTask.setRevision(revision++);
+                eventPublisher.publishEvent(TaskChangedEvent.saved(existingTask));
+                updatedTasks.add(existingTask);
+            }
+            taskRepository.saveAll(existingTasks.values());
+            taskRepository.flush();
+            entityManager.clear();
+        }
+        return updatedTasks;
     }
 
     @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
     public Task markTaskCompleted(Long id) {
-        if (id == null) {
-            throw new InvalidTaskRequestException(NULL_ID);
-        }
-        Task task = findTaskById(id);
-        task.setCompleted(true);
-        return saveTask(task);
+        return markTask(id, null, true);
     }
 
     @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
+    public Task markTaskCompleted(Long id, Long expectedVersion) {
+        return markTask(id, expectedVersion, true);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
     public Task markTaskActive(Long id) {
-        if (id == null) {
-            throw new InvalidTaskRequestException(NULL_ID);
-        }
-        Task task = findTaskById(id);
-        task.setCompleted(false);
-        return saveTask(task);
+        return markTask(id, null, false);
+    }
+
+    @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
+    public Task markTaskActive(Long id, Long expectedVersion) {
+        return markTask(id, expectedVersion, false);
     }
 
     @Override
+    @Cacheable(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
     public Task findTaskById(Long id) {
-        return taskRepository.findById(id).orElseThrow(() -> new TaskNotFoundException("There is no task with id = " + id));
+        return copy(findTask(id));
     }
 
     @Override
     public List<Task> findAllTasks() {
-        return taskRepository.findAll();
+        return taskRepository.findAllByTenant(TenantContext.current());
     }
 
     @Override
     public List<Task> findAllActiveTasks() {
-        return taskRepository.findAllByCompletedFalse();
+        return taskRepository.findAllByTenantAndCompletedFalse(TenantContext.current());
     }
 
     @Override
     public List<Task> findAllCompletedTasks() {
-        return taskRepository.findAllByCompletedTrue();
+        return taskRepository.findAllByTenantAndCompletedTrue(TenantContext.current());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskView> findTasksAfter(Long afterId, int limit) {
+        return taskRepository.findViewsAfter(TenantContext.current(), pageStart(afterId), firstPage(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskView> findActiveTasksAfter(Long afterId, int limit) {
+        return taskRepository.findActiveViewsAfter(TenantContext.current(), pageStart(afterId), firstPage(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskView> findCompletedTasksAfter(Long afterId, int limit) {
+        return taskRepository.findCompletedViewsAfter(TenantContext.current(), pageStart(afterId), firstPage(limit));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskView> findTaskViewsByIds(Collection<Long> ids) {
+        return taskRepository.findViewsByIds(TenantContext.current(), ids);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<TaskView> queryTasks(TaskQuery query) {
+        return taskRepository.findViews(TenantContext.current(), TaskQueryGuard.check(query));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TaskChanges findChangesSince(long since, int limit) {
+        Pageable page = firstPage(limit);
+        long until = taskRevisions.stableRevision();
+        if (since < taskRevisions.getHorizon() || since > until) {
+            return TaskChanges.reset(until);
+        }
+        String tenant = TenantContext.current();
+        List<TaskChange> changes = taskRepository.findChangesBetween(tenant, since, until, page);
+        List<TaskTombstone> tombstones = taskTombstoneRepository.findBetween(tenant, since, until, page);
+        List<TaskChange> changed = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        int changeIndex = 0;
+        int tombstoneIndex = 0;
+        long revision = until;
+        while (changed.size() + deleted.size() < limit
+                && (changeIndex < changes.size() || tombstoneIndex < tombstones.size())) {
+            if (tombstoneIndex == tombstones.size() || (changeIndex < changes.size()
+                    && changes.get(changeIndex).getRevision() < tombstones.get(tombstoneIndex).getRevision())) {
+                TaskChange change = changes.get(changeIndex++);
+                changed.add(change);
+                revision = change.getRevision();
+            } else {
+                TaskTombstone tombstone = tombstones.get(tombstoneIndex++);
+                deleted.add(tombstone.getId());
+                revision = tombstone.getRevision();
+            }
+        }
+        return new TaskChanges(changed, deleted, changed.size() + deleted.size() < limit ? until : revision);
+    }
+
+    @Override
+    public List<TaskStatusCount> countTasksByStatus() {
+        return taskRepository.countByStatus(TenantContext.current());
+    }
+
+    @Override
+    public List<String> findTenants() {
+        Set<String> tenants = new TreeSet<>();
+        tenantShards.onEachShard(taskRepository::findTenants).forEach(tenants::addAll);
+        return new ArrayList<>(tenants);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportTasks(Consumer<Task> consumer) {
+        try (Stream<Task> tasks = taskRepository.streamAllOrderedById(TenantContext.current())) {
+            Iterator<Task> iterator = tasks.iterator();
+            int exported = 0;
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++exported % EXPORT_CLEAR_INTERVAL == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
     }
 
     @Override
+    @CacheEvict(cacheNames = TASK_CACHE, key = TASK_KEY, condition = "#id != null")
+    @Transactional
     public void deleteTaskById(Long id) {
-        if (!taskRepository.existsById(id)) {
+        if (id == null) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        String tenant = TenantContext.current();
+        if (taskRepository.removeById(tenant, id) == 0) {
             throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + id);
         }
-        taskRepository.deleteById(id);
+        taskTombstoneRepository.save(new TaskTombstone(id, tenant, taskRevisions.reserve(1)));
+        eventPublisher.publishEvent(TaskChangedEvent.deleted(tenant, id));
+    }
+
+    @Override
+    @CacheEvict(cacheNames = TASK_CACHE, allEntries = true)
+    @Transactional
+    public void deleteTasksByIds(List<Long> ids) {
+        checkBulkSize(ids);
+        List<Long> uniqueIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (uniqueIds.contains(null)) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        String tenant = TenantContext.current();
+        for (int from = 0; from < uniqueIds.size(); from += BULK_CHUNK_SIZE) {
+            Set<Long> chunk = new HashSet<>(uniqueIds.subList(from, Math.min(from + BULK_CHUNK_SIZE, uniqueIds.size())));
+            List<Long> existingIds = taskRepository.findExistingIds(tenant, chunk);
+            if (existingIds.size() != chunk.size()) {
+                chunk.removeAll(existingIds);
+                throw new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + chunk.iterator().next());
+            }
+            taskRepository.deleteAllByIds(tenant, chunk);
+            long revision = taskRevisions.reserve(chunk.size());
+            List<TaskTombstone> tombstones = new ArrayList<>(chunk.size());
+            for (Long id : chunk) {
+                tombstones.add(new TaskTombstone(id, tenant, revision++));
+            }
+            taskTombstoneRepository.saveAll(tombstones);
+            chunk.forEach(id -> eventPublisher.publishEvent(TaskChangedEvent.deleted(tenant, id)));
+        }
+    }
+
+    private Task markTask(Long id, Long expectedVersion, boolean completed) {
+        if (id == null) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        String tenant = TenantContext.current();
+        long revision = taskRevisions.reserve(1);
+        int updated = expectedVersion == null
+                ? taskRepository.updateCompleted(tenant, id, completed, revision)
+                : taskRepository.updateCompletedIfVersion(tenant, id, expectedVersion, completed, revision);
+        if (updated == 0) {
+            throw missingOrConflicting(tenant, id, expectedVersion);
+        }
+        Task task = findTask(id);
+        eventPublisher.publishEvent(TaskChangedEvent.saved(task));
+        return task;
+    }
+
+    private Task findTask(Long id) {
+        return taskRepository.findByTenantAndId(TenantContext.current(), id)
+                .orElseThrow(() -> new TaskNotFoundException("There is no task with id = " + id));
+    }
+
+    private RuntimeException missingOrConflicting(String tenant, Long id, Long expectedVersion) {
+        if (expectedVersion != null && taskRepository.existsByTenantAndId(tenant, id)) {
+            return new TaskVersionConflictException(String.format(VERSION_CONFLICT, expectedVersion, id));
+        }
+        return new TaskNotFoundException(NO_TASK_EXCEPTION_MESSAGE + id);
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task(task.getTitle(), task.getDescription());
+        copy.setId(task.getId());
+        copy.setTenant(task.getTenant());
+        copy.setCompleted(task.getCompleted());
+        copy.setVersion(task.getVersion());
+        copy.setRevision(task.getRevision());
+        return copy;
+    }
+
+    private static void checkBulkSize(List<?> elements) {
+        if (elements.size() > MAX_BULK_SIZE) {
+            throw new InvalidTaskRequestException(BULK_TOO_LARGE);
+        }
+    }
+
+    private static Long pageStart(Long afterId) {
+        return afterId == null ? FIRST_PAGE_AFTER_ID : afterId;
+    }
+
+    private static Pageable firstPage(int limit) {
+        if (limit < 1) {
+            throw new InvalidTaskRequestException(INVALID_LIMIT);
+        }
+        return PageRequest.of(0, limit);
     }
 }
@@ -0,0 +1,723 @@
+package mezyk.mateusz.app.tasks.core.data.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskQueueFullException;
+import mezyk.mateusz.app.tasks.core.data.journal.JournalRecord;
+import mezyk.mateusz.app.tasks.core.data.journal.TaskJournal;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Priority;
+import javax.persistence.EntityManagerFactory;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl.NULL_ID;
+
+@Service
+@Priority(1)
+@ConditionalOnExpression("${tasks.write-behind.enabled:false} and '${tasks.storage:jpa}' == 'jpa'")
+public class WriteBehindTaskService implements TaskService {
+
+    public static final String QUEUE_FULL = "Write-behind queue is full, retry later";
+    public static final String QUEUE_DEPTH = "tasks.queue.depth";
+    public static final String QUEUE_FLUSH = "tasks.queue.flush";
+    public static final String QUEUE_BATCH = "tasks.queue.batch";
+    public static final String QUEUE_REJECTED = "tasks.queue.rejected";
+    public static final String QUEUE_DROPPED = "tasks.queue.dropped";
+    public static final String JOURNAL_FAILURE = "Can't append to the write-behind journal";
+    public static final String WRITER_FAILED = "Write-behind writer stopped after a failure";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteBehindTaskService.class);
+
+    private final TaskService delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final SessionFactoryImplementor sessionFactory;
+    private final IdentifierGenerator idGenerator;
+    private final int capacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final TaskJournal journal;
+    private final Map<Long, PendingTask> pending = new LinkedHashMap<>();
+    private final Map<Long, Integer> synchronousWrites = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition queued = lock.newCondition();
+    private final Condition flushed = lock.newCondition();
+    private final Timer flushTimer;
+    private final DistributionSummary batchSizes;
+    private final Counter rejected;
+    private final Counter dropped;
+
+    private Thread writer;
+    private volatile boolean running;
+    private volatile Throwable failure;
+    private int flushRequests;
+
+    public WriteBehindTaskService(TaskServiceImpl delegate, PlatformTransactionManager transactionManager,
+                                  EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry,
+                                  @Value("${tasks.write-behind.capacity}") int capacity,
+                                  @Value("${tasks.write-behind.batch-size}") int batchSize,
+                                  @Value("${tasks.write-behind.flush-interval-millis}") long flushIntervalMillis,
+                                  @Value("${tasks.write-behind.journal}") boolean journal,
+                                  @Value("${tasks.write-behind.journal-directory}") String journalDirectory,
+                                  @Value("${tasks.journal.fsync}") boolean fsync) {
+        this.delegate = delegate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        this.idGenerator = sessionFactory.getMetamodel().entityPersister(Task.class).getIdentifierGenerator();
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.journal = journal ? new TaskJournal(Paths.get(journalDirectory), fsync, capacity) : null;
+        Gauge.builder(QUEUE_DEPTH, this, WriteBehindTaskService::pendingCount).register(meterRegistry);
+        this.flushTimer = Timer.builder(QUEUE_FLUSH).register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder(QUEUE_BATCH).baseUnit("tasks").register(meterRegistry);
+        this.rejected = Counter.builder(QUEUE_REJECTED).register(meterRegistry);
+        this.dropped = Counter.builder(QUEUE_DROPPED).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        lock.lock();
+        try {
+            if (journal != null) {
+                journal.open(this::replay, this::snapshot);
+                advanceIdsPastPendingTasks();
+            }
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+        writer = new Thread(this::writeLoop, "task-write-behind");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public void close() throws IOException, InterruptedException {
+        lock.lock();
+        try {
+            running = false;
+            queued.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        writer.join();
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public Task saveTask(Task task) {
+        if (task.getId() != null) {
+            return writeThrough(Collections.singleton(task.getId()), () -> delegate.saveTask(task));
+        }
+        Task queuedTask = copy(task);
+        queuedTask.setTenant(TenantContext.current());
+        queuedTask.setId(nextId(queuedTask));
+        return enqueue(queuedTask, true);
+    }
+
+    @Override
+    public List<Task> saveTasks(List<Task> tasks) {
+        return delegate.saveTasks(tasks);
+    }
+
+    @Override
+    public Task updateTask(Task task, Long id) {
+        return writeThrough(Collections.singleton(id), () -> delegate.updateTask(task, id));
+    }
+
+    @Override
+    public Task updateTask(Task task, Long id, Long expectedVersion) {
+        return writeThrough(Collections.singleton(id), () -> delegate.updateTask(task, id, expectedVersion));
+    }
+
+    @Override
+    public List<Task> updateTasks(List<Task> tasks) {
+        return writeThrough(tasks.stream().map(Task::getId).collect(Collectors.toList()),
+                () -> delegate.updateTasks(tasks));
+    }
+
+    @Override
+    public Task markTaskCompleted(Long id) {
+        return enqueueCompleted(id, true);
+    }
+
+    @Override
+    public Task markTaskCompleted(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return enqueueCompleted(id, true);
+        }
+        return writeThrough(Collections.singleton(id), () -> delegate.markTaskCompleted(id, expectedVersion));
+    }
+
+    @Override
+    public Task markTaskActive(Long id) {
+        return enqueueCompleted(id, false);
+    }
+
+    @Override
+    public Task markTaskActive(Long id, Long expectedVersion) {
+        if (expectedVersion == null) {
+            return enqueueCompleted(id, false);
+        }
+        return writeThrough(Collections.singleton(id), () -> delegate.markTaskActive(id, expectedVersion));
+    }
+
+    @Override
+    public Task findTaskById(Long id) {
+        Task pendingTask;
+        boolean created;
+        lock.lock();
+        try {
+            PendingTask current = visiblePending(id);
+            if (current == null) {
+                return delegate.findTaskById(id);
+            }
+            pendingTask = copy(current.task);
+            created = current.created;
+        } finally {
+            lock.unlock();
+        }
+        if (created) {
+            return pendingTask;
+        }
+        Task storedTask = copy(delegate.findTaskById(id));
+        storedTask.setCompleted(pendingTask.getCompleted());
+        return storedTask;
+    }
+
+    @Override
+    public List<Task> findAllTasks() {
+        return delegate.findAllTasks();
+    }
+
+    @Override
+    public List<Task> findAllActiveTasks() {
+        return delegate.findAllActiveTasks();
+    }
+
+    @Override
+    public List<Task> findAllCompletedTasks() {
+        return delegate.findAllCompletedTasks();
+    }
+
+    @Override
+    public List<TaskView> findTasksAfter(Long afterId, int limit) {
+        return delegate.findTasksAfter(afterId, limit);
+    }
+
+    @Override
+    public List<TaskView> findActiveTasksAfter(Long afterId, int limit) {
+        return delegate.findActiveTasksAfter(afterId, limit);
+    }
+
+    @Override
+    public List<TaskView> findCompletedTasksAfter(Long afterId, int limit) {
+        return delegate.findCompletedTasksAfter(afterId, limit);
+    }
+
+    @Override
+    public List<TaskView> findTaskViewsByIds(Collection<Long> ids) {
+        return delegate.findTaskViewsByIds(ids);
+    }
+
+    @Override
+    public List<TaskView> queryTasks(TaskQuery query) {
+        return delegate.queryTasks(query);
+    }
+
+    @Override
+    public TaskChanges findChangesSince(long since, int limit) {
+        return delegate.findChangesSince(since, limit);
+    }
+
+    @Override
+    public List<TaskStatusCount> countTasksByStatus() {
+        return delegate.countTasksByStatus();
+    }
+
+    @Override
+    public List<String> findTenants() {
+        return delegate.findTenants();
+    }
+
+    @Override
+    public void exportTasks(Consumer<Task> consumer) {
+        delegate.exportTasks(consumer);
+    }
+
+    @Override
+    public void deleteTaskById(Long id) {
+        writeThrough(Collections.singleton(id), () -> {
+            delegate.deleteTaskById(id);
+            return null;
+        });
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Long> ids) {
+        writeThrough(ids, () -> {
+            delegate.deleteTasksByIds(ids);
+            return null;
+        });
+    }
+
+    public void awaitFlushed() {
+        lock.lock();
+        try {
+            awaitFlushed(new ArrayList<>(pending.keySet()));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int pendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Task enqueueCompleted(Long id, boolean completed) {
+        if (id == null) {
+            throw new InvalidTaskRequestException(NULL_ID);
+        }
+        Task current = pendingCopy(id);
+        if (current == null) {
+            current = copy(delegate.findTaskById(id));
+        }
+        current.setCompleted(completed);
+        return enqueue(current, false);
+    }
+
+    private Task enqueue(Task task, boolean created) {
+        PendingTask queuedTask;
+        lock.lock();
+        try {
+            checkWriter();
+            while (synchronousWrites.containsKey(task.getId())) {
+                flushed.awaitUninterruptibly();
+                checkWriter();
+            }
+            PendingTask previous = pending.get(task.getId());
+            if (previous == null && pending.size() >= capacity) {
+                rejected.increment();
+                throw new TaskQueueFullException(QUEUE_FULL);
+            }
+            if (previous != null && !created) {
+                Task merged = copy(previous.task);
+                merged.setCompleted(task.getCompleted());
+                task = merged;
+            }
+            queuedTask = new PendingTask(task, previous == null ? created : previous.created, previous);
+            if (journal != null) {
+                try {
+                    queuedTask.journaled = journal.append(Collections.singletonList(JournalRecord.save(task)));
+                } catch (IllegalStateException e) {
+                    throw new DataAccessResourceFailureException(JOURNAL_FAILURE, e);
+                }
+            }
+            pending.put(task.getId(), queuedTask);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            queuedTask.journaled.join();
+        } catch (CompletionException e) {
+            discard(queuedTask);
+            throw new DataAccessResourceFailureException(JOURNAL_FAILURE, e.getCause());
+        }
+        lock.lock();
+        try {
+            queued.signal();
+        } finally {
+            lock.unlock();
+        }
+        return copy(task);
+    }
+
+    private void discard(PendingTask queuedTask) {
+        lock.lock();
+        try {
+            Long id = queuedTask.task.getId();
+            if (pending.get(id) == queuedTask) {
+                if (queuedTask.previous == null) {
+                    pending.remove(id);
+                } else {
+                    pending.put(id, queuedTask.previous);
+                }
+            }
+            queued.signal();
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T writeThrough(Collection<Long> ids, Supplier<T> write) {
+        lock.lock();
+        try {
+            awaitFlushed(ids);
+            ids.forEach(id -> synchronousWrites.merge(id, 1, Integer::sum));
+        } finally {
+            lock.unlock();
+        }
+        try {
+            return write.get();
+        } finally {
+            lock.lock();
+            try {
+                ids.forEach(id -> synchronousWrites.computeIfPresent(id, (key, count) -> count == 1 ? null : count - 1));
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void awaitFlushed(Collection<Long> ids) {
+        lock.lock();
+        try {
+            while (containsAny(ids)) {
+                checkWriter();
+                flushRequests++;
+                queued.signal();
+                try {
+                    flushed.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for queued task writes", e);
+                } finally {
+                    flushRequests--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void checkWriter() {
+        if (failure != null) {
+            throw new DataAccessResourceFailureException(WRITER_FAILED, failure);
+        }
+    }
+
+    private boolean containsAny(Collection<Long> ids) {
+        for (Long id : ids) {
+            if (pending.containsKey(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Task pendingCopy(Long id) {
+        lock.lock();
+        try {
+            PendingTask pendingTask = visiblePending(id);
+            return pendingTask != null ? copy(pendingTask.task) : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PendingTask visiblePending(Long id) {
+        PendingTask pendingTask = pending.get(id);
+        if (pendingTask == null || !TenantContext.current().equals(pendingTask.task.getTenant())) {
+            return null;
+        }
+        return pendingTask;
+    }
+
+    private Long nextId(Task task) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return (Long) idGenerator.generate((SharedSessionContractImplementor) session, task);
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            List<PendingTask> batch;
+            while ((batch = nextBatch()) != null) {
+                long start = System.nanoTime();
+                List<PendingTask> written = write(batch);
+                flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                batchSizes.record(batch.size());
+                complete(written);
+                if (written.size() < batch.size()) {
+                    if (!running) {
+                        LOGGER.error("Stopping with {} queued task writes that couldn't be written", pendingCount());
+                        return;
+                    }
+                    sleep(Math.max(flushIntervalNanos, TimeUnit.SECONDS.toNanos(1)));
+                }
+            }
+        } catch (Throwable e) {
+            LOGGER.error(WRITER_FAILED, e);
+            lock.lock();
+            try {
+                failure = e;
+                running = false;
+                flushed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private List<PendingTask> nextBatch() {
+        lock.lock();
+        try {
+            while (readyCount() == 0) {
+                if (!running && pending.isEmpty()) {
+                    return null;
+                }
+                queued.await();
+            }
+            long remaining = flushIntervalNanos;
+            while (running && flushRequests == 0 && readyCount() < batchSize && remaining > 0) {
+                remaining = queued.awaitNanos(remaining);
+            }
+            List<PendingTask> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+            for (PendingTask pendingTask : pending.values()) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                if (pendingTask.isJournaled()) {
+                    batch.add(pendingTask);
+                }
+            }
+            return batch;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int readyCount() {
+        int ready = 0;
+        for (PendingTask pendingTask : pending.values()) {
+            if (pendingTask.isJournaled()) {
+                ready++;
+            }
+        }
+        return ready;
+    }
+
+    private List<PendingTask> write(List<PendingTask> batch) {
+        Map<String, List<PendingTask>> byTenant = batch.stream().collect(Collectors.groupingBy(
+                pendingTask -> pendingTask.task.getTenant(), LinkedHashMap::new, Collectors.toList()));
+        List<PendingTask> written = new ArrayList<>(batch.size());
+        byTenant.forEach((tenant, tenantBatch) ->
+                written.addAll(TenantContext.call(tenant, () -> writeTenant(tenantBatch))));
+        return written;
+    }
+
+    private List<PendingTask> writeTenant(List<PendingTask> batch) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch));
+            return batch;
+        } catch (RuntimeException e) {
+            LOGGER.warn("Write-behind batch of {} tasks failed, writing them one by one", batch.size(), e);
+        }
+        List<PendingTask> written = new ArrayList<>(batch.size());
+        for (PendingTask pendingTask : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> apply(Collections.singletonList(pendingTask)));
+                written.add(pendingTask);
+            } catch (TaskNotFoundException e) {
+                LOGGER.warn("Dropping queued write of task {}: {}", pendingTask.task.getId(), e.getMessage());
+                dropped.increment();
+                written.add(pendingTask);
+            } catch (RuntimeException e) {
+                LOGGER.error("Can't write queued task {}, it stays queued", pendingTask.task.getId(), e);
+            }
+        }
+        return written;
+    }
+
+    private void apply(List<PendingTask> batch) {
+        Set<Long> existingIds = existingIds(batch);
+        List<Task> created = new ArrayList<>();
+        for (PendingTask pendingTask : batch) {
+            if (pendingTask.created && !existingIds.contains(pendingTask.task.getId())) {
+                created.add(copy(pendingTask.task));
+            } else if (pendingTask.task.getCompleted()) {
+                delegate.markTaskCompleted(pendingTask.task.getId());
+            } else {
+                delegate.markTaskActive(pendingTask.task.getId());
+            }
+        }
+        if (!created.isEmpty()) {
+            delegate.saveTasks(created);
+        }
+    }
+
+    private Set<Long> existingIds(List<PendingTask> batch) {
+        List<Long> createdIds = batch.stream()
+                .filter(pendingTask -> pendingTask.created)
+                .map(pendingTask -> pendingTask.task.getId())
+                .collect(Collectors.toList());
+        if (createdIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return delegate.findTaskViewsByIds(createdIds).stream()
+                .map(TaskView::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private void complete(List<PendingTask> written) {
+        CompletableFuture<Void> journaled = null;
+        lock.lock();
+        try {
+            List<JournalRecord> records = new ArrayList<>(written.size());
+            for (PendingTask pendingTask : written) {
+                if (pending.get(pendingTask.task.getId()) == pendingTask) {
+                    records.add(JournalRecord.delete(pendingTask.task.getId()));
+                }
+            }
+            if (journal != null && !records.isEmpty()) {
+                journaled = journal.append(records);
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (journaled != null) {
+            journaled.join();
+        }
+        lock.lock();
+        try {
+            for (PendingTask pendingTask : written) {
+                Long id = pendingTask.task.getId();
+                PendingTask current = pending.get(id);
+                if (current == pendingTask) {
+                    pending.remove(id);
+                } else if (current != null) {
+                    current.created = false;
+                }
+            }
+            flushed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void replay(JournalRecord record) {
+        if (record.getType() == JournalRecord.Type.SAVE) {
+            Task task = record.toTask();
+            task.setVersion(null);
+            task.setRevision(null);
+            pending.put(task.getId(), new PendingTask(task, true, null));
+        } else if (record.getType() == JournalRecord.Type.DELETE) {
+            pending.remove(record.getId());
+        }
+    }
+
+    private void advanceIdsPastPendingTasks() {
+        Map<String, Long> lastIds = new HashMap<>();
+        pending.values().forEach(pendingTask -> lastIds.merge(pendingTask.task.getTenant(), pendingTask.task.getId(), Math::max));
+        lastIds.forEach((tenant, lastId) -> TenantContext.run(tenant, () -> {
+            Task probe = new Task(null, null);
+            probe.setTenant(tenant);
+            Long id;
+            do {
+                id = nextId(probe);
+            } while (id <= lastId);
+        }));
+    }
+
+    private TaskJournal.Snapshot snapshot() {
+        lock.lock();
+        try {
+            return new TaskJournal.Snapshot(pending.values().stream()
+                    .filter(PendingTask::isJournaled)
+                    .map(pendingTask -> pendingTask.task)
+                    .collect(Collectors.toList()), 0);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static void sleep(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Task copy(Task task) {
+        Task copy = new Task(task.getTitle(), task.getDescription());
+        copy.setId(task.getId());
+        copy.setTenant(task.getTenant());
+        copy.setCompleted(task.getCompleted());
+        return copy;
+    }
+
+    private static final class PendingTask {
+
+        private final Task task;
+        private final PendingTask previous;
+        private boolean created;
+        private CompletableFuture<Void> journaled = CompletableFuture.completedFuture(null);
+
+        private PendingTask(Task task, boolean created, PendingTask previous) {
+            this.task = task;
+            this.created = created;
+            this.previous = previous;
+        }
+
+        private boolean isJournaled() {
+            return journaled.isDone() && !journaled.isCompletedExceptionally();
+        }
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package mezyk.mateusz.app.tasks.core.data.tenant;
+
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public final class TenantContext {
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final int MAX_LENGTH = 64;
+    public static final String INVALID_TENANT = "Tenant id must be 1 to " + MAX_LENGTH
+            + " letters, digits, '-' or '_' and start with a letter or digit";
+
+    private static final Pattern TENANT_PATTERN = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0," + (MAX_LENGTH - 1) + "}");
+    private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+    private TenantContext() {
+    }
+
+    public static String current() {
+        String tenant = CURRENT.get();
+        return tenant == null ? DEFAULT_TENANT : tenant;
+    }
+
+    public static String set(String tenant) {
+        String previous = CURRENT.get();
+        CURRENT.set(check(tenant));
+        return previous;
+    }
+
+    public static void restore(String previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+    }
+
+    public static <T> T call(String tenant, Supplier<T> action) {
+        String previous = set(tenant);
+        try {
+            return action.get();
+        } finally {
+            restore(previous);
+        }
+    }
+
+    public static void run(String tenant, Runnable action) {
+        call(tenant, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public static String cacheKey(Object id) {
+        return current() + ':' + id;
+    }
+
+    public static String check(String tenant) {
+        if (tenant == null || !TENANT_PATTERN.matcher(tenant).matches()) {
+            throw new InvalidTaskRequestException(INVALID_TENANT);
+        }
+        return tenant;
+    }
+
+}
@@ -0,0 +1,71 @@
+package mezyk.mateusz.app.tasks.core.data.tenant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+@Component
+public class TenantShards {
+
+    public static final String SHARDS_PROPERTY = "tasks.tenancy.shards";
+    public static final String INVALID_SHARD_COUNT = "Shard count must be greater than 0";
+
+    private static final ThreadLocal<Integer> PINNED = new ThreadLocal<>();
+
+    private final int count;
+
+    public TenantShards(@Value("${" + SHARDS_PROPERTY + ":1}") int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException(INVALID_SHARD_COUNT);
+        }
+        this.count = count;
+    }
+
+    public static int shardOf(String tenant, int count) {
+        int hash = tenant.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), count);
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int shardOf(String tenant) {
+        return shardOf(tenant, count);
+    }
+
+    public static int currentShard(int count) {
+        Integer pinned = PINNED.get();
+        return pinned != null ? pinned : shardOf(TenantContext.current(), count);
+    }
+
+    public static <T> T onShard(int shard, Supplier<T> action) {
+        Integer previous = PINNED.get();
+        PINNED.set(shard);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                PINNED.remove();
+            } else {
+                PINNED.set(previous);
+            }
+        }
+    }
+
+    public int currentShard() {
+        return currentShard(count);
+    }
+
+    public <T> List<T> onEachShard(Supplier<T> action) {
+        List<T> results = new ArrayList<>(count);
+        for (int shard = 0; shard < count; shard++) {
+            results.add(onShard(shard, action));
+        }
+        return results;
+    }
+
+}
@@ -0,0 +1,39 @@
+package mezyk.mateusz.app.tasks.integration.admission;
+
+import mezyk.mateusz.app.tasks.integration.metrics.TaskMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@ConditionalOnProperty(name = "tasks.admission.enabled", havingValue = "true")
+public class AdmissionConfig implements WebMvcConfigurer {
+
+    private final AdmissionInterceptor admissionInterceptor;
+
+    public AdmissionConfig(TaskMetrics taskMetrics,
+                           @Value("${tasks.admission.client-rate}") double clientRate,
+                           @Value("${tasks.admission.client-burst}") int clientBurst,
+                           @Value("${tasks.admission.max-clients}") long maxClients,
+                           @Value("${tasks.admission.initial-limit}") int initialLimit,
+                           @Value("${tasks.admission.min-limit}") int minLimit,
+                           @Value("${tasks.admission.max-limit}") int maxLimit,
+                           @Value("${tasks.admission.latency-threshold-millis}") long latencyThresholdMillis,
+                           @Value("${tasks.admission.backoff-ratio}") double backoffRatio) {
+        ClientRateLimiter clientRateLimiter = new ClientRateLimiter(clientRate, clientBurst, maxClients, System::nanoTime);
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                latencyThresholdMillis, backoffRatio, System::nanoTime);
+        taskMetrics.admissionLimiters(clientRateLimiter, concurrencyLimiter);
+        this.admissionInterceptor = new AdmissionInterceptor(clientRateLimiter, concurrencyLimiter);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(admissionInterceptor)
+                .addPathPatterns("/task", "/task/**")
+                .excludePathPatterns("/task/events");
+    }
+
+}
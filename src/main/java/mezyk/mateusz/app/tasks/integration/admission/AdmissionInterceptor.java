@@ -0,0 +1,66 @@
+package mezyk.mateusz.app.tasks.integration.admission;
+
+import mezyk.mateusz.app.tasks.core.data.exception.TaskRateLimitedException;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String CLIENT_RATE_EXCEEDED = "Too many requests from this client, retry later";
+    public static final String CONCURRENCY_LIMIT_REACHED = "Server is at its concurrency limit, retry later";
+    public static final long CONCURRENCY_RETRY_AFTER_SECONDS = 1L;
+
+    private static final String ADMITTED_AT = AdmissionInterceptor.class.getName() + ".admittedAt";
+
+    private final ClientRateLimiter clientRateLimiter;
+    private final ConcurrencyLimiter concurrencyLimiter;
+
+    public AdmissionInterceptor(ClientRateLimiter clientRateLimiter, ConcurrencyLimiter concurrencyLimiter) {
+        this.clientRateLimiter = clientRateLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getDispatcherType() == DispatcherType.ASYNC) {
+            return true;
+        }
+        long wait = clientRateLimiter.tryAcquire(request.getRemoteAddr());
+        if (wait != ClientRateLimiter.ADMITTED) {
+            throw new TaskRateLimitedException(CLIENT_RATE_EXCEEDED, Math.max(1L, ceilSeconds(wait)));
+        }
+        if (!concurrencyLimiter.tryAcquire()) {
+            throw new TaskRateLimitedException(CONCURRENCY_LIMIT_REACHED, CONCURRENCY_RETRY_AFTER_SECONDS);
+        }
+        request.setAttribute(ADMITTED_AT, System.nanoTime());
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(ADMITTED_AT) != null) {
+            request.removeAttribute(ADMITTED_AT);
+            concurrencyLimiter.release();
+        }
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Object admittedAt = request.getAttribute(ADMITTED_AT);
+        if (admittedAt != null) {
+            request.removeAttribute(ADMITTED_AT);
+            concurrencyLimiter.release(System.nanoTime() - (Long) admittedAt,
+                    ex != null || response.getStatus() >= HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+    }
+
+    private static long ceilSeconds(long nanos) {
+        long second = TimeUnit.SECONDS.toNanos(1);
+        return (nanos + second - 1) / second;
+    }
+
+}
@@ -0,0 +1,52 @@
+package mezyk.mateusz.app.tasks.integration.admission;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ClientRateLimiter {
+
+    public static final long ADMITTED = 0L;
+
+    private static final Duration IDLE_CLIENT_EXPIRY = Duration.ofMinutes(5);
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public ClientRateLimiter(double tokensPerSecond, int burst, long maxClients, LongSupplier nanoClock) {
+        this.emissionIntervalNanos = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / tokensPerSecond));
+        this.burstToleranceNanos = emissionIntervalNanos * (Math.max(1, burst) - 1);
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxClients)
+                .expireAfterAccess(IDLE_CLIENT_EXPIRY)
+                .build();
+    }
+
+    public long tryAcquire(String client) {
+        AtomicLong theoreticalArrival = buckets.get(client, ignored -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = nanoClock.getAsLong();
+            long arrival = theoreticalArrival.get();
+            long earliest = Math.max(arrival, now);
+            long wait = earliest - burstToleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(arrival, earliest + emissionIntervalNanos)) {
+                return ADMITTED;
+            }
+        }
+    }
+
+    public long trackedClients() {
+        return buckets.estimatedSize();
+    }
+
+}
@@ -0,0 +1,78 @@
+package mezyk.mateusz.app.tasks.integration.admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+public class ConcurrencyLimiter {
+
+    private static final long NEVER = Long.MIN_VALUE;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final LongSupplier nanoClock;
+    private final AtomicInteger limit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger successes = new AtomicInteger();
+    private final AtomicLong lastBackoff = new AtomicLong(NEVER);
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMillis,
+                              double backoffRatio, LongSupplier nanoClock) {
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.latencyThresholdNanos = TimeUnit.MILLISECONDS.toNanos(latencyThresholdMillis);
+        this.backoffRatio = backoffRatio;
+        this.nanoClock = nanoClock;
+        this.limit = new AtomicInteger(Math.min(this.maxLimit, Math.max(this.minLimit, initialLimit)));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit.get()) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public void release() {
+        inFlight.decrementAndGet();
+    }
+
+    public void release(long latencyNanos, boolean failed) {
+        int concurrency = inFlight.getAndDecrement();
+        if (failed || latencyNanos > latencyThresholdNanos) {
+            successes.set(0);
+            backOff(latencyNanos);
+        } else if (concurrency * 2 >= limit.get() && successes.incrementAndGet() >= limit.get()) {
+            successes.set(0);
+            limit.updateAndGet(current -> Math.min(maxLimit, current + 1));
+        }
+    }
+
+    private void backOff(long latencyNanos) {
+        long now = nanoClock.getAsLong();
+        long last = lastBackoff.get();
+        if (last != NEVER && now - latencyNanos - last < 0) {
+            return;
+        }
+        if (lastBackoff.compareAndSet(last, now)) {
+            limit.updateAndGet(current -> Math.max(minLimit, (int) (current * backoffRatio)));
+        }
+    }
+
+    public int getLimit() {
+        return limit.get();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+}
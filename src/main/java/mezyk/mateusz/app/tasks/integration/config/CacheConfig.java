@@ -0,0 +1,24 @@
+package mezyk.mateusz.app.tasks.integration.config;
+
+import mezyk.mateusz.app.tasks.core.data.cache.InvalidationGuardedCacheManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CachingConfigurerSupport;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig extends CachingConfigurerSupport {
+
+    private final ObjectProvider<CacheManager> cacheManager;
+
+    public CacheConfig(ObjectProvider<CacheManager> cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public CacheManager cacheManager() {
+        return new TransactionAwareCacheManagerProxy(new InvalidationGuardedCacheManager(cacheManager.getObject()));
+    }
+
+}
@@ -0,0 +1,95 @@
+package mezyk.mateusz.app.tasks.integration.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.util.DriverDataSource;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import mezyk.mateusz.app.tasks.core.data.jdbc.StatementCachingDataSource;
+import mezyk.mateusz.app.tasks.core.data.jdbc.TenantRoutingDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.Objects;
+
+@Configuration
+@ConditionalOnProperty(name = StatementCacheConfig.ENABLED_PROPERTY, havingValue = "true")
+public class StatementCacheConfig {
+
+    public static final String ENABLED_PROPERTY = "tasks.jdbc.statement-cache.enabled";
+    public static final String SIZE_PROPERTY = "tasks.jdbc.statement-cache.size";
+    public static final String STATEMENTS = "tasks.jdbc.statements";
+    public static final String RESULT_TAG = "result";
+    public static final String POOL_TAG = "pool";
+    public static final String DEFAULT_POOL = "default";
+    public static final String CACHE_EVICTIONS = "tasks.jdbc.statement-cache.evictions";
+    public static final String CACHE_SIZE = "tasks.jdbc.statement-cache.size";
+    public static final String CACHE_HIT_RATIO = "tasks.jdbc.statement-cache.hit-ratio";
+
+    @Bean
+    public static BeanPostProcessor statementCachingDataSourcePostProcessor(Environment environment) {
+        int cacheSize = environment.getRequiredProperty(SIZE_PROPERTY, Integer.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof TenantRoutingDataSource) {
+                    ((TenantRoutingDataSource) bean).getShards().forEach(shard -> cacheStatements(shard, cacheSize));
+                } else if (bean instanceof DataSource) {
+                    cacheStatements((DataSource) bean, cacheSize);
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static void cacheStatements(DataSource dataSource, int cacheSize) {
+        if (dataSource instanceof HikariDataSource && ((HikariDataSource) dataSource).getDataSource() == null) {
+            HikariDataSource pool = (HikariDataSource) dataSource;
+            DataSource driver = new DriverDataSource(pool.getJdbcUrl(), pool.getDriverClassName(),
+                    pool.getDataSourceProperties(), pool.getUsername(), pool.getPassword());
+            pool.setDataSource(new StatementCachingDataSource(driver, cacheSize));
+        }
+    }
+
+    @Bean
+    public MeterBinder statementCacheMetrics(ObjectProvider<DataSource> dataSources) {
+        return registry -> {
+            DataSource dataSource = dataSources.getIfUnique();
+            List<DataSource> pools = dataSource instanceof TenantRoutingDataSource
+                    ? ((TenantRoutingDataSource) dataSource).getShards()
+                    : dataSource == null ? List.of() : List.of(dataSource);
+            for (DataSource pool : pools) {
+                if (!(pool instanceof HikariDataSource)
+                        || !(((HikariDataSource) pool).getDataSource() instanceof StatementCachingDataSource)) {
+                    continue;
+                }
+                String poolName = Objects.requireNonNullElse(((HikariDataSource) pool).getPoolName(), DEFAULT_POOL);
+                StatementCachingDataSource cache = (StatementCachingDataSource) ((HikariDataSource) pool).getDataSource();
+                FunctionCounter.builder(STATEMENTS, cache, StatementCachingDataSource::getHits)
+                        .tag(RESULT_TAG, "hit")
+                        .tag(POOL_TAG, poolName)
+                        .register(registry);
+                FunctionCounter.builder(STATEMENTS, cache, StatementCachingDataSource::getMisses)
+                        .tag(RESULT_TAG, "miss")
+                        .tag(POOL_TAG, poolName)
+                        .register(registry);
+                FunctionCounter.builder(CACHE_EVICTIONS, cache, StatementCachingDataSource::getEvictions)
+                        .tag(POOL_TAG, poolName)
+                        .register(registry);
+                Gauge.builder(CACHE_SIZE, cache, StatementCachingDataSource::getCachedStatements)
+                        .tag(POOL_TAG, poolName)
+                        .register(registry);
+                Gauge.builder(CACHE_HIT_RATIO, cache, StatementCachingDataSource::getHitRatio)
+                        .tag(POOL_TAG, poolName)
+                        .register(registry);
+            }
+        };
+    }
+
+}
@@ -0,0 +1,28 @@
+package mezyk.mateusz.app.tasks.integration.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import springfox.documentation.builders.PathSelectors;
+import springfox.documentation.builders.RequestHandlerSelectors;
+import springfox.documentation.spi.DocumentationType;
+import springfox.documentation.spring.web.plugins.Docket;
+import springfox.documentation.swagger2.annotations.EnableSwagger2;
+
+@Configuration
+@EnableSwagger2
+@ConditionalOnProperty(name = SwaggerConfig.SWAGGER_ENABLED_PROPERTY, havingValue = "true", matchIfMissing = true)
+public class SwaggerConfig {
+
+    public static final String SWAGGER_ENABLED_PROPERTY = "tasks.swagger.enabled";
+
+    @Bean
+    public Docket docket() {
+        return new Docket(DocumentationType.SWAGGER_2)
+            .select()
+            .paths(PathSelectors.ant("/task/**"))
+            .apis(RequestHandlerSelectors.basePackage("mezyk.mateusz"))
+            .build();
+    }
+
+}
@@ -0,0 +1,76 @@
+package mezyk.mateusz.app.tasks.integration.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.ConfigurableTomcatWebServerFactory;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnProperty(name = VirtualThreadConfig.EXECUTION_MODE_PROPERTY, havingValue = VirtualThreadConfig.VIRTUAL_THREADS)
+public class VirtualThreadConfig {
+
+    public static final String EXECUTION_MODE_PROPERTY = "tasks.execution.mode";
+    public static final String VIRTUAL_THREADS = "virtual-threads";
+    public static final String MAX_CONNECTIONS_PROPERTY = "tasks.execution.max-connections";
+    public static final String ACCEPT_COUNT_PROPERTY = "tasks.execution.accept-count";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService virtualThreadExecutor = newVirtualThreadExecutor();
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        return protocolHandler -> {
+            if (virtualThreadExecutor != null) {
+                protocolHandler.setExecutor(virtualThreadExecutor);
+            }
+        };
+    }
+
+    @Bean
+    public WebServerFactoryCustomizer<ConfigurableTomcatWebServerFactory> virtualThreadConnectionLimitsCustomizer(
+            @Value("${" + MAX_CONNECTIONS_PROPERTY + "}") int maxConnections,
+            @Value("${" + ACCEPT_COUNT_PROPERTY + "}") int acceptCount) {
+        return factory -> {
+            if (virtualThreadExecutor == null) {
+                return;
+            }
+            factory.addConnectorCustomizers(connector -> {
+                ProtocolHandler protocolHandler = connector.getProtocolHandler();
+                if (protocolHandler instanceof AbstractProtocol) {
+                    ((AbstractProtocol<?>) protocolHandler).setMaxConnections(maxConnections);
+                    ((AbstractProtocol<?>) protocolHandler).setAcceptCount(acceptCount);
+                }
+            });
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (virtualThreadExecutor != null) {
+            virtualThreadExecutor.shutdown();
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            LOGGER.warn("Virtual threads are not available on Java {}, requests keep running on the Tomcat thread pool "
+                    + "with its default connection limits", Runtime.version());
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package mezyk.mateusz.app.tasks.integration.endpoint;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import mezyk.mateusz.app.tasks.integration.model.CacheStatsDto;
+import mezyk.mateusz.app.tasks.integration.service.TaskResponseCache;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@RestController
+@RequestMapping("cache")
+public class CacheEndpoint {
+
+    private final CacheManager cacheManager;
+    private final TaskResponseCache taskResponseCache;
+
+    public CacheEndpoint(CacheManager cacheManager, TaskResponseCache taskResponseCache) {
+        this.cacheManager = cacheManager;
+        this.taskResponseCache = taskResponseCache;
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<CacheStatsDto>> getCacheStats() {
+        List<CacheStatsDto> stats = new ArrayList<>();
+        for (String name : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof CaffeineCache) {
+                com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = ((CaffeineCache) cache).getNativeCache();
+                CacheStats cacheStats = nativeCache.stats();
+                stats.add(new CacheStatsDto(name, nativeCache.estimatedSize(), cacheStats.hitCount(),
+                        cacheStats.missCount(), cacheStats.hitRate(), cacheStats.evictionCount()));
+            }
+        }
+        CacheStats pageStats = taskResponseCache.stats();
+        stats.add(new CacheStatsDto(TaskResponseCache.NAME, taskResponseCache.estimatedSize(), pageStats.hitCount(),
+                pageStats.missCount(), pageStats.hitRate(), pageStats.evictionCount()));
+        return new ResponseEntity<>(stats, HttpStatus.OK);
+    }
+
+}
@@ -1,75 +1,212 @@
 package mezyk.mateusz.app.tasks.integration.endpoint;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.service.TaskSearchService;
 import mezyk.mateusz.app.tasks.core.data.service.TaskService;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
 import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskCountDto;
 import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import mezyk.mateusz.app.tasks.integration.service.CachedTaskPage;
+import mezyk.mateusz.app.tasks.integration.service.TaskCursor;
+import mezyk.mateusz.app.tasks.integration.service.TaskETag;
 import mezyk.mateusz.app.tasks.integration.service.TaskMapper;
+import mezyk.mateusz.app.tasks.integration.service.TaskResponseCache;
+import mezyk.mateusz.app.tasks.integration.tenant.TenantInterceptor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.WebAsyncTask;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.stream.Collectors;
 
 @RestController
+@Validated
 @RequestMapping("task")
 public class TaskEndpoint {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+    public static final List<String> PAGE_VARY =
+            List.of(TenantInterceptor.TENANT_HEADER, HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+
     private final TaskService taskService;
+    private final TaskSearchService taskSearchService;
     private final TaskMapper taskMapper;
+    private final TaskResponseCache taskResponseCache;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter exportWriter;
+    private final long exportTimeoutMillis;
 
-    public TaskEndpoint(TaskService taskService, TaskMapper taskMapper) {
+    public TaskEndpoint(TaskService taskService, TaskSearchService taskSearchService, TaskMapper taskMapper,
+                        TaskResponseCache taskResponseCache, ObjectMapper objectMapper,
+                        @Value("${tasks.export.timeout-millis}") long exportTimeoutMillis) {
         this.taskService = taskService;
+        this.taskSearchService = taskSearchService;
         this.taskMapper = taskMapper;
+        this.taskResponseCache = taskResponseCache;
+        this.objectMapper = objectMapper;
+        this.exportWriter = objectMapper.writerFor(TaskDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
+        this.exportTimeoutMillis = exportTimeoutMillis;
     }
 
     @GetMapping()
-    public ResponseEntity<List<TaskDto>> getAllTasks() {
-        List<Task> tasks = taskService.findAllTasks();
-        return new ResponseEntity<>(taskMapper.mapToDtos(tasks), HttpStatus.OK);
+    public ResponseEntity<List<TaskView>> getAllTasks(@RequestParam(required = false) String cursor,
+                                                      @RequestParam(required = false) Integer limit) {
+        int pageSize = pageSize(limit);
+        List<TaskView> tasks = taskService.findTasksAfter(TaskCursor.decode(cursor), pageSize);
+        return page(tasks, pageSize);
     }
 
     @GetMapping("/active")
-    public ResponseEntity<List<TaskDto>> getAllActiveTasks() {
-        List<Task> tasks = taskService.findAllActiveTasks();
-        return new ResponseEntity<>(taskMapper.mapToDtos(tasks), HttpStatus.OK);
+    public ResponseEntity<?> getAllActiveTasks(@RequestParam(required = false) String cursor,
+                                               @RequestParam(required = false) Integer limit,
+                                               @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                               @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int pageSize = pageSize(limit);
+        Long afterId = TaskCursor.decode(cursor);
+        if (!TaskResponseCache.prefersJson(accept)) {
+            return page(taskService.findActiveTasksAfter(afterId, pageSize), pageSize, negotiatedPageHeaders());
+        }
+        return cachedPage(taskResponseCache.get(TaskResponseCache.ACTIVE, afterId, pageSize,
+                taskService::findActiveTasksAfter), ifNoneMatch);
     }
 
     @GetMapping("/completed")
-    public ResponseEntity<List<TaskDto>> getAllCompletedTasks() {
-        List<Task> tasks = taskService.findAllCompletedTasks();
-        return new ResponseEntity<>(taskMapper.mapToDtos(tasks), HttpStatus.OK);
+    public ResponseEntity<?> getAllCompletedTasks(@RequestParam(required = false) String cursor,
+                                                  @RequestParam(required = false) Integer limit,
+                                                  @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept,
+                                                  @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        int pageSize = pageSize(limit);
+        Long afterId = TaskCursor.decode(cursor);
+        if (!TaskResponseCache.prefersJson(accept)) {
+            return page(taskService.findCompletedTasksAfter(afterId, pageSize), pageSize, negotiatedPageHeaders());
+        }
+        return cachedPage(taskResponseCache.get(TaskResponseCache.COMPLETED, afterId, pageSize,
+                taskService::findCompletedTasksAfter), ifNoneMatch);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<TaskView>> searchTasks(@RequestParam String query,
+                                                      @RequestParam(defaultValue = "0") int offset,
+                                                      @RequestParam(required = false) Integer limit) {
+        List<TaskView> tasks = taskSearchService.searchTasks(query, offset, pageSize(limit));
+        return new ResponseEntity<>(tasks, HttpStatus.OK);
+    }
+
+    @GetMapping("/query")
+    public ResponseEntity<List<TaskView>> queryTasks(@RequestParam(required = false) Boolean completed,
+                                                     @RequestParam(required = false) String titlePrefix,
+                                                     @RequestParam(required = false) Long minId,
+                                                     @RequestParam(required = false) Long maxId,
+                                                     @RequestParam(defaultValue = TaskQuery.SORT_BY_ID) String sort,
+                                                     @RequestParam(required = false) Integer limit) {
+        TaskQuery query = TaskQuery.of(completed, titlePrefix, minId, maxId, sort, pageSize(limit));
+        return new ResponseEntity<>(taskService.queryTasks(query), HttpStatus.OK);
+    }
+
+    @GetMapping("/changes")
+    public ResponseEntity<TaskChanges> getChanges(@RequestParam(defaultValue = "0") long since,
+                                                  @RequestParam(required = false) Integer limit) {
+        return new ResponseEntity<>(taskService.findChangesSince(since, pageSize(limit)), HttpStatus.OK);
+    }
+
+    @GetMapping("/count")
+    public ResponseEntity<TaskCountDto> countTasks() {
+        long active = 0;
+        long completed = 0;
+        for (TaskStatusCount count : taskService.countTasksByStatus()) {
+            if (count.getCompleted()) {
+                completed = count.getCount();
+            } else {
+                active = count.getCount();
+            }
+        }
+        return new ResponseEntity<>(new TaskCountDto(active, completed), HttpStatus.OK);
+    }
+
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public WebAsyncTask<Void> exportTasks(HttpServletResponse response) {
+        String tenant = TenantContext.current();
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        return new WebAsyncTask<>(exportTimeoutMillis, () -> {
+            String previous = TenantContext.set(tenant);
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+                generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+                taskService.exportTasks(task -> writeLine(generator, taskMapper.mapToDto(task)));
+            } finally {
+                TenantContext.restore(previous);
+            }
+            return null;
+        });
     }
 
     @GetMapping("/{id}")
     public ResponseEntity<TaskDto> getTaskById(@NotNull @PathVariable Long id) {
-        return new ResponseEntity<>(taskMapper.mapToDto(taskService.findTaskById(id)), HttpStatus.OK);
+        return taskResponse(taskService.findTaskById(id), HttpStatus.OK);
     }
 
     @PostMapping("/new")
     public ResponseEntity<TaskDto> createTask(@Valid @RequestBody CreateTaskDto createTaskDto) {
         Task task = taskService.saveTask(taskMapper.mapToEntity(createTaskDto));
-        return new ResponseEntity<>(taskMapper.mapToDto(task), HttpStatus.CREATED);
+        return taskResponse(task, HttpStatus.CREATED);
+    }
+
+    @PostMapping("/batch/new")
+    public ResponseEntity<List<TaskDto>> createTasks(@RequestBody List<@Valid CreateTaskDto> createTaskDtos) {
+        List<Task> tasks = taskService.saveTasks(createTaskDtos.stream()
+                .map(taskMapper::mapToEntity)
+                .collect(Collectors.toList()));
+        return new ResponseEntity<>(taskMapper.mapToDtos(tasks), HttpStatus.CREATED);
+    }
+
+    @PutMapping("/batch/update")
+    public ResponseEntity<List<TaskDto>> updateTasks(@RequestBody List<@Valid TaskDto> taskDtos) {
+        List<Task> tasks = taskService.updateTasks(taskMapper.mapToEntities(taskDtos));
+        return new ResponseEntity<>(taskMapper.mapToDtos(tasks), HttpStatus.OK);
     }
 
     @PutMapping("/update/{id}")
-    public ResponseEntity<TaskDto> updateTask(@Valid @RequestBody TaskDto taskDto, @NotNull @PathVariable Long id) {
-        Task task = taskService.updateTask(taskMapper.mapToEntity(taskDto), id);
-        return new ResponseEntity<>(taskMapper.mapToDto(task), HttpStatus.OK);
+    public ResponseEntity<TaskDto> updateTask(@Valid @RequestBody TaskDto taskDto, @NotNull @PathVariable Long id,
+                                              @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Task task = taskService.updateTask(taskMapper.mapToEntity(taskDto), id, TaskETag.parseIfMatch(ifMatch));
+        return taskResponse(task, HttpStatus.OK);
     }
 
     @PatchMapping("/update/{id}/active")
-    public ResponseEntity<TaskDto> setTaskActive(@NotNull @PathVariable Long id) {
-        Task task = taskService.markTaskActive(id);
-        return new ResponseEntity<>(taskMapper.mapToDto(task), HttpStatus.OK);
+    public ResponseEntity<TaskDto> setTaskActive(@NotNull @PathVariable Long id,
+                                                 @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Task task = taskService.markTaskActive(id, TaskETag.parseIfMatch(ifMatch));
+        return taskResponse(task, HttpStatus.OK);
     }
 
     @PatchMapping("/update/{id}/completed")
-    public ResponseEntity<TaskDto> setTaskCompleted(@NotNull @PathVariable Long id) {
-        Task task = taskService.markTaskCompleted(id);
-        return new ResponseEntity<>(taskMapper.mapToDto(task), HttpStatus.OK);
+    public ResponseEntity<TaskDto> setTaskCompleted(@NotNull @PathVariable Long id,
+                                                    @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Task task = taskService.markTaskCompleted(id, TaskETag.parseIfMatch(ifMatch));
+        return taskResponse(task, HttpStatus.OK);
     }
 
     @DeleteMapping("/delete/{id}")
@@ -78,6 +215,62 @@ public class TaskEndpoint {
         return ResponseEntity.ok().build();
     }
 
+    @DeleteMapping("/batch/delete")
+    public ResponseEntity<Void> deleteTasks(@RequestBody List<@NotNull Long> ids) {
+        taskService.deleteTasksByIds(ids);
+        return ResponseEntity.ok().build();
+    }
 
+    private static int pageSize(Integer limit) {
+        return limit == null ? DEFAULT_PAGE_SIZE : Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    private void writeLine(JsonGenerator generator, TaskDto dto) {
+        try {
+            exportWriter.writeValue(generator, dto);
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private ResponseEntity<TaskDto> taskResponse(Task task, HttpStatus status) {
+        HttpHeaders headers = new HttpHeaders();
+        String eTag = TaskETag.of(task);
+        if (eTag != null) {
+            headers.setETag(eTag);
+        }
+        return new ResponseEntity<>(taskMapper.mapToDto(task), headers, status);
+    }
+
+    private ResponseEntity<List<TaskView>> page(List<TaskView> tasks, int pageSize) {
+        return page(tasks, pageSize, new HttpHeaders());
+    }
+
+    private ResponseEntity<List<TaskView>> page(List<TaskView> tasks, int pageSize, HttpHeaders headers) {
+        if (tasks.size() == pageSize) {
+            headers.add(NEXT_CURSOR_HEADER, TaskCursor.encode(tasks.get(tasks.size() - 1).getId()));
+        }
+        return new ResponseEntity<>(tasks, headers, HttpStatus.OK);
+    }
+
+    private static HttpHeaders negotiatedPageHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setVary(PAGE_VARY);
+        return headers;
+    }
+
+    private ResponseEntity<?> cachedPage(CachedTaskPage page, String ifNoneMatch) {
+        HttpHeaders headers = negotiatedPageHeaders();
+        headers.setETag(page.getETag());
+        if (page.getNextCursor() != null) {
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        if (TaskETag.matchesIfNoneMatch(ifNoneMatch, page.getETag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
+        }
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        return new ResponseEntity<>(page.getBody(), headers, HttpStatus.OK);
+    }
 
 }
@@ -0,0 +1,38 @@
+package mezyk.mateusz.app.tasks.integration.endpoint;
+
+import mezyk.mateusz.app.tasks.integration.service.TaskEventStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("task")
+public class TaskEventEndpoint {
+
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final TaskEventStream taskEventStream;
+    private final long timeoutMillis;
+
+    public TaskEventEndpoint(TaskEventStream taskEventStream,
+                             @Value("${tasks.events.timeout-millis}") long timeoutMillis) {
+        this.taskEventStream = taskEventStream;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamEvents(@RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) Long lastEventId,
+                                                   @RequestParam(required = false) Long since) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        taskEventStream.subscribe(emitter, lastEventId != null ? lastEventId : since);
+        return new ResponseEntity<>(emitter, HttpStatus.OK);
+    }
+
+}
@@ -0,0 +1,82 @@
+package mezyk.mateusz.app.tasks.integration.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import mezyk.mateusz.app.tasks.integration.service.TaskMapper;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Service
+@Primary
+public class MeteredTaskMapper implements TaskMapper {
+
+    private final TaskMapper delegate;
+    private final Timer mapToEntity;
+    private final Timer mapToDto;
+    private final Timer mapToDtos;
+    private final Timer mapToEntities;
+
+    public MeteredTaskMapper(TaskMapper delegate, TaskMetrics taskMetrics) {
+        this.delegate = delegate;
+        this.mapToEntity = taskMetrics.mapperTimer("mapToEntity");
+        this.mapToDto = taskMetrics.mapperTimer("mapToDto");
+        this.mapToDtos = taskMetrics.mapperTimer("mapToDtos");
+        this.mapToEntities = taskMetrics.mapperTimer("mapToEntities");
+    }
+
+    @Override
+    public Task mapToEntity(CreateTaskDto dto) {
+        long start = System.nanoTime();
+        try {
+            return delegate.mapToEntity(dto);
+        } finally {
+            mapToEntity.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task mapToEntity(TaskDto dto) {
+        long start = System.nanoTime();
+        try {
+            return delegate.mapToEntity(dto);
+        } finally {
+            mapToEntity.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public TaskDto mapToDto(Task entity) {
+        long start = System.nanoTime();
+        try {
+            return delegate.mapToDto(entity);
+        } finally {
+            mapToDto.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskDto> mapToDtos(List<Task> entities) {
+        long start = System.nanoTime();
+        try {
+            return delegate.mapToDtos(entities);
+        } finally {
+            mapToDtos.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Task> mapToEntities(List<TaskDto> dtos) {
+        long start = System.nanoTime();
+        try {
+            return delegate.mapToEntities(dtos);
+        } finally {
+            mapToEntities.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+}
@@ -0,0 +1,333 @@
+package mezyk.mateusz.app.tasks.integration.metrics;
+
+import io.micrometer.core.instrument.Timer;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.service.TaskService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+@Service
+@Primary
+public class MeteredTaskService implements TaskService {
+
+    private final TaskService delegate;
+    private final TaskMetrics taskMetrics;
+    private final Timer saveTask;
+    private final Timer saveTasks;
+    private final Timer updateTask;
+    private final Timer updateTasks;
+    private final Timer markTaskCompleted;
+    private final Timer markTaskActive;
+    private final Timer findTaskById;
+    private final Timer findAllTasks;
+    private final Timer findAllActiveTasks;
+    private final Timer findAllCompletedTasks;
+    private final Timer findTasksAfter;
+    private final Timer findActiveTasksAfter;
+    private final Timer findCompletedTasksAfter;
+    private final Timer findTaskViewsByIds;
+    private final Timer queryTasks;
+    private final Timer findChangesSince;
+    private final Timer countTasksByStatus;
+    private final Timer findTenants;
+    private final Timer exportTasks;
+    private final Timer deleteTaskById;
+    private final Timer deleteTasksByIds;
+
+    public MeteredTaskService(TaskService delegate, TaskMetrics taskMetrics) {
+        this.delegate = delegate;
+        this.taskMetrics = taskMetrics;
+        this.saveTask = taskMetrics.serviceTimer("saveTask");
+        this.saveTasks = taskMetrics.serviceTimer("saveTasks");
+        this.updateTask = taskMetrics.serviceTimer("updateTask");
+        this.updateTasks = taskMetrics.serviceTimer("updateTasks");
+        this.markTaskCompleted = taskMetrics.serviceTimer("markTaskCompleted");
+        this.markTaskActive = taskMetrics.serviceTimer("markTaskActive");
+        this.findTaskById = taskMetrics.serviceTimer("findTaskById");
+        this.findAllTasks = taskMetrics.serviceTimer("findAllTasks");
+        this.findAllActiveTasks = taskMetrics.serviceTimer("findAllActiveTasks");
+        this.findAllCompletedTasks = taskMetrics.serviceTimer("findAllCompletedTasks");
+        this.findTasksAfter = taskMetrics.serviceTimer("findTasksAfter");
+        this.findActiveTasksAfter = taskMetrics.serviceTimer("findActiveTasksAfter");
+        this.findCompletedTasksAfter = taskMetrics.serviceTimer("findCompletedTasksAfter");
+        this.findTaskViewsByIds = taskMetrics.serviceTimer("findTaskViewsByIds");
+        this.queryTasks = taskMetrics.serviceTimer("queryTasks");
+        this.findChangesSince = taskMetrics.serviceTimer("findChangesSince");
+        this.countTasksByStatus = taskMetrics.serviceTimer("countTasksByStatus");
+        this.findTenants = taskMetrics.serviceTimer("findTenants");
+        this.exportTasks = taskMetrics.serviceTimer("exportTasks");
+        this.deleteTaskById = taskMetrics.serviceTimer("deleteTaskById");
+        this.deleteTasksByIds = taskMetrics.serviceTimer("deleteTasksByIds");
+    }
+
+    @Override
+    public Task saveTask(Task task) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveTask(task);
+        } finally {
+            saveTask.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Task> saveTasks(List<Task> tasks) {
+        long start = System.nanoTime();
+        try {
+            return delegate.saveTasks(tasks);
+        } finally {
+            saveTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task updateTask(Task task, Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateTask(task, id);
+        } finally {
+            updateTask.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task updateTask(Task task, Long id, Long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateTask(task, id, expectedVersion);
+        } finally {
+            updateTask.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Task> updateTasks(List<Task> tasks) {
+        long start = System.nanoTime();
+        try {
+            return delegate.updateTasks(tasks);
+        } finally {
+            updateTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task markTaskCompleted(Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.markTaskCompleted(id);
+        } finally {
+            markTaskCompleted.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task markTaskCompleted(Long id, Long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.markTaskCompleted(id, expectedVersion);
+        } finally {
+            markTaskCompleted.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task markTaskActive(Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.markTaskActive(id);
+        } finally {
+            markTaskActive.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task markTaskActive(Long id, Long expectedVersion) {
+        long start = System.nanoTime();
+        try {
+            return delegate.markTaskActive(id, expectedVersion);
+        } finally {
+            markTaskActive.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public Task findTaskById(Long id) {
+        long start = System.nanoTime();
+        try {
+            return delegate.findTaskById(id);
+        } finally {
+            findTaskById.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Task> findAllTasks() {
+        long start = System.nanoTime();
+        try {
+            List<Task> tasks = delegate.findAllTasks();
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findAllTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Task> findAllActiveTasks() {
+        long start = System.nanoTime();
+        try {
+            List<Task> tasks = delegate.findAllActiveTasks();
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findAllActiveTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<Task> findAllCompletedTasks() {
+        long start = System.nanoTime();
+        try {
+            List<Task> tasks = delegate.findAllCompletedTasks();
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findAllCompletedTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskView> findTasksAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<TaskView> tasks = delegate.findTasksAfter(afterId, limit);
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findTasksAfter.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskView> findActiveTasksAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<TaskView> tasks = delegate.findActiveTasksAfter(afterId, limit);
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findActiveTasksAfter.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskView> findCompletedTasksAfter(Long afterId, int limit) {
+        long start = System.nanoTime();
+        try {
+            List<TaskView> tasks = delegate.findCompletedTasksAfter(afterId, limit);
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findCompletedTasksAfter.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskView> findTaskViewsByIds(Collection<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            List<TaskView> tasks = delegate.findTaskViewsByIds(ids);
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            findTaskViewsByIds.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskView> queryTasks(TaskQuery query) {
+        long start = System.nanoTime();
+        try {
+            List<TaskView> tasks = delegate.queryTasks(query);
+            taskMetrics.rowsFetched(tasks.size());
+            return tasks;
+        } finally {
+            queryTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public TaskChanges findChangesSince(long since, int limit) {
+        long start = System.nanoTime();
+        try {
+            TaskChanges changes = delegate.findChangesSince(since, limit);
+            taskMetrics.rowsFetched(changes.getChanged().size() + changes.getDeleted().size());
+            return changes;
+        } finally {
+            findChangesSince.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<TaskStatusCount> countTasksByStatus() {
+        long start = System.nanoTime();
+        try {
+            return delegate.countTasksByStatus();
+        } finally {
+            countTasksByStatus.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public List<String> findTenants() {
+        long start = System.nanoTime();
+        try {
+            return delegate.findTenants();
+        } finally {
+            findTenants.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void exportTasks(Consumer<Task> consumer) {
+        long start = System.nanoTime();
+        try {
+            delegate.exportTasks(task -> {
+                taskMetrics.rowsFetched(1);
+                consumer.accept(task);
+            });
+        } finally {
+            exportTasks.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void deleteTaskById(Long id) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteTaskById(id);
+        } finally {
+            deleteTaskById.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    @Override
+    public void deleteTasksByIds(List<Long> ids) {
+        long start = System.nanoTime();
+        try {
+            delegate.deleteTasksByIds(ids);
+        } finally {
+            deleteTasksByIds.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+}
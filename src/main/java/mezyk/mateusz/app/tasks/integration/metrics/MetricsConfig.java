@@ -0,0 +1,17 @@
+package mezyk.mateusz.app.tasks.integration.metrics;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public FilterRegistrationBean<SerializedBytesFilter> serializedBytesFilter(TaskMetrics taskMetrics) {
+        FilterRegistrationBean<SerializedBytesFilter> registration = new FilterRegistrationBean<>(new SerializedBytesFilter(taskMetrics));
+        registration.addUrlPatterns("/task/*");
+        return registration;
+    }
+
+}
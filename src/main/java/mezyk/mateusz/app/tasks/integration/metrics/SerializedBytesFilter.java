@@ -0,0 +1,131 @@
+package mezyk.mateusz.app.tasks.integration.metrics;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+
+public class SerializedBytesFilter extends OncePerRequestFilter {
+
+    private final TaskMetrics taskMetrics;
+
+    public SerializedBytesFilter(TaskMetrics taskMetrics) {
+        this.taskMetrics = taskMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        ByteCountingResponse countingResponse = new ByteCountingResponse(response);
+        try {
+            filterChain.doFilter(request, countingResponse);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncCompletionListener(countingResponse));
+            } else {
+                taskMetrics.bytesSerialized(countingResponse.getByteCount());
+            }
+        }
+    }
+
+    private final class AsyncCompletionListener implements AsyncListener {
+
+        private final ByteCountingResponse response;
+
+        private AsyncCompletionListener(ByteCountingResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            taskMetrics.bytesSerialized(response.getByteCount());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+
+    }
+
+    private static final class ByteCountingResponse extends HttpServletResponseWrapper {
+
+        private ByteCountingOutputStream outputStream;
+
+        private ByteCountingResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new ByteCountingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        private long getByteCount() {
+            return outputStream == null ? 0 : outputStream.byteCount;
+        }
+
+    }
+
+    private static final class ByteCountingOutputStream extends ServletOutputStream {
+
+        private final ServletOutputStream delegate;
+        private volatile long byteCount;
+
+        private ByteCountingOutputStream(ServletOutputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            delegate.write(b);
+            byteCount++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            delegate.write(b, off, len);
+            byteCount += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            delegate.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            delegate.setWriteListener(writeListener);
+        }
+
+    }
+
+}
@@ -0,0 +1,64 @@
+package mezyk.mateusz.app.tasks.integration.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.TimeUnit;
+
+@Component
+public class StartupReporter implements ApplicationListener<ApplicationReadyEvent> {
+
+    public static final String STARTUP_TIME = "tasks.startup.time";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(StartupReporter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final boolean exitWhenReady;
+
+    public StartupReporter(MeterRegistry meterRegistry,
+                           @Value("${tasks.startup.exit-when-ready}") boolean exitWhenReady) {
+        this.meterRegistry = meterRegistry;
+        this.exitWhenReady = exitWhenReady;
+    }
+
+    @Override
+    public void onApplicationEvent(ApplicationReadyEvent event) {
+        long startupMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+        TimeGauge.builder(STARTUP_TIME, this, TimeUnit.MILLISECONDS, reporter -> startupMillis).register(meterRegistry);
+        LOGGER.info("Ready to serve requests {} ms after JVM start", startupMillis);
+        if (exitWhenReady) {
+            ConfigurableApplicationContext context = event.getApplicationContext();
+            warmUp(context.getEnvironment().getProperty("local.server.port"));
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private static void warmUp(String port) {
+        if (port == null) {
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/task")).GET().build();
+        try {
+            HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (IOException e) {
+            LOGGER.warn("Warm-up request failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+package mezyk.mateusz.app.tasks.integration.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskDataViolationException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskQueueFullException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskRateLimitedException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskVersionConflictException;
+import mezyk.mateusz.app.tasks.integration.admission.ClientRateLimiter;
+import mezyk.mateusz.app.tasks.integration.admission.ConcurrencyLimiter;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+
+import javax.validation.ConstraintViolationException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Component
+public class TaskMetrics {
+
+    public static final String SERVICE_TIMER = "tasks.service";
+    public static final String MAPPER_TIMER = "tasks.mapper";
+    public static final String ROWS_FETCHED = "tasks.rows.fetched";
+    public static final String SERIALIZED_BYTES = "tasks.serialized.bytes";
+    public static final String EXCEPTIONS = "tasks.exceptions";
+    public static final String ADMISSION_LIMIT = "tasks.admission.limit";
+    public static final String ADMISSION_IN_FLIGHT = "tasks.admission.in-flight";
+    public static final String ADMISSION_CLIENTS = "tasks.admission.clients";
+    public static final String OPERATION_TAG = "operation";
+    public static final String EXCEPTION_TAG = "exception";
+
+    private static final List<Class<? extends Exception>> MAPPED_EXCEPTIONS = List.of(
+            TaskNotFoundException.class,
+            TaskVersionConflictException.class,
+            TaskQueueFullException.class,
+            TaskRateLimitedException.class,
+            OptimisticLockingFailureException.class,
+            TaskDataViolationException.class,
+            InvalidTaskRequestException.class,
+            MethodArgumentNotValidException.class,
+            ConstraintViolationException.class,
+            InvalidDataAccessApiUsageException.class);
+
+    private final MeterRegistry meterRegistry;
+    private final Counter rowsFetched;
+    private final DistributionSummary serializedBytes;
+    private final Map<Class<?>, Counter> exceptionCounters = new ConcurrentHashMap<>();
+
+    public TaskMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.rowsFetched = Counter.builder(ROWS_FETCHED)
+                .baseUnit("rows")
+                .register(meterRegistry);
+        this.serializedBytes = DistributionSummary.builder(SERIALIZED_BYTES)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        for (Class<? extends Exception> exceptionType : MAPPED_EXCEPTIONS) {
+            exceptionCounters.put(exceptionType, exceptionCounter(exceptionType));
+        }
+    }
+
+    public Timer serviceTimer(String operation) {
+        return Timer.builder(SERVICE_TIMER).tag(OPERATION_TAG, operation).register(meterRegistry);
+    }
+
+    public Timer mapperTimer(String operation) {
+        return Timer.builder(MAPPER_TIMER).tag(OPERATION_TAG, operation).register(meterRegistry);
+    }
+
+    public void rowsFetched(int rows) {
+        rowsFetched.increment(rows);
+    }
+
+    public void bytesSerialized(long bytes) {
+        serializedBytes.record(bytes);
+    }
+
+    public void admissionLimiters(ClientRateLimiter clientRateLimiter, ConcurrencyLimiter concurrencyLimiter) {
+        Gauge.builder(ADMISSION_LIMIT, concurrencyLimiter, ConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder(ADMISSION_IN_FLIGHT, concurrencyLimiter, ConcurrencyLimiter::getInFlight).register(meterRegistry);
+        Gauge.builder(ADMISSION_CLIENTS, clientRateLimiter, ClientRateLimiter::trackedClients).register(meterRegistry);
+    }
+
+    public void exceptionHandled(Exception exception) {
+        exceptionCounters.computeIfAbsent(exception.getClass(), this::exceptionCounter).increment();
+    }
+
+    private Counter exceptionCounter(Class<?> exceptionType) {
+        return Counter.builder(EXCEPTIONS).tag(EXCEPTION_TAG, exceptionType.getSimpleName()).register(meterRegistry);
+    }
+
+}
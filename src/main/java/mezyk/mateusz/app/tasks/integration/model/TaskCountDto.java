@@ -0,0 +1,37 @@
+package mezyk.mateusz.app.tasks.integration.model;
+
+public class TaskCountDto {
+
+    private long active;
+
+    private long completed;
+
+    public TaskCountDto() {
+    }
+
+    public TaskCountDto(long active, long completed) {
+        this.active = active;
+        this.completed = completed;
+    }
+
+    public long getActive() {
+        return active;
+    }
+
+    public void setActive(long active) {
+        this.active = active;
+    }
+
+    public long getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(long completed) {
+        this.completed = completed;
+    }
+
+    public long getTotal() {
+        return active + completed;
+    }
+
+}
@@ -0,0 +1,77 @@
+package mezyk.mateusz.app.tasks.integration.model;
+
+public class TaskEventDto {
+
+    private long sequence;
+
+    private String type;
+
+    private Long id;
+
+    private String title;
+
+    private String description;
+
+    private Boolean completed;
+
+    public TaskEventDto() {
+    }
+
+    public TaskEventDto(long sequence, String type, Long id, String title, String description, Boolean completed) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.title = title;
+        this.description = description;
+        this.completed = completed;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+
+    public Boolean getCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(Boolean completed) {
+        this.completed = completed;
+    }
+
+}
@@ -0,0 +1,29 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+public final class CachedTaskPage {
+
+    private final byte[] body;
+
+    private final String nextCursor;
+
+    private final String eTag;
+
+    public CachedTaskPage(byte[] body, String nextCursor, String eTag) {
+        this.body = body;
+        this.nextCursor = nextCursor;
+        this.eTag = eTag;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+}
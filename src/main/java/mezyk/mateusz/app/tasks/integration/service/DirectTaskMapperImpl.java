@@ -0,0 +1,52 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Service
+@ConditionalOnProperty(name = TaskMapper.IMPLEMENTATION_PROPERTY, havingValue = "direct", matchIfMissing = true)
+public class DirectTaskMapperImpl implements TaskMapper {
+
+    @Override
+    public TaskDto mapToDto(Task entity) {
+        return new TaskDto(entity.getTitle(), entity.getDescription(), entity.getCompleted(), entity.getId());
+    }
+
+    @Override
+    public Task mapToEntity(CreateTaskDto dto) {
+        return new Task(dto.getTitle(), dto.getDescription());
+    }
+
+    @Override
+    public Task mapToEntity(TaskDto dto) {
+        Task task = new Task(dto.getTitle(), dto.getDescription());
+        task.setId(dto.getId());
+        task.setCompleted(dto.getCompleted());
+        return task;
+    }
+
+    @Override
+    public List<TaskDto> mapToDtos(List<Task> entities) {
+        List<TaskDto> dtos = new ArrayList<>(entities.size());
+        for (Task entity : entities) {
+            dtos.add(mapToDto(entity));
+        }
+        return dtos;
+    }
+
+    @Override
+    public List<Task> mapToEntities(List<TaskDto> dtos) {
+        List<Task> entities = new ArrayList<>(dtos.size());
+        for (TaskDto dto : dtos) {
+            entities.add(mapToEntity(dto));
+        }
+        return entities;
+    }
+
+}
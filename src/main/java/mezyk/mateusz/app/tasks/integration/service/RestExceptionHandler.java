@@ -3,9 +3,14 @@ package mezyk.mateusz.app.tasks.integration.service;
 import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskDataViolationException;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskQueueFullException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskRateLimitedException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskVersionConflictException;
+import mezyk.mateusz.app.tasks.integration.metrics.TaskMetrics;
 import org.springframework.beans.ConversionNotSupportedException;
 import org.springframework.beans.TypeMismatchException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -28,35 +33,89 @@ import org.springframework.web.multipart.support.MissingServletRequestPartExcept
 import org.springframework.web.servlet.NoHandlerFoundException;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.validation.ConstraintViolationException;
+
 @ControllerAdvice
 public class RestExceptionHandler extends ResponseEntityExceptionHandler {
 
+    public static final String QUEUE_FULL_RETRY_AFTER_SECONDS = "1";
+
+    private final TaskMetrics taskMetrics;
+
+    public RestExceptionHandler(TaskMetrics taskMetrics) {
+        this.taskMetrics = taskMetrics;
+    }
+
     @ExceptionHandler(TaskNotFoundException.class)
     protected ResponseEntity<Object> handleTaskNotFound(TaskNotFoundException ex) {
+        taskMetrics.exceptionHandled(ex);
         RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.NOT_FOUND, ex.getMessage());
         return new ResponseEntity<>(restException, restException.getStatus());
     }
 
+    @ExceptionHandler(TaskVersionConflictException.class)
+    protected ResponseEntity<Object> handleVersionConflict(TaskVersionConflictException ex) {
+        taskMetrics.exceptionHandled(ex);
+        RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.PRECONDITION_FAILED, ex.getMessage());
+        return new ResponseEntity<>(restException, restException.getStatus());
+    }
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    protected ResponseEntity<Object> handleOptimisticLockingFailure(OptimisticLockingFailureException ex) {
+        taskMetrics.exceptionHandled(ex);
+        RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.CONFLICT, ex.getMessage());
+        return new ResponseEntity<>(restException, restException.getStatus());
+    }
+
+    @ExceptionHandler(TaskQueueFullException.class)
+    protected ResponseEntity<Object> handleQueueFull(TaskQueueFullException ex) {
+        taskMetrics.exceptionHandled(ex);
+        RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, QUEUE_FULL_RETRY_AFTER_SECONDS);
+        return new ResponseEntity<>(restException, headers, restException.getStatus());
+    }
+
+    @ExceptionHandler(TaskRateLimitedException.class)
+    protected ResponseEntity<Object> handleRateLimited(TaskRateLimitedException ex) {
+        taskMetrics.exceptionHandled(ex);
+        RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.TOO_MANY_REQUESTS, ex.getMessage());
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, Long.toString(ex.getRetryAfterSeconds()));
+        return new ResponseEntity<>(restException, headers, restException.getStatus());
+    }
+
     @ExceptionHandler(TaskDataViolationException.class)
     protected ResponseEntity<Object> handleDataViolation(TaskDataViolationException ex) {
+        taskMetrics.exceptionHandled(ex);
         RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.BAD_REQUEST, ex.getMessage());
         return new ResponseEntity<>(restException, restException.getStatus());
     }
 
     @ExceptionHandler(InvalidTaskRequestException.class)
     protected ResponseEntity<Object> handleDataViolation(InvalidTaskRequestException ex) {
+        taskMetrics.exceptionHandled(ex);
         RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.BAD_REQUEST, ex.getMessage());
         return new ResponseEntity<>(restException, restException.getStatus());
     }
 
     @Override
     protected ResponseEntity<Object> handleMethodArgumentNotValid(MethodArgumentNotValidException ex, HttpHeaders headers, HttpStatus status, WebRequest request) {
+        taskMetrics.exceptionHandled(ex);
+        RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return new ResponseEntity<>(restException, restException.getStatus());
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    protected ResponseEntity<Object> handleConstraintViolation(ConstraintViolationException ex) {
+        taskMetrics.exceptionHandled(ex);
         RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.BAD_REQUEST, ex.getMessage());
         return new ResponseEntity<>(restException, restException.getStatus());
     }
 
     @ExceptionHandler(InvalidDataAccessApiUsageException.class)
     protected ResponseEntity<Object> handleDataViolation(InvalidDataAccessApiUsageException ex) {
+        taskMetrics.exceptionHandled(ex);
         RestExceptionInfo restException = new RestExceptionInfo(HttpStatus.BAD_REQUEST, ex.getMessage());
         return new ResponseEntity<>(restException, restException.getStatus());
     }
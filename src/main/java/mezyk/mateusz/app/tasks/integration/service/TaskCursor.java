@@ -0,0 +1,37 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public final class TaskCursor {
+
+    public static final String INVALID_CURSOR = "Invalid page cursor: ";
+
+    private static final String PREFIX = "after:";
+
+    private TaskCursor() {
+    }
+
+    public static String encode(Long lastId) {
+        byte[] raw = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    public static Long decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new InvalidTaskRequestException(INVALID_CURSOR + cursor);
+            }
+            return Long.valueOf(raw.substring(PREFIX.length()));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidTaskRequestException(INVALID_CURSOR + cursor);
+        }
+    }
+
+}
@@ -0,0 +1,60 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+
+public final class TaskETag {
+
+    public static final String INVALID_IF_MATCH = "If-Match header is not a task version ETag: ";
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private TaskETag() {
+    }
+
+    public static String of(Task task) {
+        if (task == null || task.getVersion() == null) {
+            return null;
+        }
+        return "\"" + task.getVersion() + "\"";
+    }
+
+    public static String ofPage(String pageKey, long epoch, long generation) {
+        return WEAK_PREFIX + "\"" + pageKey + ':' + Long.toHexString(epoch) + "-" + generation + "\"";
+    }
+
+    public static boolean matchesIfNoneMatch(String ifNoneMatch, String eTag) {
+        if (ifNoneMatch == null || eTag == null) {
+            return false;
+        }
+        String opaqueTag = withoutWeakPrefix(eTag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (ANY.equals(tag) || withoutWeakPrefix(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().isEmpty() || ANY.equals(ifMatch.trim())) {
+            return null;
+        }
+        String eTag = ifMatch.trim();
+        if (eTag.length() < 3 || eTag.charAt(0) != '"' || eTag.charAt(eTag.length() - 1) != '"') {
+            throw new InvalidTaskRequestException(INVALID_IF_MATCH + ifMatch);
+        }
+        try {
+            return Long.valueOf(eTag.substring(1, eTag.length() - 1));
+        } catch (NumberFormatException e) {
+            throw new InvalidTaskRequestException(INVALID_IF_MATCH + ifMatch);
+        }
+    }
+
+    private static String withoutWeakPrefix(String eTag) {
+        return eTag.startsWith(WEAK_PREFIX) ? eTag.substring(WEAK_PREFIX.length()) : eTag;
+    }
+
+}
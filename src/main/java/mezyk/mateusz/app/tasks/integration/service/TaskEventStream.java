@@ -0,0 +1,116 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.integration.model.TaskEventDto;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+public class TaskEventStream {
+
+    public static final String SAVED = "saved";
+    public static final String DELETED = "deleted";
+    public static final String RESET = "reset";
+
+    private final TaskEventDto[] history;
+    private final String[] historyTenants;
+    private final int bufferSize;
+    private final boolean coalesce;
+    private final Set<TaskEventSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final ExecutorService dispatcher;
+    private long lastSequence;
+
+    public TaskEventStream(@Value("${tasks.events.history}") int historySize,
+                           @Value("${tasks.events.buffer}") int bufferSize,
+                           @Value("${tasks.events.coalesce}") boolean coalesce,
+                           @Value("${tasks.events.dispatcher-threads}") int dispatcherThreads) {
+        this.history = new TaskEventDto[historySize];
+        this.historyTenants = new String[historySize];
+        this.bufferSize = bufferSize;
+        this.coalesce = coalesce;
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, new DispatcherThreadFactory());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTaskChanged(TaskChangedEvent event) {
+        synchronized (this) {
+            long sequence = ++lastSequence;
+            TaskEventDto taskEvent = event.isDeleted()
+                    ? new TaskEventDto(sequence, DELETED, event.getId(), null, null, null)
+                    : new TaskEventDto(sequence, SAVED, event.getId(), event.getTitle(), event.getDescription(),
+                    event.getCompleted());
+            history[(int) (sequence % history.length)] = taskEvent;
+            historyTenants[(int) (sequence % history.length)] = event.getTenant();
+            for (TaskEventSubscription subscription : subscriptions) {
+                if (subscription.getTenant().equals(event.getTenant())) {
+                    subscription.offer(taskEvent);
+                }
+            }
+        }
+    }
+
+    public void subscribe(SseEmitter emitter, Long lastEventId) {
+        TaskEventSubscription subscription = new TaskEventSubscription(emitter, TenantContext.current(), bufferSize,
+                coalesce, dispatcher);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        synchronized (this) {
+            if (lastEventId != null) {
+                replay(subscription, lastEventId);
+            }
+            subscriptions.add(subscription);
+        }
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    @PreDestroy
+    public void close() {
+        subscriptions.forEach(TaskEventSubscription::close);
+        dispatcher.shutdown();
+    }
+
+    private void replay(TaskEventSubscription subscription, long lastEventId) {
+        if (lastEventId < lastSequence - Math.min(history.length, bufferSize) || lastEventId > lastSequence) {
+            subscription.offer(new TaskEventDto(lastSequence, RESET, null, null, null, null));
+            return;
+        }
+        for (long sequence = lastEventId + 1; sequence <= lastSequence; sequence++) {
+            if (subscription.getTenant().equals(historyTenants[(int) (sequence % history.length)])) {
+                subscription.offer(history[(int) (sequence % history.length)]);
+            }
+        }
+    }
+
+    private static final class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "task-events-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,108 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+import mezyk.mateusz.app.tasks.integration.model.TaskEventDto;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+class TaskEventSubscription {
+
+    private final SseEmitter emitter;
+    private final String tenant;
+    private final int bufferSize;
+    private final boolean coalesce;
+    private final Executor dispatcher;
+    private final Map<Long, TaskEventDto> pending = new LinkedHashMap<>();
+    private boolean draining;
+    private boolean overflowed;
+    private boolean closed;
+
+    TaskEventSubscription(SseEmitter emitter, String tenant, int bufferSize, boolean coalesce, Executor dispatcher) {
+        this.emitter = emitter;
+        this.tenant = tenant;
+        this.bufferSize = bufferSize;
+        this.coalesce = coalesce;
+        this.dispatcher = dispatcher;
+    }
+
+    String getTenant() {
+        return tenant;
+    }
+
+    void offer(TaskEventDto event) {
+        synchronized (this) {
+            if (closed || overflowed) {
+                return;
+            }
+            Long key = coalesce && event.getId() != null ? event.getId() : -event.getSequence();
+            pending.remove(key);
+            pending.put(key, event);
+            if (pending.size() > bufferSize) {
+                overflowed = true;
+                pending.clear();
+            }
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        dispatcher.execute(this::drain);
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+        }
+        emitter.complete();
+    }
+
+    private void drain() {
+        while (true) {
+            List<TaskEventDto> batch;
+            synchronized (this) {
+                if (closed) {
+                    draining = false;
+                    return;
+                }
+                if (overflowed) {
+                    closed = true;
+                    draining = false;
+                    break;
+                }
+                if (pending.isEmpty()) {
+                    draining = false;
+                    return;
+                }
+                batch = new ArrayList<>(pending.values());
+                pending.clear();
+            }
+            try {
+                for (TaskEventDto event : batch) {
+                    emitter.send(SseEmitter.event()
+                            .id(Long.toString(event.getSequence()))
+                            .name(event.getType())
+                            .data(event, MediaType.APPLICATION_JSON));
+                }
+            } catch (IOException | IllegalStateException e) {
+                synchronized (this) {
+                    closed = true;
+                    draining = false;
+                    pending.clear();
+                }
+                return;
+            }
+        }
+        emitter.complete();
+    }
+
+}
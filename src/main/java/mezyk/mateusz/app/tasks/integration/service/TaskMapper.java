@@ -8,6 +8,8 @@ import java.util.List;
 
 public interface TaskMapper {
 
+    String IMPLEMENTATION_PROPERTY = "tasks.mapper.implementation";
+
     Task mapToEntity(CreateTaskDto dto);
 
     Task mapToEntity(TaskDto dto);
@@ -4,12 +4,14 @@ import mezyk.mateusz.app.tasks.core.data.model.Task;
 import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
 import mezyk.mateusz.app.tasks.integration.model.TaskDto;
 import org.modelmapper.ModelMapper;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.stream.Collectors;
 
 @Service
+@ConditionalOnProperty(name = TaskMapper.IMPLEMENTATION_PROPERTY, havingValue = "modelmapper")
 public class TaskMapperImpl implements TaskMapper {
 
     private final ModelMapper modelMapper;
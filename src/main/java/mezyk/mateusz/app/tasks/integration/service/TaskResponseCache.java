@@ -0,0 +1,95 @@
+package mezyk.mateusz.app.tasks.integration.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.service.TaskGeneration;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.integration.config.WireFormatConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.function.BiFunction;
+
+@Component
+public class TaskResponseCache {
+
+    public static final String NAME = "task-pages";
+    public static final String ACTIVE = "active";
+    public static final String COMPLETED = "completed";
+
+    private static final MediaType APPLICATION_SMILE = MediaType.parseMediaType(WireFormatConfig.APPLICATION_SMILE_VALUE);
+
+    private final TaskGeneration taskGeneration;
+    private final ObjectWriter listWriter;
+    private final Cache<String, CachedTaskPage> pages;
+
+    public TaskResponseCache(TaskGeneration taskGeneration, ObjectMapper objectMapper,
+                             @Value("${tasks.response-cache.max-bytes}") long maxBytes) {
+        this.taskGeneration = taskGeneration;
+        this.listWriter = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, TaskView.class));
+        this.pages = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String key, CachedTaskPage page) -> page.getBody().length)
+                .recordStats()
+                .build();
+    }
+
+    public CachedTaskPage get(String endpoint, Long afterId, int limit, BiFunction<Long, Integer, List<TaskView>> loader) {
+        long generation = taskGeneration.current();
+        String pageKey = TenantContext.current() + ':' + endpoint + ':' + afterId + ':' + limit;
+        return pages.get(pageKey + ':' + generation, ignored -> load(loader.apply(afterId, limit), limit, pageKey, generation));
+    }
+
+    public static boolean prefersJson(String accept) {
+        if (accept == null || accept.trim().isEmpty()) {
+            return true;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return true;
+            }
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_CBOR) || mediaType.isCompatibleWith(APPLICATION_SMILE)) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    public long estimatedSize() {
+        return pages.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return pages.stats();
+    }
+
+    private CachedTaskPage load(List<TaskView> tasks, int limit, String pageKey, long generation) {
+        String nextCursor = tasks.size() == limit ? TaskCursor.encode(tasks.get(tasks.size() - 1).getId()) : null;
+        try {
+            return new CachedTaskPage(listWriter.writeValueAsBytes(tasks), nextCursor,
+                    TaskETag.ofPage(pageKey, taskGeneration.getEpoch(), generation));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+}
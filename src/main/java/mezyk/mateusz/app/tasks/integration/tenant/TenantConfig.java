@@ -0,0 +1,23 @@
+package mezyk.mateusz.app.tasks.integration.tenant;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class TenantConfig implements WebMvcConfigurer {
+
+    private final TenantInterceptor tenantInterceptor;
+
+    public TenantConfig(@Value("${tasks.storage:jpa}") String storage) {
+        this.tenantInterceptor = new TenantInterceptor(!"memory".equals(storage));
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(tenantInterceptor)
+                .addPathPatterns("/task", "/task/**");
+    }
+
+}
@@ -0,0 +1,45 @@
+package mezyk.mateusz.app.tasks.integration.tenant;
+
+import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+public class TenantInterceptor implements AsyncHandlerInterceptor {
+
+    public static final String TENANT_HEADER = "X-Tenant-Id";
+    public static final String SINGLE_TENANT_STORAGE = "This storage mode serves only the '"
+            + TenantContext.DEFAULT_TENANT + "' tenant";
+
+    private final boolean multiTenant;
+
+    public TenantInterceptor(boolean multiTenant) {
+        this.multiTenant = multiTenant;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String tenant = request.getHeader(TENANT_HEADER);
+        if (tenant == null) {
+            tenant = TenantContext.DEFAULT_TENANT;
+        }
+        if (!multiTenant && !TenantContext.DEFAULT_TENANT.equals(tenant)) {
+            throw new InvalidTaskRequestException(SINGLE_TENANT_STORAGE);
+        }
+        TenantContext.set(tenant);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        TenantContext.clear();
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        TenantContext.clear();
+    }
+
+}
@@ -0,0 +1,105 @@
+package mezyk.mateusz.app.tasks.integration.tenant;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import mezyk.mateusz.app.tasks.core.data.jdbc.TenantRoutingDataSource;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.hibernate.boot.Metadata;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.jpa.boot.internal.EntityManagerFactoryBuilderImpl;
+import org.hibernate.jpa.boot.spi.IntegratorProvider;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+import org.hibernate.tool.hbm2ddl.SchemaUpdate;
+import org.hibernate.tool.schema.TargetType;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+@Configuration
+@ConditionalOnExpression("${tasks.tenancy.shards:1} > 1 and '${tasks.storage:jpa}' == 'jpa'")
+public class TenantShardConfig {
+
+    public static final String SHARD_URL_PROPERTY = "tasks.tenancy.shard-url";
+    public static final String HIKARI_PREFIX = "spring.datasource.hikari";
+    public static final String SHARD_POOL_NAME = "tasks-shard-%d";
+
+    @Bean
+    public TenantRoutingDataSource dataSource(TenantShards tenantShards, DataSourceProperties properties,
+                                              Environment environment) {
+        String url = environment.getRequiredProperty(SHARD_URL_PROPERTY);
+        Binder binder = Binder.get(environment);
+        List<DataSource> shards = new ArrayList<>(tenantShards.getCount());
+        for (int shard = 0; shard < tenantShards.getCount(); shard++) {
+            HikariDataSource pool = properties.initializeDataSourceBuilder()
+                    .type(HikariDataSource.class)
+                    .url(String.format(url, shard))
+                    .build();
+            binder.bind(HIKARI_PREFIX, Bindable.ofInstance(pool));
+            pool.setPoolName(String.format(SHARD_POOL_NAME, shard));
+            shards.add(pool);
+        }
+        return new TenantRoutingDataSource(tenantShards, shards);
+    }
+
+    @Bean
+    public MeterBinder tenantShardPoolMetrics(ObjectProvider<TenantRoutingDataSource> dataSource) {
+        return registry -> dataSource.ifAvailable(routing -> {
+            for (DataSource shard : routing.getShards()) {
+                if (shard instanceof HikariDataSource && ((HikariDataSource) shard).getMetricsTrackerFactory() == null) {
+                    ((HikariDataSource) shard).setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry));
+                }
+            }
+        });
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer tenantShardHibernateProperties(TenantShards tenantShards) {
+        return properties -> {
+            properties.put(TenantShards.SHARDS_PROPERTY, tenantShards.getCount());
+            Object ddlAuto = properties.get(AvailableSettings.HBM2DDL_AUTO);
+            if (ddlAuto != null && !"none".equals(ddlAuto)) {
+                properties.put(EntityManagerFactoryBuilderImpl.INTEGRATOR_PROVIDER,
+                        (IntegratorProvider) () -> Collections.singletonList(new ShardSchemaIntegrator(tenantShards)));
+            }
+        };
+    }
+
+    private static final class ShardSchemaIntegrator implements Integrator {
+
+        private final TenantShards tenantShards;
+
+        private ShardSchemaIntegrator(TenantShards tenantShards) {
+            this.tenantShards = tenantShards;
+        }
+
+        @Override
+        public void integrate(Metadata metadata, SessionFactoryImplementor sessionFactory,
+                              SessionFactoryServiceRegistry serviceRegistry) {
+            tenantShards.onEachShard(() -> {
+                new SchemaUpdate().setHaltOnError(true).execute(EnumSet.of(TargetType.DATABASE), metadata);
+                return null;
+            });
+        }
+
+        @Override
+        public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        }
+
+    }
+
+}
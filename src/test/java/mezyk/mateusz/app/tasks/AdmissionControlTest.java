@@ -0,0 +1,128 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.exception.TaskRateLimitedException;
+import mezyk.mateusz.app.tasks.integration.admission.AdmissionInterceptor;
+import mezyk.mateusz.app.tasks.integration.admission.ClientRateLimiter;
+import mezyk.mateusz.app.tasks.integration.admission.ConcurrencyLimiter;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AdmissionControlTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    public void shouldAdmitBurstThenRejectUntilTokenIsRefilled() {
+        //having
+        ClientRateLimiter limiter = new ClientRateLimiter(10, 3, 100, clock::get);
+        //when
+        long first = limiter.tryAcquire("10.0.0.1");
+        long second = limiter.tryAcquire("10.0.0.1");
+        long third = limiter.tryAcquire("10.0.0.1");
+        long rejected = limiter.tryAcquire("10.0.0.1");
+        long otherClient = limiter.tryAcquire("10.0.0.2");
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(100));
+        long refilled = limiter.tryAcquire("10.0.0.1");
+        //then
+        assertEquals(ClientRateLimiter.ADMITTED, first);
+        assertEquals(ClientRateLimiter.ADMITTED, second);
+        assertEquals(ClientRateLimiter.ADMITTED, third);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(100), rejected);
+        assertEquals(ClientRateLimiter.ADMITTED, otherClient);
+        assertEquals(ClientRateLimiter.ADMITTED, refilled);
+        assertNotEquals(ClientRateLimiter.ADMITTED, limiter.tryAcquire("10.0.0.1"));
+    }
+
+    @Test
+    public void shouldRejectAboveLimitAndBackOffOnSlowResponses() {
+        //having
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 2, 20, 100, 0.5, clock::get);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        //when
+        boolean overLimit = limiter.tryAcquire();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+        //then
+        assertFalse(overLimit);
+        assertEquals(5, limiter.getLimit());
+        assertEquals(9, limiter.getInFlight());
+        assertFalse(limiter.tryAcquire());
+    }
+
+    @Test
+    public void shouldBackOffOncePerWindowOfRequestsAdmittedBeforeIt() {
+        //having
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(16, 2, 20, 100, 0.5, clock::get);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire());
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        //when
+        for (int i = 0; i < 3; i++) {
+            limiter.release(TimeUnit.MILLISECONDS.toNanos(500), false);
+        }
+        int afterFirstWindow = limiter.getLimit();
+        assertTrue(limiter.tryAcquire());
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(200));
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(200), true);
+        //then
+        assertEquals(8, afterFirstWindow);
+        assertEquals(4, limiter.getLimit());
+        assertEquals(1, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldGrowLimitAdditivelyWhenSaturatedAndFast() {
+        //having
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(4, 2, 20, 100, 0.5, clock::get);
+        //when
+        for (int i = 0; i < 4; i++) {
+            for (int j = 0; j < limiter.getLimit(); j++) {
+                assertTrue(limiter.tryAcquire());
+            }
+            while (limiter.getInFlight() > 0) {
+                limiter.release(TimeUnit.MILLISECONDS.toNanos(1), false);
+            }
+        }
+        int grown = limiter.getLimit();
+        limiter.tryAcquire();
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(1), true);
+        //then
+        assertEquals(6, grown);
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void shouldRejectWithRetryAfterAndReleasePermitOnCompletion() throws Exception {
+        //having
+        ConcurrencyLimiter concurrencyLimiter = new ConcurrencyLimiter(1, 1, 1, 100, 0.5, clock::get);
+        AdmissionInterceptor interceptor =
+                new AdmissionInterceptor(new ClientRateLimiter(1, 1, 100, clock::get), concurrencyLimiter);
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/task");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        //when
+        boolean admitted = interceptor.preHandle(request, response, null);
+        TaskRateLimitedException rateLimited = assertThrows(TaskRateLimitedException.class,
+                () -> interceptor.preHandle(new MockHttpServletRequest("GET", "/task"), response, null));
+        MockHttpServletRequest otherClient = new MockHttpServletRequest("GET", "/task");
+        otherClient.setRemoteAddr("10.0.0.2");
+        TaskRateLimitedException overloaded = assertThrows(TaskRateLimitedException.class,
+                () -> interceptor.preHandle(otherClient, response, null));
+        interceptor.afterCompletion(request, response, null, null);
+        //then
+        assertTrue(admitted);
+        assertEquals(AdmissionInterceptor.CLIENT_RATE_EXCEEDED, rateLimited.getMessage());
+        assertEquals(1L, rateLimited.getRetryAfterSeconds());
+        assertEquals(AdmissionInterceptor.CONCURRENCY_LIMIT_REACHED, overloaded.getMessage());
+        assertEquals(0, concurrencyLimiter.getInFlight());
+    }
+
+}
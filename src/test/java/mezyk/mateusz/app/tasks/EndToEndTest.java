@@ -1,19 +1,48 @@
 package mezyk.mateusz.app.tasks;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import mezyk.mateusz.app.tasks.core.data.model.Task;
 import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskGeneration;
+import mezyk.mateusz.app.tasks.integration.config.WireFormatConfig;
+import mezyk.mateusz.app.tasks.integration.endpoint.TaskEndpoint;
 import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskCountDto;
 import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskEventDto;
+import mezyk.mateusz.app.tasks.integration.service.TaskEventStream;
+import mezyk.mateusz.app.tasks.integration.tenant.TenantInterceptor;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,9 +59,19 @@ public class EndToEndTest {
     @Autowired
     private TaskRepository taskRepository;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private TaskEventStream taskEventStream;
+
+    @Autowired
+    private TaskGeneration taskGeneration;
+
     @BeforeEach
     public void clean() {
         taskRepository.deleteAll();
+        taskGeneration.advance();
     }
 
     @Test
@@ -86,6 +125,322 @@ public class EndToEndTest {
         assertTrue(returnedTask.getCompleted());
     }
 
+    @Test
+    public void shouldServeCachedActiveTasksWithWeakETagUntilTasksChange() {
+        //having
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Title A", "Description A"), TaskDto.class);
+        ResponseEntity<TaskDto[]> firstResponse = restTemplate.getForEntity("/task/active", TaskDto[].class);
+        String eTag = firstResponse.getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        //when
+        ResponseEntity<TaskDto[]> notModified = restTemplate.exchange("/task/active", HttpMethod.GET,
+                new HttpEntity<>(headers), TaskDto[].class);
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Title B", "Description B"), TaskDto.class);
+        ResponseEntity<TaskDto[]> modified = restTemplate.exchange("/task/active", HttpMethod.GET,
+                new HttpEntity<>(headers), TaskDto[].class);
+        //then
+        assertTrue(eTag.startsWith("W/"));
+        assertEquals(1, firstResponse.getBody().length);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+        assertEquals(HttpStatus.OK, modified.getStatusCode());
+        assertEquals(2, modified.getBody().length);
+        assertNotEquals(eTag, modified.getHeaders().getETag());
+    }
+
+    @Test
+    public void shouldReturnTasksPageByPageFollowingCursor() {
+        //having
+        Task first = createAndSaveTask();
+        Task second = createAndSaveTask();
+        Task third = createAndSaveTask();
+        //when
+        ResponseEntity<TaskDto[]> firstPage = restTemplate.getForEntity("/task?limit=2", TaskDto[].class);
+        String cursor = firstPage.getHeaders().getFirst(TaskEndpoint.NEXT_CURSOR_HEADER);
+        ResponseEntity<TaskDto[]> secondPage = restTemplate.getForEntity("/task?limit=2&cursor={cursor}", TaskDto[].class, cursor);
+        //then
+        assertEquals(2, firstPage.getBody().length);
+        assertEquals(first.getId(), firstPage.getBody()[0].getId());
+        assertEquals(second.getId(), firstPage.getBody()[1].getId());
+        assertNotNull(cursor);
+
+        assertEquals(1, secondPage.getBody().length);
+        assertEquals(third.getId(), secondPage.getBody()[0].getId());
+        assertNull(secondPage.getHeaders().getFirst(TaskEndpoint.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    public void shouldReturnActiveTasksPageByPage() {
+        //having
+        Task completedTask = new Task("Title B", "Description B");
+        completedTask.setCompleted(true);
+        taskRepository.save(completedTask);
+        Task first = createAndSaveTask();
+        Task second = createAndSaveTask();
+        //when
+        ResponseEntity<TaskDto[]> firstPage = restTemplate.getForEntity("/task/active?limit=1", TaskDto[].class);
+        String cursor = firstPage.getHeaders().getFirst(TaskEndpoint.NEXT_CURSOR_HEADER);
+        ResponseEntity<TaskDto[]> secondPage = restTemplate.getForEntity("/task/active?limit=1&cursor={cursor}", TaskDto[].class, cursor);
+        //then
+        assertEquals(1, firstPage.getBody().length);
+        assertEquals(first.getId(), firstPage.getBody()[0].getId());
+        assertEquals(1, secondPage.getBody().length);
+        assertEquals(second.getId(), secondPage.getBody()[0].getId());
+    }
+
+    @Test
+    public void shouldRejectMalformedCursor() {
+        //when
+        ResponseEntity<String> response = restTemplate.getForEntity("/task?cursor=not-a-cursor", String.class);
+        //then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void shouldSearchTasksCreatedThroughTheApi() {
+        //having
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Regar plantas", "Terraza y salón"), TaskDto.class);
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Llamar al fontanero", null), TaskDto.class);
+        //when
+        TaskDto[] found = restTemplate.getForObject("/task/search?query=plan", TaskDto[].class);
+        //then
+        assertEquals(1, found.length);
+        assertEquals("Regar plantas", found[0].getTitle());
+    }
+
+    @Test
+    public void shouldQueryTasksByTitlePrefixAndRejectUnindexedSort() {
+        //having
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Regar plantas", null), TaskDto.class);
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Llamar al fontanero", null), TaskDto.class);
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Recoger paquete", null), TaskDto.class);
+        //when
+        TaskDto[] found = restTemplate.getForObject("/task/query?titlePrefix=Re&sort=title,desc", TaskDto[].class);
+        ResponseEntity<String> rejected = restTemplate.getForEntity("/task/query?sort=description", String.class);
+        //then
+        assertEquals(2, found.length);
+        assertEquals("Regar plantas", found[0].getTitle());
+        assertEquals("Recoger paquete", found[1].getTitle());
+        assertEquals(HttpStatus.BAD_REQUEST, rejected.getStatusCode());
+    }
+
+    @Test
+    public void shouldExposeServiceTimersAndHandledExceptionCounters() throws Exception {
+        //having
+        restTemplate.postForEntity("/task/new", new CreateTaskDto("Title", "Description"), TaskDto.class);
+        restTemplate.getForEntity("/task/{id}", String.class, Long.MAX_VALUE);
+        //when
+        ResponseEntity<String> saveTimer =
+                restTemplate.getForEntity("/actuator/metrics/tasks.service?tag=operation:saveTask", String.class);
+        ResponseEntity<String> notFoundCounter =
+                restTemplate.getForEntity("/actuator/metrics/tasks.exceptions?tag=exception:TaskNotFoundException", String.class);
+        //then
+        assertEquals(HttpStatus.OK, saveTimer.getStatusCode());
+        assertTrue(objectMapper.readTree(saveTimer.getBody()).get("measurements").get(0).get("value").asDouble() > 0);
+        assertEquals(HttpStatus.OK, notFoundCounter.getStatusCode());
+        assertTrue(objectMapper.readTree(notFoundCounter.getBody()).get("measurements").get(0).get("value").asDouble() > 0);
+    }
+
+    @Test
+    public void shouldExposeConnectionPoolMetrics() {
+        //having
+        ResponseEntity<TaskDto> created =
+                restTemplate.postForEntity("/task/new", new CreateTaskDto("Title", "Description"), TaskDto.class);
+        restTemplate.getForEntity("/task/{id}", String.class, created.getBody().getId());
+        //when
+        ResponseEntity<String> acquireTimer =
+                restTemplate.getForEntity("/actuator/metrics/hikaricp.connections.acquire", String.class);
+        //then
+        assertEquals(HttpStatus.OK, acquireTimer.getStatusCode());
+    }
+
+    @Test
+    public void shouldStreamTaskChangesSinceGivenSequence() throws Exception {
+        //having
+        long since = taskEventStream.getLastSequence();
+        TaskDto created = restTemplate.postForObject("/task/new", new CreateTaskDto("Streamed", null), TaskDto.class);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/task/events?since=" + since))
+                .header(HttpHeaders.ACCEPT, MediaType.TEXT_EVENT_STREAM_VALUE)
+                .build();
+        //when
+        //then
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () -> {
+            HttpResponse<Stream<String>> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofLines());
+            try (Stream<String> lines = response.body()) {
+                Iterator<String> iterator = lines.iterator();
+                TaskEventDto replayed = nextEvent(iterator);
+                assertEquals(TaskEventStream.SAVED, replayed.getType());
+                assertEquals(created.getId(), replayed.getId());
+                assertEquals("Streamed", replayed.getTitle());
+
+                restTemplate.delete("/task/delete/{id}", created.getId());
+                TaskEventDto live = nextEvent(iterator);
+                assertEquals(TaskEventStream.DELETED, live.getType());
+                assertEquals(created.getId(), live.getId());
+                assertEquals(replayed.getSequence() + 1, live.getSequence());
+            }
+        });
+    }
+
+    @Test
+    public void shouldReturnTaskChangesSinceRevision() throws Exception {
+        //having
+        TaskDto deleted = restTemplate.postForObject("/task/new", new CreateTaskDto("Deleted", null), TaskDto.class);
+        JsonNode reset = objectMapper.readTree(restTemplate.getForObject("/task/changes?since={since}", String.class,
+                Long.MAX_VALUE));
+        long since = reset.get("revision").asLong();
+        restTemplate.delete("/task/delete/{id}", deleted.getId());
+        TaskDto created = restTemplate.postForObject("/task/new", new CreateTaskDto("Created", null), TaskDto.class);
+        //when
+        JsonNode changes = objectMapper.readTree(restTemplate.getForObject("/task/changes?since={since}", String.class,
+                since));
+        //then
+        assertTrue(reset.get("reset").asBoolean());
+        assertFalse(changes.get("reset").asBoolean());
+        assertEquals(1, changes.get("changed").size());
+        assertEquals(created.getId().longValue(), changes.get("changed").get(0).get("id").asLong());
+        assertEquals("Created", changes.get("changed").get(0).get("title").asText());
+        assertEquals(1, changes.get("deleted").size());
+        assertEquals(deleted.getId().longValue(), changes.get("deleted").get(0).asLong());
+    }
+
+    @Test
+    public void shouldNegotiateCborAndSmileEncodings() throws Exception {
+        //having
+        ObjectMapper cborMapper = new ObjectMapper(new CBORFactory());
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        MediaType smile = MediaType.parseMediaType(WireFormatConfig.APPLICATION_SMILE_VALUE);
+        HttpHeaders smileHeaders = new HttpHeaders();
+        smileHeaders.setContentType(smile);
+        smileHeaders.setAccept(Arrays.asList(smile));
+        HttpHeaders cborHeaders = new HttpHeaders();
+        cborHeaders.setAccept(Arrays.asList(MediaType.APPLICATION_CBOR));
+        //when
+        ResponseEntity<byte[]> created = restTemplate.exchange("/task/new", HttpMethod.POST,
+                new HttpEntity<>(smileMapper.writeValueAsBytes(new CreateTaskDto("Binary", "Smile body")), smileHeaders),
+                byte[].class);
+        ResponseEntity<byte[]> listed = restTemplate.exchange("/task", HttpMethod.GET, new HttpEntity<>(cborHeaders),
+                byte[].class);
+        //then
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertTrue(smile.isCompatibleWith(created.getHeaders().getContentType()));
+        assertEquals("Binary", smileMapper.readValue(created.getBody(), TaskDto.class).getTitle());
+        assertTrue(MediaType.APPLICATION_CBOR.isCompatibleWith(listed.getHeaders().getContentType()));
+        TaskDto[] tasks = cborMapper.readValue(listed.getBody(), TaskDto[].class);
+        assertEquals(1, tasks.length);
+        assertEquals("Smile body", tasks[0].getDescription());
+    }
+
+    @Test
+    public void shouldVaryActiveTaskPagesByTenantAcceptAndEncoding() {
+        //having
+        createAndSaveTask();
+        HttpHeaders cborHeaders = new HttpHeaders();
+        cborHeaders.setAccept(Arrays.asList(MediaType.APPLICATION_CBOR));
+        //when
+        ResponseEntity<String> json = restTemplate.getForEntity("/task/active", String.class);
+        ResponseEntity<byte[]> cbor = restTemplate.exchange("/task/active", HttpMethod.GET,
+                new HttpEntity<>(cborHeaders), byte[].class);
+        //then
+        List<String> expected = TaskEndpoint.PAGE_VARY.stream().map(String::toLowerCase).collect(Collectors.toList());
+        for (ResponseEntity<?> response : Arrays.asList(json, cbor)) {
+            assertEquals(HttpStatus.OK, response.getStatusCode());
+            assertTrue(response.getHeaders().getVary().stream().map(String::toLowerCase).collect(Collectors.toList())
+                    .containsAll(expected));
+        }
+    }
+
+    @Test
+    public void shouldCompressLargeResponsesWhenClientAcceptsGzip() throws Exception {
+        //having
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            tasks.add(new Task("Title " + i, "Description " + i));
+        }
+        taskRepository.saveAll(tasks);
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/task?limit=1000"))
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+                .build();
+        //when
+        HttpResponse<byte[]> response = HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofByteArray());
+        //then
+        assertEquals(200, response.statusCode());
+        assertEquals(Optional.of("gzip"), response.headers().firstValue(HttpHeaders.CONTENT_ENCODING));
+        try (GZIPInputStream body = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            assertEquals(100, objectMapper.readValue(body, TaskDto[].class).length);
+        }
+    }
+
+    @Test
+    public void shouldCountTasksByStatus() {
+        //having
+        createAndSaveTask();
+        createAndSaveTask();
+        Task completedTask = new Task("Title B", "Description B");
+        completedTask.setCompleted(true);
+        taskRepository.save(completedTask);
+        //when
+        TaskCountDto count = restTemplate.getForObject("/task/count", TaskCountDto.class);
+        //then
+        assertEquals(2, count.getActive());
+        assertEquals(1, count.getCompleted());
+        assertEquals(3, count.getTotal());
+    }
+
+    @Test
+    public void shouldIsolateTasksOfDifferentTenants() {
+        //having
+        HttpHeaders tenantA = new HttpHeaders();
+        tenantA.set(TenantInterceptor.TENANT_HEADER, "tenant-a");
+        HttpHeaders tenantB = new HttpHeaders();
+        tenantB.set(TenantInterceptor.TENANT_HEADER, "tenant-b");
+        TaskDto created = restTemplate.exchange("/task/new", HttpMethod.POST,
+                new HttpEntity<>(new CreateTaskDto("Title A", "Description A"), tenantA), TaskDto.class).getBody();
+        //when
+        TaskDto[] tenantATasks = restTemplate.exchange("/task", HttpMethod.GET, new HttpEntity<>(tenantA),
+                TaskDto[].class).getBody();
+        TaskDto[] tenantBTasks = restTemplate.exchange("/task", HttpMethod.GET, new HttpEntity<>(tenantB),
+                TaskDto[].class).getBody();
+        TaskDto[] defaultTasks = restTemplate.getForObject("/task", TaskDto[].class);
+        ResponseEntity<String> foreignRead = restTemplate.exchange("/task/{id}", HttpMethod.GET,
+                new HttpEntity<>(tenantB), String.class, created.getId());
+        //then
+        assertEquals(1, tenantATasks.length);
+        assertEquals(created.getId(), tenantATasks[0].getId());
+        assertEquals(0, tenantBTasks.length);
+        assertEquals(0, defaultTasks.length);
+        assertEquals(HttpStatus.NOT_FOUND, foreignRead.getStatusCode());
+        assertEquals("tenant-a", taskRepository.findById(created.getId()).get().getTenant());
+    }
+
+    @Test
+    public void shouldRejectInvalidTenantHeader() {
+        //having
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(TenantInterceptor.TENANT_HEADER, "../other");
+        //when
+        ResponseEntity<String> response = restTemplate.exchange("/task", HttpMethod.GET, new HttpEntity<>(headers),
+                String.class);
+        //then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    }
+
+    @Test
+    public void shouldExportAllTasksAsNewlineDelimitedJson() throws Exception {
+        //having
+        Task first = createAndSaveTask();
+        Task second = createAndSaveTask();
+        //when
+        ResponseEntity<String> response = restTemplate.getForEntity("/task/export", String.class);
+        //then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(TaskEndpoint.APPLICATION_NDJSON_VALUE, response.getHeaders().getContentType().toString());
+        String[] lines = response.getBody().split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(first.getId(), objectMapper.readValue(lines[0], TaskDto.class).getId());
+        assertEquals(second.getId(), objectMapper.readValue(lines[1], TaskDto.class).getId());
+    }
+
     @Test
     public void shouldCreateTask() {
         //having
@@ -104,6 +459,29 @@ public class EndToEndTest {
         taskRepository.existsById(returnedTaskDto.getId());
     }
 
+    @Test
+    public void shouldCreateTasksInBulk() {
+        //having
+        CreateTaskDto[] dtos = {new CreateTaskDto("Title A", "Description A"), new CreateTaskDto("Title B", null)};
+        //when
+        ResponseEntity<TaskDto[]> response = restTemplate.postForEntity("/task/batch/new", Arrays.asList(dtos), TaskDto[].class);
+        //then
+        assertEquals(HttpStatus.CREATED, response.getStatusCode());
+        assertEquals(2, response.getBody().length);
+        assertTrue(Arrays.stream(response.getBody()).allMatch(dto -> taskRepository.existsById(dto.getId())));
+    }
+
+    @Test
+    public void shouldNotCreateAnyTaskInBulkWhenOneHasBlankTitle() {
+        //having
+        CreateTaskDto[] dtos = {new CreateTaskDto("Title A", "Description A"), new CreateTaskDto("", "Description B")};
+        //when
+        ResponseEntity<String> response = restTemplate.postForEntity("/task/batch/new", Arrays.asList(dtos), String.class);
+        //then
+        assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+        assertEquals(0, taskRepository.count());
+    }
+
     @Test
     public void shouldCreateTaskWithTitleAndNullDescription() {
         //having
@@ -162,6 +540,75 @@ public class EndToEndTest {
         assertEquals(newDescription, updatedTask.getDescription());
     }
 
+    @Test
+    public void shouldReturnNotModifiedWhenTaskETagMatches() {
+        //having
+        Task task = createAndSaveTask();
+        ResponseEntity<TaskDto> first = restTemplate.getForEntity("/task/{id}", TaskDto.class, task.getId());
+        String eTag = first.getHeaders().getETag();
+        assertNotNull(eTag);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfNoneMatch(eTag);
+        //when
+        ResponseEntity<TaskDto> second = restTemplate.exchange("/task/{id}", HttpMethod.GET, new HttpEntity<>(headers),
+                TaskDto.class, task.getId());
+        //then
+        assertEquals(HttpStatus.NOT_MODIFIED, second.getStatusCode());
+        assertNull(second.getBody());
+    }
+
+    @Test
+    public void shouldUpdateTaskWhenIfMatchIsCurrentVersion() {
+        //having
+        Task task = createAndSaveTask();
+        String eTag = restTemplate.getForEntity("/task/{id}", TaskDto.class, task.getId()).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+        TaskDto dto = new TaskDto("Title B", "Description B", true, task.getId());
+        //when
+        ResponseEntity<TaskDto> response = restTemplate.exchange("/task/update/{id}", HttpMethod.PUT, new HttpEntity<>(dto, headers),
+                TaskDto.class, task.getId());
+        //then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotEquals(eTag, response.getHeaders().getETag());
+        assertEquals("Title B", taskRepository.findById(task.getId()).get().getTitle());
+    }
+
+    @Test
+    public void shouldReturnETagOfStoredVersionAfterConditionalUpdate() {
+        //having
+        Task task = createAndSaveTask();
+        String eTag = restTemplate.getForEntity("/task/{id}", TaskDto.class, task.getId()).getHeaders().getETag();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(eTag);
+        TaskDto dto = new TaskDto("Title B", "Description B", true, task.getId());
+        //when
+        ResponseEntity<TaskDto> response = restTemplate.exchange("/task/update/{id}", HttpMethod.PUT, new HttpEntity<>(dto, headers),
+                TaskDto.class, task.getId());
+        //then
+        String storedETag = restTemplate.getForEntity("/task/{id}", TaskDto.class, task.getId()).getHeaders().getETag();
+        assertEquals(storedETag, response.getHeaders().getETag());
+    }
+
+    @Test
+    public void shouldNotUpdateTaskWhenIfMatchIsStale() {
+        //having
+        Task task = createAndSaveTask();
+        String staleETag = restTemplate.getForEntity("/task/{id}", TaskDto.class, task.getId()).getHeaders().getETag();
+        restTemplate.patchForObject("/task/update/{id}/completed", null, TaskDto.class, task.getId());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setIfMatch(staleETag);
+        TaskDto dto = new TaskDto("Title B", "Description B", false, task.getId());
+        //when
+        ResponseEntity<String> response = restTemplate.exchange("/task/update/{id}", HttpMethod.PUT, new HttpEntity<>(dto, headers),
+                String.class, task.getId());
+        //then
+        assertEquals(HttpStatus.PRECONDITION_FAILED, response.getStatusCode());
+        Task storedTask = taskRepository.findById(task.getId()).get();
+        assertEquals(task.getTitle(), storedTask.getTitle());
+        assertTrue(storedTask.getCompleted());
+    }
+
     @Test
     public void shouldNotUpdateTaskBecauseTaskDoesNotExist() {
         //having
@@ -347,6 +794,14 @@ public class EndToEndTest {
         assertTrue(retrievedTask.getCompleted());
     }
 
+    private TaskEventDto nextEvent(Iterator<String> lines) throws IOException {
+        String line;
+        do {
+            line = lines.next();
+        } while (!line.startsWith("data:"));
+        return objectMapper.readValue(line.substring("data:".length()), TaskEventDto.class);
+    }
+
     private Task createAndSaveTask() {
         return taskRepository.save(new Task("Title", "Description"));
     }
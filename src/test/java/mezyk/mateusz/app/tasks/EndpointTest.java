@@ -2,29 +2,42 @@ package mezyk.mateusz.app.tasks;
 
 import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskQueueFullException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskRateLimitedException;
 import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.service.TaskGeneration;
+import mezyk.mateusz.app.tasks.core.data.service.TaskSearchService;
 import mezyk.mateusz.app.tasks.core.data.service.TaskService;
+import mezyk.mateusz.app.tasks.core.data.service.WriteBehindTaskService;
+import mezyk.mateusz.app.tasks.integration.admission.AdmissionInterceptor;
 import mezyk.mateusz.app.tasks.integration.endpoint.TaskEndpoint;
+import mezyk.mateusz.app.tasks.integration.metrics.TaskMetrics;
 import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
 import mezyk.mateusz.app.tasks.integration.model.TaskDto;
 import mezyk.mateusz.app.tasks.integration.service.TaskMapper;
+import mezyk.mateusz.app.tasks.integration.service.TaskResponseCache;
+import mezyk.mateusz.app.tasks.integration.tenant.TenantInterceptor;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.servlet.MockMvc;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = TaskEndpoint.class)
+@Import({TaskResponseCache.class, TaskGeneration.class})
 public class EndpointTest {
 
     @Autowired
@@ -33,9 +46,18 @@ public class EndpointTest {
     @MockBean
     private TaskService taskService;
 
+    @MockBean
+    private TaskSearchService taskSearchService;
+
     @MockBean
     private TaskMapper taskMapper;
 
+    @MockBean
+    private TaskMetrics taskMetrics;
+
+    @Autowired
+    private TaskGeneration taskGeneration;
+
     @Test
     public void shouldReturn201WhenCreateTaskDtoIsValid() throws Exception {
         CreateTaskDto dto = new CreateTaskDto("Title", "Description");
@@ -45,6 +67,29 @@ public class EndpointTest {
             .andExpect(status().isCreated());
     }
 
+    @Test
+    public void shouldReturn429WithRetryAfterWhenWriteQueueIsFull() throws Exception {
+        when(taskService.saveTask(any())).thenThrow(new TaskQueueFullException(WriteBehindTaskService.QUEUE_FULL));
+        CreateTaskDto dto = new CreateTaskDto("Title", "Description");
+
+        mockMvc.perform(post("/task/new").contentType(APPLICATION_JSON)
+            .content(asJason(dto)))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "1"))
+            .andExpect(content().string(Matchers.containsString(WriteBehindTaskService.QUEUE_FULL)));
+    }
+
+    @Test
+    public void shouldReturn429WithComputedRetryAfterWhenRateLimited() throws Exception {
+        when(taskService.findTaskById(anyLong()))
+            .thenThrow(new TaskRateLimitedException(AdmissionInterceptor.CLIENT_RATE_EXCEEDED, 3));
+
+        mockMvc.perform(get("/task/1"))
+            .andExpect(status().isTooManyRequests())
+            .andExpect(header().string("Retry-After", "3"))
+            .andExpect(content().string(Matchers.containsString(AdmissionInterceptor.CLIENT_RATE_EXCEEDED)));
+    }
+
     @Test
     public void shouldReturn400AndMessageWhenCreateTaskDtoHasNullTitle() throws Exception {
         CreateTaskDto dto = new CreateTaskDto(null, "Description");
@@ -96,6 +141,45 @@ public class EndpointTest {
             .andExpect(status().isOk());
     }
 
+    @Test
+    public void shouldReturn304WithoutQueryingTasksWhenActiveTasksETagMatches() throws Exception {
+        taskGeneration.advance();
+
+        String eTag = mockMvc.perform(get("/task/active"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("ETag", Matchers.startsWith("W/")))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/task/active").header("If-None-Match", eTag))
+            .andExpect(status().isNotModified());
+        verify(taskService, times(1)).findActiveTasksAfter(any(), anyInt());
+    }
+
+    @Test
+    public void shouldTagEachCachedPageSeparatelyAndVaryByTenantAndEncoding() throws Exception {
+        String activeETag = mockMvc.perform(get("/task/active"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Vary", String.join(", ", TaskEndpoint.PAGE_VARY)))
+            .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/task/completed").header("If-None-Match", activeETag))
+            .andExpect(status().isOk());
+        mockMvc.perform(get("/task/active").param("limit", "5").header("If-None-Match", activeETag))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldReturn200SearchingTasks() throws Exception {
+        mockMvc.perform(get("/task/search").param("query", "title"))
+            .andExpect(status().isOk());
+    }
+
+    @Test
+    public void shouldReturn400SearchingTasksWithoutQuery() throws Exception {
+        mockMvc.perform(get("/task/search"))
+            .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void shouldReturn200GettingTaskById() throws Exception {
         when(taskService.findTaskById(anyLong())).thenReturn(new Task());
@@ -118,7 +202,7 @@ public class EndpointTest {
 
     @Test
     public void shouldReturn200UpdatingExistingTask() throws Exception {
-        when(taskService.updateTask(any(Task.class), anyLong())).thenReturn(new Task());
+        when(taskService.updateTask(any(Task.class), anyLong(), any())).thenReturn(new Task());
         TaskDto dto = new TaskDto("Title", "Description", true, 1L);
 
         mockMvc.perform(put("/task/update/{id}", 1L).contentType(APPLICATION_JSON)
@@ -195,17 +279,22 @@ public class EndpointTest {
     }
 
     @Test void shouldReturnReturn400SettingTaskCompletedWithInvalidId() throws Exception {
-        when(taskService.markTaskCompleted(anyLong())).thenThrow(InvalidTaskRequestException.class);
+        when(taskService.markTaskCompleted(anyLong(), any())).thenThrow(InvalidTaskRequestException.class);
         mockMvc.perform(patch("/task/update/{id}/completed", 1L))
                 .andExpect(status().isBadRequest());
     }
 
     @Test void shouldReturnReturn400SettingTaskActiveWithInvalidId() throws Exception {
-        when(taskService.markTaskActive(anyLong())).thenThrow(InvalidTaskRequestException.class);
+        when(taskService.markTaskActive(anyLong(), any())).thenThrow(InvalidTaskRequestException.class);
         mockMvc.perform(patch("/task/update/{id}/active", 1L))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test void shouldReturn400SettingTaskCompletedWithMalformedIfMatch() throws Exception {
+        mockMvc.perform(patch("/task/update/{id}/completed", 1L).header("If-Match", "not-an-etag"))
+                .andExpect(status().isBadRequest());
+    }
+
     public static String asJason(Object obj) {
         try {
             return new ObjectMapper().writeValueAsString(obj);
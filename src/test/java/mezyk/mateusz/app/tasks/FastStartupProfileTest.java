@@ -0,0 +1,47 @@
+package mezyk.mateusz.app.tasks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mezyk.mateusz.app.tasks.integration.metrics.StartupReporter;
+import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("fast-startup")
+public class FastStartupProfileTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void shouldServeTasksWithLazyBeansAndReportStartupTime() {
+        //when
+        ResponseEntity<TaskDto> created =
+                restTemplate.postForEntity("/task/new", new CreateTaskDto("Arrancar rápido", null), TaskDto.class);
+        TaskDto found = restTemplate.getForObject("/task/" + created.getBody().getId(), TaskDto.class);
+        //then
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        assertEquals("Arrancar rápido", found.getTitle());
+        assertNotNull(meterRegistry.find(StartupReporter.STARTUP_TIME).timeGauge());
+    }
+
+    @Test
+    public void shouldNotScanSwaggerDocumentation() {
+        //when
+        ResponseEntity<String> apiDocs = restTemplate.getForEntity("/v2/api-docs", String.class);
+        //then
+        assertEquals(HttpStatus.NOT_FOUND, apiDocs.getStatusCode());
+    }
+
+}
@@ -0,0 +1,173 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskVersionConflictException;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.service.InMemoryTaskService;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class InMemoryTaskServiceTest {
+
+    private final InMemoryTaskService taskService = new InMemoryTaskService(event -> {
+    });
+
+    @Test
+    public void shouldSaveAndFindTask() {
+        //having
+        Task task = new Task("Crea aplicación", "Descripción");
+        //when
+        taskService.saveTask(task);
+        //then
+        Task found = taskService.findTaskById(task.getId());
+        assertEquals("Crea aplicación", found.getTitle());
+        assertEquals("Descripción", found.getDescription());
+        assertEquals(0L, found.getVersion());
+        assertFalse(found.getCompleted());
+    }
+
+    @Test
+    public void shouldPageTasksByStatus() {
+        //having
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new Task("Title " + i, null));
+        }
+        taskService.saveTasks(tasks);
+        taskService.markTaskCompleted(tasks.get(2).getId());
+        taskService.markTaskCompleted(tasks.get(7).getId());
+        //when
+        List<TaskView> firstActive = taskService.findActiveTasksAfter(null, 3);
+        List<TaskView> nextActive = taskService.findActiveTasksAfter(firstActive.get(2).getId(), 10);
+        List<TaskView> completed = taskService.findCompletedTasksAfter(null, 10);
+        //then
+        assertEquals(Arrays.asList(tasks.get(0).getId(), tasks.get(1).getId(), tasks.get(3).getId()), ids(firstActive));
+        assertEquals(5, nextActive.size());
+        assertEquals(Arrays.asList(tasks.get(2).getId(), tasks.get(7).getId()), ids(completed));
+        assertEquals(10, taskService.findTasksAfter(null, 100).size());
+    }
+
+    @Test
+    public void shouldQueryTasksByIdRangeAndTitlePrefix() {
+        //having
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            tasks.add(new Task("Title " + (9 - i), null));
+        }
+        taskService.saveTasks(tasks);
+        taskService.markTaskCompleted(tasks.get(4).getId());
+        //when
+        List<TaskView> byId = taskService.queryTasks(
+                TaskQuery.of(false, null, tasks.get(2).getId(), tasks.get(6).getId(), "id,desc", 3));
+        List<TaskView> byTitle = taskService.queryTasks(TaskQuery.of(true, "Title", null, null, "title", 10));
+        List<TaskView> allByTitle = taskService.queryTasks(TaskQuery.of(null, "Title", null, null, "title", 2));
+        //then
+        assertEquals(Arrays.asList(tasks.get(6).getId(), tasks.get(5).getId(), tasks.get(3).getId()), ids(byId));
+        assertEquals(Arrays.asList(tasks.get(4).getId()), ids(byTitle));
+        assertEquals(Arrays.asList(tasks.get(9).getId(), tasks.get(8).getId()), ids(allByTitle));
+    }
+
+    @Test
+    public void shouldKeepOrderAndLookupsAfterDeletingMostTasks() {
+        //having
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            tasks.add(new Task("Title " + i, "Description " + (i % 10)));
+        }
+        taskService.saveTasks(tasks);
+        List<Long> toDelete = tasks.stream().map(Task::getId).filter(id -> id % 5 != 0).collect(Collectors.toList());
+        //when
+        taskService.deleteTasksByIds(toDelete);
+        taskService.saveTasks(new ArrayList<>(Arrays.asList(new Task("Title new", null))));
+        //then
+        List<TaskView> page = taskService.findTasksAfter(null, 2000);
+        assertEquals(1001, page.size());
+        for (int i = 1; i < page.size(); i++) {
+            assertTrue(page.get(i - 1).getId() < page.get(i).getId());
+        }
+        assertEquals("Title 4", taskService.findTaskById(5L).getTitle());
+        assertThrows(TaskNotFoundException.class, () -> taskService.findTaskById(6L));
+        assertThrows(TaskNotFoundException.class, () -> taskService.deleteTaskById(6L));
+    }
+
+    @Test
+    public void shouldRejectStaleVersion() {
+        //having
+        Task task = taskService.saveTask(new Task("Title", "Description"));
+        taskService.markTaskCompleted(task.getId(), 0L);
+        //when
+        //then
+        assertThrows(TaskVersionConflictException.class, () -> taskService.markTaskActive(task.getId(), 0L));
+        assertEquals(1L, taskService.findTaskById(task.getId()).getVersion());
+    }
+
+    @Test
+    public void shouldReturnTasksChangedAndDeletedSinceRevision() {
+        //having
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            tasks.add(new Task("Title " + i, null));
+        }
+        taskService.saveTasks(tasks);
+        for (Task task : tasks) {
+            taskService.markTaskCompleted(task.getId());
+        }
+        TaskChanges page;
+        long lastSeen = 0;
+        int seen = 0;
+        do {
+            page = taskService.findChangesSince(lastSeen, 1000);
+            lastSeen = page.getRevision();
+            seen += page.getChanged().size();
+        } while (page.getChanged().size() == 1000);
+        assertEquals(3000, seen);
+        //when
+        taskService.markTaskActive(tasks.get(10).getId());
+        taskService.deleteTaskById(tasks.get(20).getId());
+        TaskChanges changes = taskService.findChangesSince(lastSeen, 1000);
+        //then
+        assertEquals(1, changes.getChanged().size());
+        assertEquals(tasks.get(10).getId(), changes.getChanged().get(0).getId());
+        assertFalse(changes.getChanged().get(0).getCompleted());
+        assertEquals(Arrays.asList(tasks.get(20).getId()), changes.getDeleted());
+        assertTrue(taskService.findChangesSince(changes.getRevision() + 1, 10).getReset());
+    }
+
+    @Test
+    public void shouldPruneOldDeletionsAndResetCursorsBehindThem() {
+        //having
+        Task kept = taskService.saveTask(new Task("Kept", null));
+        long beforeDeletes = lastRevision();
+        //when
+        Task last = null;
+        for (int i = 0; i < 5000; i++) {
+            last = taskService.saveTask(new Task("Title " + i, null));
+            taskService.deleteTaskById(last.getId());
+        }
+        TaskChanges recent = taskService.findChangesSince(lastRevision() - 10, 100);
+        //then
+        assertTrue(taskService.findChangesSince(beforeDeletes, 10).getReset());
+        assertFalse(recent.getReset());
+        assertEquals(5, recent.getDeleted().size());
+        assertEquals(last.getId(), recent.getDeleted().get(4));
+        assertEquals("Kept", taskService.findTaskById(kept.getId()).getTitle());
+    }
+
+    private long lastRevision() {
+        return taskService.findChangesSince(Long.MAX_VALUE, 1).getRevision();
+    }
+
+    private static List<Long> ids(List<TaskView> views) {
+        return views.stream().map(TaskView::getId).collect(Collectors.toList());
+    }
+
+}
@@ -0,0 +1,12 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.repository.JournalTaskRepository;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        JournalTaskRepository.STORAGE_PROPERTY + "=journal",
+        "tasks.journal.directory=target/journal/end-to-end-test"
+})
+public class JournalEndToEndTest extends EndToEndTest {
+
+}
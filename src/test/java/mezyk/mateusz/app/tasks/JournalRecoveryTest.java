@@ -0,0 +1,354 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.journal.JournalRecord;
+import mezyk.mateusz.app.tasks.core.data.journal.TaskJournal;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskStatusCount;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
+import mezyk.mateusz.app.tasks.core.data.repository.JournalTaskRepository;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskTombstoneRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskRevisions;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+public class JournalRecoveryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void shouldRecoverTasksFromSnapshotAndLog() throws Exception {
+        //having
+        JournalTaskRepository repository = open(2);
+        Task first = repository.save(new Task("Title A", "Description A"));
+        Task second = repository.save(new Task("Title B", null));
+        Task third = repository.save(new Task("Título C", "Descripción C"));
+        repository.updateCompleted(TenantContext.DEFAULT_TENANT, third.getId(), true, 7L);
+        repository.removeById(TenantContext.DEFAULT_TENANT, second.getId());
+        repository.close();
+        //when
+        JournalTaskRepository recovered = open(2);
+        //then
+        assertEquals(2, recovered.count());
+        assertEquals("Title A", recovered.findById(first.getId()).get().getTitle());
+        assertFalse(recovered.existsById(second.getId()));
+        Task recoveredThird = recovered.findById(third.getId()).get();
+        assertEquals("Descripción C", recoveredThird.getDescription());
+        assertTrue(recoveredThird.getCompleted());
+        assertEquals(1L, recoveredThird.getVersion());
+        assertEquals(7L, recoveredThird.getRevision());
+        assertEquals(7L, recovered.findMaxRevision());
+        assertTrue(recovered.save(new Task("Title D", null)).getId() > third.getId());
+        recovered.close();
+    }
+
+    @Test
+    public void shouldDiscardTornRecordAtTheEndOfTheLog() throws Exception {
+        //having
+        JournalTaskRepository repository = open(1000);
+        Task task = repository.save(new Task("Title A", "Description A"));
+        crash(repository);
+        try (FileChannel log = FileChannel.open(directory.resolve(TaskJournal.LOG_FILE), StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 42, 1, 2, 3}));
+        }
+        //when
+        JournalTaskRepository recovered = open(1000);
+        //then
+        assertEquals(1, recovered.count());
+        assertEquals("Title A", recovered.findById(task.getId()).get().getTitle());
+        recovered.close();
+    }
+
+    @Test
+    public void shouldDiscardTornRecordWithGarbageLengthAtTheEndOfTheLog() throws Exception {
+        //having
+        JournalTaskRepository repository = open(1000);
+        Task task = repository.save(new Task("Title A", "Description A"));
+        crash(repository);
+        long validSize = Files.size(directory.resolve(TaskJournal.LOG_FILE));
+        try (FileChannel log = FileChannel.open(directory.resolve(TaskJournal.LOG_FILE), StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.allocate(12).putInt(Integer.MAX_VALUE).putInt(7).putInt(3).flip());
+        }
+        //when
+        JournalTaskRepository recovered = open(1000);
+        //then
+        assertEquals(1, recovered.count());
+        assertEquals("Title A", recovered.findById(task.getId()).get().getTitle());
+        assertEquals(validSize, Files.size(directory.resolve(TaskJournal.LOG_FILE)));
+        recovered.close();
+    }
+
+    @Test
+    public void shouldKeepWrittenChangeInSnapshotWhileANewerChangeIsPending() throws Exception {
+        //having
+        ControlledJournal journal = new ControlledJournal(directory);
+        JournalTaskRepository repository = new JournalTaskRepository(journal);
+        repository.recover();
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        Future<Task> saved = executor.submit(() -> repository.save(new Task("Title A", null)));
+        journal.awaitWrites(1).complete(null);
+        Long id = saved.get(5, TimeUnit.SECONDS).getId();
+        Future<Task> blocking = executor.submit(() -> repository.save(new Task("Title B", null)));
+        journal.awaitWrites(2);
+        Future<Integer> completed = executor.submit(
+                () -> repository.updateCompleted(TenantContext.DEFAULT_TENANT, id, true, 7L));
+        journal.awaitWrites(3).complete(null);
+        Future<Integer> renamed = executor.submit(() -> repository.updateContent(TenantContext.DEFAULT_TENANT, id,
+                "Title C", null, false, 8L));
+        journal.awaitWrites(4);
+        //when
+        TaskJournal.Snapshot snapshot = journal.snapshot();
+        //then
+        Task snapshotted = snapshot.getTasks().stream().filter(task -> task.getId().equals(id)).findFirst().get();
+        assertTrue(snapshotted.getCompleted());
+        assertEquals(7L, snapshotted.getRevision());
+        journal.awaitWrites(2).complete(null);
+        journal.awaitWrites(4).complete(null);
+        blocking.get(5, TimeUnit.SECONDS);
+        assertEquals(1, completed.get(5, TimeUnit.SECONDS));
+        assertEquals(1, renamed.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldServeTenantReadsFromTheTenantIndexAfterRecovery() throws Exception {
+        //having
+        JournalTaskRepository repository = open(2);
+        Task first = repository.save(tenantTask("tenant-a", "Title A"));
+        Task other = repository.save(tenantTask("tenant-b", "Title B"));
+        Task second = repository.save(tenantTask("tenant-a", "Title C"));
+        Task third = repository.save(tenantTask("tenant-a", "Title D"));
+        repository.updateCompleted("tenant-a", second.getId(), true, 7L);
+        repository.close();
+        //when
+        JournalTaskRepository recovered = open(2);
+        //then
+        assertEquals(List.of("tenant-a", "tenant-b"), recovered.findTenants());
+        assertEquals(List.of(first.getId(), second.getId(), third.getId()), recovered.findAllByTenant("tenant-a")
+                .stream().map(Task::getId).collect(Collectors.toList()));
+        assertEquals(List.of(third.getId()), recovered.findActiveViewsAfter("tenant-a", first.getId(),
+                PageRequest.of(0, 10)).stream().map(TaskView::getId).collect(Collectors.toList()));
+        assertEquals(List.of(second.getId()), recovered.findViewsAfter("tenant-a", first.getId(),
+                PageRequest.of(0, 1)).stream().map(TaskView::getId).collect(Collectors.toList()));
+        assertEquals(3, recovered.countByStatus("tenant-a").stream().mapToLong(TaskStatusCount::getCount).sum());
+        assertEquals(0, recovered.updateCompleted("tenant-a", other.getId(), true, 8L));
+        assertEquals(1, recovered.removeById("tenant-b", other.getId()));
+        assertEquals(List.of("tenant-a"), recovered.findTenants());
+        assertTrue(recovered.findAllByTenant("tenant-b").isEmpty());
+        recovered.close();
+    }
+
+    @Test
+    public void shouldReplayRecordsWrittenWithoutRevision() throws Exception {
+        //having
+        byte[] title = "Title A".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(1 + Long.BYTES + Long.BYTES + 1 + Integer.BYTES + title.length
+                + Integer.BYTES);
+        payload.put((byte) JournalRecord.Type.SAVE.ordinal()).putLong(5L).putLong(2L).put((byte) 1)
+                .putInt(title.length).put(title).putInt(-1);
+        writeLog(payload.array());
+        //when
+        JournalTaskRepository recovered = open(1000);
+        //then
+        Task task = recovered.findById(5L).get();
+        assertEquals("Title A", task.getTitle());
+        assertNull(task.getDescription());
+        assertTrue(task.getCompleted());
+        assertEquals(2L, task.getVersion());
+        assertNull(task.getRevision());
+        assertEquals(TenantContext.DEFAULT_TENANT, task.getTenant());
+        assertTrue(recovered.save(new Task("Title B", null)).getId() > 5L);
+        recovered.close();
+    }
+
+    @Test
+    public void shouldFailToOpenOnUnreadableRecordWithValidChecksum() throws Exception {
+        //having
+        ByteBuffer payload = ByteBuffer.allocate(1 + Long.BYTES + Long.BYTES + 1 + Integer.BYTES);
+        payload.put((byte) JournalRecord.Type.SAVE.ordinal()).putLong(5L).putLong(2L).put((byte) 1)
+                .putInt(Integer.MAX_VALUE);
+        writeLog(payload.array());
+        //when
+        //then
+        assertThrows(IOException.class, () -> open(1000));
+    }
+
+    @Test
+    public void shouldRejectAppendsOnceTheWriterHasFailed() throws Exception {
+        //having
+        TaskJournal journal = new TaskJournal(directory, false, 1);
+        journal.open(record -> {
+        }, () -> {
+            throw new IllegalStateException("Snapshot source failed");
+        });
+        journal.append(List.of(JournalRecord.delete(1L))).get(5, TimeUnit.SECONDS);
+        //when
+        ExecutionException failure = null;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (failure == null && System.nanoTime() < deadline) {
+            try {
+                journal.append(List.of(JournalRecord.delete(1L))).get(5, TimeUnit.SECONDS);
+            } catch (IllegalStateException e) {
+                failure = new ExecutionException(e);
+            } catch (ExecutionException e) {
+                failure = e;
+            }
+        }
+        //then
+        assertNotNull(failure);
+        assertTrue(failure.getCause() instanceof IllegalStateException);
+        assertThrows(IllegalStateException.class, () -> journal.append(List.of(JournalRecord.delete(2L))));
+        journal.close();
+    }
+
+    @Test
+    public void shouldNotApplyWritesThatCanNotBeAppended() throws Exception {
+        //having
+        JournalTaskRepository repository = open(1000);
+        Task task = repository.save(new Task("Title A", "Description A"));
+        repository.close();
+        //when
+        assertThrows(DataAccessResourceFailureException.class, () -> repository.save(new Task("Title B", null)));
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> repository.updateCompleted(TenantContext.DEFAULT_TENANT, task.getId(), true, 7L));
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> repository.removeById(TenantContext.DEFAULT_TENANT, task.getId()));
+        //then
+        assertEquals(1, repository.count());
+        Task stored = repository.findById(task.getId()).get();
+        assertFalse(stored.getCompleted());
+        assertEquals(0L, stored.getVersion());
+    }
+
+    @Test
+    public void shouldNotServeChangesFromBeforeRestartBecauseTombstonesAreNotJournaled() throws Exception {
+        //having
+        JournalTaskRepository repository = open(1000);
+        Task task = repository.save(new Task("Title", "Description"));
+        repository.updateCompleted(TenantContext.DEFAULT_TENANT, task.getId(), true, 7L);
+        repository.close();
+        JournalTaskRepository recovered = open(1000);
+        TaskRevisions revisions = new TaskRevisions(recovered, mock(TaskTombstoneRepository.class), new TenantShards(1),
+                "journal");
+        //when
+        revisions.init();
+        //then
+        assertEquals(7L, revisions.getHorizon());
+        assertEquals(8L, revisions.reserve(1));
+        recovered.close();
+    }
+
+    @Test
+    public void shouldServeChangesFromTheStartWhenTombstonesAreStoredWithTasks() throws Exception {
+        //having
+        JournalTaskRepository repository = open(1000);
+        Task task = repository.save(new Task("Title", "Description"));
+        repository.updateCompleted(TenantContext.DEFAULT_TENANT, task.getId(), true, 7L);
+        TaskRevisions revisions = new TaskRevisions(repository, mock(TaskTombstoneRepository.class), new TenantShards(1),
+                "jpa");
+        //when
+        revisions.init();
+        //then
+        assertEquals(0L, revisions.getHorizon());
+        assertEquals(7L, revisions.stableRevision());
+        repository.close();
+    }
+
+    private static final class ControlledJournal extends TaskJournal {
+
+        private final List<CompletableFuture<Void>> writes = new CopyOnWriteArrayList<>();
+        private Supplier<Snapshot> snapshotSource;
+
+        private ControlledJournal(Path directory) {
+            super(directory, false, 1);
+        }
+
+        @Override
+        public long open(Consumer<JournalRecord> replay, Supplier<Snapshot> snapshotSource) {
+            this.snapshotSource = snapshotSource;
+            return 1;
+        }
+
+        @Override
+        public CompletableFuture<Void> append(List<JournalRecord> records) {
+            CompletableFuture<Void> written = new CompletableFuture<>();
+            writes.add(written);
+            return written;
+        }
+
+        private CompletableFuture<Void> awaitWrites(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (writes.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(1);
+            }
+            return writes.get(count - 1);
+        }
+
+        private Snapshot snapshot() {
+            return snapshotSource.get();
+        }
+
+    }
+
+    private static Task tenantTask(String tenant, String title) {
+        Task task = new Task(title, null);
+        task.setTenant(tenant);
+        return task;
+    }
+
+    private JournalTaskRepository open(int snapshotInterval) throws Exception {
+        JournalTaskRepository repository = new JournalTaskRepository(directory.toString(), true, snapshotInterval);
+        repository.recover();
+        return repository;
+    }
+
+    private void crash(JournalTaskRepository repository) throws Exception {
+        Path log = directory.resolve(TaskJournal.LOG_FILE);
+        byte[] written = Files.readAllBytes(log);
+        repository.close();
+        Files.deleteIfExists(directory.resolve(TaskJournal.SNAPSHOT_FILE));
+        Files.write(log, written);
+    }
+
+    private void writeLog(byte[] payload) throws Exception {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(Integer.BYTES + Integer.BYTES + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        Files.createDirectories(directory);
+        try (FileChannel log = FileChannel.open(directory.resolve(TaskJournal.LOG_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE)) {
+            log.write(frame);
+        }
+    }
+
+}
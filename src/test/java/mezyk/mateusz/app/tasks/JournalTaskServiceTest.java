@@ -0,0 +1,12 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.repository.JournalTaskRepository;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = {
+        JournalTaskRepository.STORAGE_PROPERTY + "=journal",
+        "tasks.journal.directory=target/journal/service-test"
+})
+public class JournalTaskServiceTest extends TaskServiceTest {
+
+}
@@ -0,0 +1,9 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.integration.service.TaskMapper;
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(properties = TaskMapper.IMPLEMENTATION_PROPERTY + "=modelmapper")
+public class ModelMapperTaskConversionTest extends TaskConversionTest {
+
+}
@@ -0,0 +1,35 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.integration.config.StatementCacheConfig;
+import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = StatementCacheConfig.ENABLED_PROPERTY + "=true")
+public class StatementCacheEndToEndTest extends EndToEndTest {
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void shouldExposeStatementCacheMetrics() {
+        //having
+        ResponseEntity<TaskDto> created =
+                restTemplate.postForEntity("/task/new", new CreateTaskDto("Title", "Description"), TaskDto.class);
+        restTemplate.getForEntity("/task/{id}", String.class, created.getBody().getId());
+        //when
+        ResponseEntity<String> hitRatio =
+                restTemplate.getForEntity("/actuator/metrics/" + StatementCacheConfig.CACHE_HIT_RATIO, String.class);
+        //then
+        assertEquals(HttpStatus.OK, hitRatio.getStatusCode());
+    }
+
+}
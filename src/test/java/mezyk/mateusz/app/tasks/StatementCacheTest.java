@@ -0,0 +1,141 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.jdbc.StatementCachingDataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StatementCacheTest {
+
+    private static final String SELECT = "SELECT title FROM note WHERE id = ?";
+
+    private StatementCachingDataSource dataSource;
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws SQLException {
+        JdbcDataSource h2 = new JdbcDataSource();
+        h2.setURL("jdbc:h2:mem:statementcache;DB_CLOSE_DELAY=-1");
+        dataSource = new StatementCachingDataSource(h2, 2);
+        connection = dataSource.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE note (id BIGINT PRIMARY KEY, title VARCHAR(255))");
+            statement.execute("INSERT INTO note VALUES (1, 'uno'), (2, 'dos')");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE note");
+        }
+        connection.close();
+    }
+
+    @Test
+    public void shouldReuseClosedStatementForSameSqlOnSameConnection() throws SQLException {
+        //having
+        PreparedStatement first = connection.prepareStatement(SELECT);
+        String firstTitle = title(first, 1);
+        PreparedStatement firstDelegate = first.unwrap(PreparedStatement.class);
+        first.close();
+        //when
+        PreparedStatement second = connection.prepareStatement(SELECT);
+        String secondTitle = title(second, 2);
+        //then
+        assertEquals("uno", firstTitle);
+        assertEquals("dos", secondTitle);
+        assertTrue(first.isClosed());
+        assertSame(firstDelegate, second.unwrap(PreparedStatement.class));
+        assertThrows(SQLException.class, () -> first.setLong(1, 1L));
+        assertEquals(1, dataSource.getHits());
+        assertEquals(1, dataSource.getMisses());
+        second.close();
+        assertEquals(1, dataSource.getCachedStatements());
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedStatementAndSkipStatementsWithChangedState() throws SQLException {
+        //having
+        connection.prepareStatement(SELECT).close();
+        connection.prepareStatement("SELECT id FROM note").close();
+        connection.prepareStatement("SELECT COUNT(*) FROM note").close();
+        PreparedStatement limited = connection.prepareStatement("SELECT id FROM note");
+        limited.setMaxRows(1);
+        //when
+        limited.close();
+        connection.prepareStatement(SELECT).close();
+        //then
+        assertEquals(1, dataSource.getEvictions());
+        assertEquals(1, dataSource.getHits());
+        assertEquals(4, dataSource.getMisses());
+        assertEquals(2, dataSource.getCachedStatements());
+    }
+
+    @Test
+    public void shouldCloseCachedStatementsWithConnection() throws SQLException {
+        //having
+        Connection other = dataSource.getConnection();
+        PreparedStatement statement = other.prepareStatement(SELECT);
+        PreparedStatement delegate = statement.unwrap(PreparedStatement.class);
+        statement.close();
+        //when
+        other.close();
+        //then
+        assertTrue(delegate.isClosed());
+        assertEquals(0, dataSource.getCachedStatements());
+    }
+
+    @Test
+    public void shouldCloseOpenResultSetBeforeReusingStatement() throws SQLException {
+        //having
+        PreparedStatement first = connection.prepareStatement(SELECT);
+        first.setLong(1, 1L);
+        ResultSet leftOpen = first.executeQuery();
+        first.close();
+        //when
+        PreparedStatement second = connection.prepareStatement(SELECT);
+        //then
+        assertTrue(leftOpen.isClosed());
+        ResultSet current = second.unwrap(PreparedStatement.class).getResultSet();
+        assertTrue(current == null || current.isClosed());
+        assertEquals("dos", title(second, 2));
+        second.close();
+        assertEquals(1, dataSource.getHits());
+    }
+
+    @Test
+    public void shouldReturnCachingStatementFromResultSet() throws SQLException {
+        //having
+        PreparedStatement statement = connection.prepareStatement(SELECT);
+        statement.setLong(1, 1L);
+        ResultSet resultSet = statement.executeQuery();
+        PreparedStatement delegate = statement.unwrap(PreparedStatement.class);
+        //when
+        resultSet.getStatement().close();
+        //then
+        assertSame(statement, resultSet.getStatement());
+        assertTrue(statement.isClosed());
+        assertFalse(delegate.isClosed());
+        assertEquals(1, dataSource.getCachedStatements());
+        assertEquals("uno", title(connection.prepareStatement(SELECT), 1));
+    }
+
+    private static String title(PreparedStatement statement, long id) throws SQLException {
+        statement.setLong(1, id);
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getString(1);
+        }
+    }
+
+}
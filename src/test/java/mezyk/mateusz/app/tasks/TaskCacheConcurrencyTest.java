@@ -0,0 +1,102 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:cacheconcurrency")
+public class TaskCacheConcurrencyTest {
+
+    @Autowired
+    private TaskServiceImpl taskService;
+
+    @Autowired
+    private TaskRepository repository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @AfterEach
+    public void clean() {
+        repository.deleteAll();
+    }
+
+    @TestConfiguration
+    static class DelegatingRepositoryConfig {
+
+        private static TaskRepository target;
+
+        @Bean
+        static BeanPostProcessor delegatingTaskRepository() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (!(bean instanceof TaskRepository)) {
+                        return bean;
+                    }
+                    target = (TaskRepository) bean;
+                    return mock(TaskRepository.class, delegatesTo(bean));
+                }
+            };
+        }
+
+    }
+
+    @Test
+    public void shouldNotCacheTaskReadBeforeAConcurrentUpdateCommitted() throws Exception {
+        //having
+        Task task = repository.save(new Task("Old title", "Description"));
+        CountDownLatch loaded = new CountDownLatch(1);
+        CountDownLatch updated = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Thread[] reader = new Thread[1];
+        doAnswer(invocation -> {
+            Object result = delegatesTo(DelegatingRepositoryConfig.target).answer(invocation);
+            if (Thread.currentThread() == reader[0]) {
+                loaded.countDown();
+                assertTrue(updated.await(5, TimeUnit.SECONDS));
+            }
+            return result;
+        }).when(repository).findByTenantAndId(any(), any());
+        //when
+        Future<Task> staleRead = executor.submit(() -> {
+            reader[0] = Thread.currentThread();
+            return taskService.findTaskById(task.getId());
+        });
+        assertTrue(loaded.await(5, TimeUnit.SECONDS));
+        Task update = new Task("New title", "Description");
+        update.setId(task.getId());
+        taskService.updateTask(update, task.getId());
+        updated.countDown();
+        //then
+        assertEquals("Old title", staleRead.get(5, TimeUnit.SECONDS).getTitle());
+        Cache.ValueWrapper cached = cacheManager.getCache(TaskServiceImpl.TASK_CACHE)
+                .get(TenantContext.cacheKey(task.getId()));
+        assertNull(cached);
+        assertEquals("New title", taskService.findTaskById(task.getId()).getTitle());
+        executor.shutdown();
+    }
+
+}
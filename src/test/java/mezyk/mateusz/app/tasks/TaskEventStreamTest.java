@@ -0,0 +1,167 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.integration.model.TaskEventDto;
+import mezyk.mateusz.app.tasks.integration.service.TaskEventStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskEventStreamTest {
+
+    private TaskEventStream taskEventStream;
+
+    @AfterEach
+    public void close() {
+        taskEventStream.close();
+    }
+
+    @Test
+    public void shouldCoalescePendingEventsOfSlowSubscriberByTask() throws Exception {
+        //having
+        taskEventStream = new TaskEventStream(100, 10, true, 2);
+        RecordingEmitter emitter = new RecordingEmitter(true);
+        taskEventStream.subscribe(emitter, null);
+        taskEventStream.onTaskChanged(saved(1L, "A"));
+        emitter.awaitSending();
+        //when
+        taskEventStream.onTaskChanged(saved(1L, "B"));
+        taskEventStream.onTaskChanged(saved(1L, "C"));
+        taskEventStream.onTaskChanged(TaskChangedEvent.deleted(TenantContext.DEFAULT_TENANT, 2L));
+        emitter.release();
+        //then
+        List<TaskEventDto> events = emitter.awaitEvents(3);
+        assertEquals("A", events.get(0).getTitle());
+        assertEquals("C", events.get(1).getTitle());
+        assertEquals(3L, events.get(1).getSequence());
+        assertEquals(TaskEventStream.DELETED, events.get(2).getType());
+        assertEquals(2L, events.get(2).getId());
+        assertFalse(emitter.completed);
+    }
+
+    @Test
+    public void shouldDisconnectSubscriberWhoseBufferOverflows() throws Exception {
+        //having
+        taskEventStream = new TaskEventStream(100, 2, true, 2);
+        RecordingEmitter emitter = new RecordingEmitter(true);
+        taskEventStream.subscribe(emitter, null);
+        taskEventStream.onTaskChanged(saved(1L, "A"));
+        emitter.awaitSending();
+        //when
+        taskEventStream.onTaskChanged(saved(2L, "B"));
+        taskEventStream.onTaskChanged(saved(3L, "C"));
+        taskEventStream.onTaskChanged(saved(4L, "D"));
+        emitter.release();
+        //then
+        assertTrue(emitter.completion.await(5, TimeUnit.SECONDS));
+        assertEquals(1, emitter.events.size());
+    }
+
+    @Test
+    public void shouldReplayEventsAfterLastEventIdOrAskForReset() throws Exception {
+        //having
+        taskEventStream = new TaskEventStream(3, 10, true, 2);
+        for (long id = 1; id <= 5; id++) {
+            taskEventStream.onTaskChanged(saved(id, "Title " + id));
+        }
+        RecordingEmitter resumed = new RecordingEmitter(false);
+        RecordingEmitter tooOld = new RecordingEmitter(false);
+        //when
+        taskEventStream.subscribe(resumed, 3L);
+        taskEventStream.subscribe(tooOld, 1L);
+        //then
+        List<TaskEventDto> replayed = resumed.awaitEvents(2);
+        assertEquals(4L, replayed.get(0).getSequence());
+        assertEquals(5L, replayed.get(1).getSequence());
+        TaskEventDto reset = tooOld.awaitEvents(1).get(0);
+        assertEquals(TaskEventStream.RESET, reset.getType());
+        assertEquals(5L, reset.getSequence());
+    }
+
+    @Test
+    public void shouldDeliverEventsToEverySubscriberThroughFixedDispatcher() throws Exception {
+        //having
+        taskEventStream = new TaskEventStream(100, 10, true, 1);
+        List<RecordingEmitter> emitters = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            RecordingEmitter emitter = new RecordingEmitter(false);
+            taskEventStream.subscribe(emitter, null);
+            emitters.add(emitter);
+        }
+        //when
+        taskEventStream.onTaskChanged(saved(1L, "A"));
+        taskEventStream.onTaskChanged(saved(2L, "B"));
+        //then
+        for (RecordingEmitter emitter : emitters) {
+            assertEquals("B", emitter.awaitEvents(2).get(1).getTitle());
+        }
+    }
+
+    private static TaskChangedEvent saved(Long id, String title) {
+        Task task = new Task(title, null);
+        task.setId(id);
+        return TaskChangedEvent.saved(task);
+    }
+
+    private static final class RecordingEmitter extends SseEmitter {
+
+        private final List<TaskEventDto> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch released;
+        private final CountDownLatch completion = new CountDownLatch(1);
+        private volatile boolean completed;
+
+        private RecordingEmitter(boolean blocking) {
+            this.released = new CountDownLatch(blocking ? 1 : 0);
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sending.countDown();
+            try {
+                released.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            builder.build().stream()
+                    .map(DataWithMediaType::getData)
+                    .filter(TaskEventDto.class::isInstance)
+                    .forEach(data -> events.add((TaskEventDto) data));
+        }
+
+        @Override
+        public void complete() {
+            completed = true;
+            completion.countDown();
+        }
+
+        private void awaitSending() throws InterruptedException {
+            assertTrue(sending.await(5, TimeUnit.SECONDS));
+        }
+
+        private void release() {
+            released.countDown();
+        }
+
+        private List<TaskEventDto> awaitEvents(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (events.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(count, events.size());
+            return events;
+        }
+
+    }
+
+}
@@ -1,19 +1,40 @@
 package mezyk.mateusz.app.tasks;
 
+import mezyk.mateusz.app.tasks.core.data.event.TaskChangedEvent;
 import mezyk.mateusz.app.tasks.core.data.exception.InvalidTaskRequestException;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskDataViolationException;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskVersionConflictException;
 import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.model.TaskChanges;
+import mezyk.mateusz.app.tasks.core.data.model.TaskQuery;
+import mezyk.mateusz.app.tasks.core.data.model.TaskView;
 import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
 import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import mezyk.mateusz.app.tasks.core.data.service.TaskSearchService;
+import mezyk.mateusz.app.tasks.core.data.service.TaskSearchServiceImpl;
+import mezyk.mateusz.app.tasks.core.data.service.TaskService;
 import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 @SpringBootTest
 public class TaskServiceTest {
@@ -25,9 +46,18 @@ public class TaskServiceTest {
     @Autowired
     private TaskServiceImpl taskService;
 
+    @Autowired
+    private TaskSearchService taskSearchService;
+
     @Autowired
     private TaskRepository repository;
 
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
     @AfterEach
     public void clean() {
         repository.deleteAll();
@@ -79,6 +109,129 @@ public class TaskServiceTest {
         assertTrue(allTasks.stream().anyMatch(task -> titleThree.equals(task.getTitle()) && descriptionThree.equals(task.getDescription())));
     }
 
+    @Test
+    public void shouldSaveTasksInBulk() {
+        //having
+        List<Task> tasks = Arrays.asList(new Task("title One", "description One"), new Task("title Two", "description Two"));
+        //when
+        List<Task> savedTasks = taskService.saveTasks(tasks);
+        //then
+        assertEquals(2, repository.count());
+        assertTrue(savedTasks.stream().allMatch(task -> task.getId() != null && repository.existsById(task.getId())));
+    }
+
+    @Test
+    public void shouldUpdateTasksInBulk() {
+        //having
+        Task first = repository.save(createTestTask());
+        Task second = repository.save(createTestTask());
+        first.setTitle("title One");
+        second.setCompleted(true);
+        //when
+        taskService.updateTasks(Arrays.asList(first, second));
+        //then
+        assertEquals("title One", repository.findById(first.getId()).get().getTitle());
+        assertTrue(repository.findById(second.getId()).get().getCompleted());
+    }
+
+    @Test
+    public void shouldReturnStoredTasksFromBulkUpdateInRequestOrder() {
+        //having
+        Task first = repository.save(createTestTask());
+        Task second = repository.save(createTestTask());
+        Task secondUpdate = new Task("title Two", null);
+        secondUpdate.setId(second.getId());
+        Task firstUpdate = new Task("title One", null);
+        firstUpdate.setId(first.getId());
+        firstUpdate.setCompleted(true);
+        //when
+        List<Task> updatedTasks = taskService.updateTasks(Arrays.asList(secondUpdate, firstUpdate));
+        //then
+        assertEquals(2, updatedTasks.size());
+        assertEquals(second.getId(), updatedTasks.get(0).getId());
+        assertEquals("title Two", updatedTasks.get(0).getTitle());
+        assertEquals(first.getId(), updatedTasks.get(1).getId());
+        assertTrue(updatedTasks.get(1).getCompleted());
+        for (Task updatedTask : updatedTasks) {
+            Task stored = repository.findById(updatedTask.getId()).get();
+            assertEquals(stored.getVersion(), updatedTask.getVersion());
+            assertEquals(stored.getRevision(), updatedTask.getRevision());
+            assertNotNull(updatedTask.getRevision());
+        }
+        assertEquals(first.getVersion() + 1, updatedTasks.get(1).getVersion());
+    }
+
+    @Test
+    public void shouldNotUpdateAnyTaskInBulkWhenOneDoesNotExist() {
+        //having
+        Task existingTask = repository.save(createTestTask());
+        existingTask.setTitle("title One");
+        Task missingTask = createTestTask();
+        missingTask.setId(existingTask.getId() + 50);
+        //when
+        assertThrows(TaskNotFoundException.class, () -> taskService.updateTasks(Arrays.asList(existingTask, missingTask)));
+        //then
+        assertEquals(TASK_TITLE, repository.findById(existingTask.getId()).get().getTitle());
+    }
+
+    @Test
+    public void shouldDeleteTasksInBulk() {
+        //having
+        Task first = repository.save(createTestTask());
+        Task second = repository.save(createTestTask());
+        Task taskToKeep = repository.save(createTestTask());
+        //when
+        taskService.deleteTasksByIds(Arrays.asList(first.getId(), second.getId()));
+        //then
+        List<Task> allTasks = repository.findAll();
+        assertEquals(1, allTasks.size());
+        assertEquals(taskToKeep.getId(), allTasks.get(0).getId());
+    }
+
+    @Test
+    public void shouldNotDeleteAnyTaskInBulkWhenOneDoesNotExist() {
+        //having
+        Task existingTask = repository.save(createTestTask());
+        //when
+        assertThrows(TaskNotFoundException.class,
+                () -> taskService.deleteTasksByIds(Arrays.asList(existingTask.getId(), existingTask.getId() + 50)));
+        //then
+        assertTrue(repository.existsById(existingTask.getId()));
+    }
+
+    @Test
+    public void shouldNotDeleteAnyTaskInBulkWhenOneInALaterChunkDoesNotExist() {
+        //having
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i <= TaskServiceImpl.BULK_CHUNK_SIZE; i++) {
+            tasks.add(createTestTask());
+        }
+        List<Long> ids = new ArrayList<>();
+        repository.saveAll(tasks).forEach(task -> ids.add(task.getId()));
+        ids.add(ids.get(ids.size() - 1) + 50);
+        //when
+        assertThrows(TaskNotFoundException.class, () -> taskService.deleteTasksByIds(ids));
+        //then
+        assertEquals(tasks.size(), repository.count());
+    }
+
+    @Test
+    public void shouldDeleteTasksInBulkWhenTheSameIdIsInTwoChunks() {
+        //having
+        Task first = repository.save(createTestTask());
+        Task taskToKeep = repository.save(createTestTask());
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i <= TaskServiceImpl.BULK_CHUNK_SIZE; i++) {
+            ids.add(first.getId());
+        }
+        //when
+        taskService.deleteTasksByIds(ids);
+        //then
+        List<Task> allTasks = repository.findAll();
+        assertEquals(1, allTasks.size());
+        assertEquals(taskToKeep.getId(), allTasks.get(0).getId());
+    }
+
     @Test
     public void shouldUpdateTask() {
         //having
@@ -97,6 +250,48 @@ public class TaskServiceTest {
         assertTrue(updatedTask.getCompleted());
     }
 
+    @Test
+    public void shouldIncrementVersionOnUpdate() {
+        //having
+        Task savedTask = repository.save(createTestTask());
+        Long version = savedTask.getVersion();
+        //when
+        Task updatedTask = taskService.updateTask(savedTask, savedTask.getId(), version);
+        //then
+        assertEquals(version + 1, updatedTask.getVersion());
+        assertEquals(version + 1, repository.findById(savedTask.getId()).get().getVersion());
+    }
+
+    @Test
+    public void shouldReturnNewVersionOnUpdateWithoutExpectedVersion() {
+        //having
+        Task savedTask = repository.save(createTestTask());
+        Long version = savedTask.getVersion();
+        //when
+        Task updatedTask = taskService.updateTask(savedTask, savedTask.getId());
+        //then
+        assertEquals(version + 1, updatedTask.getVersion());
+        assertEquals(version + 1, repository.findById(savedTask.getId()).get().getVersion());
+    }
+
+    @Test
+    public void shouldThrowExceptionOnUpdateWithStaleVersion() {
+        //having
+        Task savedTask = repository.save(createTestTask());
+        Long staleVersion = savedTask.getVersion();
+        taskService.markTaskCompleted(savedTask.getId());
+        //when
+        savedTask.setTitle("Entrega el proyecto");
+        assertThrows(TaskVersionConflictException.class, () -> taskService.updateTask(savedTask, savedTask.getId(), staleVersion));
+        //then
+        assertEquals(TASK_TITLE, repository.findById(savedTask.getId()).get().getTitle());
+    }
+
+    @Test
+    public void shouldThrowNotFoundRatherThanConflictWhenVersionedTaskDoesNotExist() {
+        assertThrows(TaskNotFoundException.class, () -> taskService.markTaskActive(Long.MAX_VALUE, 0L));
+    }
+
     @Test
     public void shouldFindActiveTasks() {
         //having
@@ -138,6 +333,93 @@ public class TaskServiceTest {
         assertTrue(foundTask.getCompleted());
     }
 
+    @Test
+    public void shouldCacheTaskFoundById() {
+        //having
+        Task task = repository.save(createTestTask());
+        //when
+        taskService.findTaskById(task.getId());
+        //then
+        Cache.ValueWrapper cached = cacheManager.getCache(TaskServiceImpl.TASK_CACHE)
+                .get(TenantContext.cacheKey(task.getId()));
+        assertNotNull(cached);
+        assertEquals(task.getId(), ((Task) cached.get()).getId());
+    }
+
+    @Test
+    public void shouldInvalidateCachedTaskOnWrites() {
+        //having
+        Task task = repository.save(createTestTask());
+        Cache cache = cacheManager.getCache(TaskServiceImpl.TASK_CACHE);
+        taskService.findTaskById(task.getId());
+        //when
+        taskService.markTaskCompleted(task.getId());
+        //then
+        assertNull(cache.get(TenantContext.cacheKey(task.getId())));
+        assertTrue(taskService.findTaskById(task.getId()).getCompleted());
+        //when
+        taskService.deleteTaskById(task.getId());
+        //then
+        assertNull(cache.get(TenantContext.cacheKey(task.getId())));
+        assertThrows(TaskNotFoundException.class, () -> taskService.findTaskById(task.getId()));
+    }
+
+    @Test
+    public void shouldInvalidateCachedTaskOnlyAfterCommit() {
+        //having
+        Task task = repository.save(createTestTask());
+        Cache cache = cacheManager.getCache(TaskServiceImpl.TASK_CACHE);
+        taskService.findTaskById(task.getId());
+        //when
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            taskService.markTaskCompleted(task.getId());
+            //then
+            assertNotNull(cache.get(TenantContext.cacheKey(task.getId())));
+        });
+        //then
+        assertNull(cache.get(TenantContext.cacheKey(task.getId())));
+        assertTrue(taskService.findTaskById(task.getId()).getCompleted());
+    }
+
+    @Test
+    public void shouldCacheDetachedCopyOfTask() {
+        //having
+        Task task = repository.save(createTestTask());
+        //when
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> taskService.findTaskById(task.getId()).setTitle("Changed title"));
+        //then
+        assertEquals(TASK_TITLE, repository.findById(task.getId()).get().getTitle());
+        Task cached = (Task) cacheManager.getCache(TaskServiceImpl.TASK_CACHE)
+                .get(TenantContext.cacheKey(task.getId())).get();
+        assertEquals(task.getVersion(), cached.getVersion());
+    }
+
+    @Test
+    public void shouldFindTasksAfterGivenIdInIdOrder() {
+        //having
+        Task first = repository.save(createTestTask());
+        Task second = repository.save(createTestTask());
+        Task third = repository.save(createTestTask());
+        //when
+        List<TaskView> firstPage = taskService.findTasksAfter(null, 2);
+        List<TaskView> secondPage = taskService.findTasksAfter(firstPage.get(1).getId(), 2);
+        //then
+        assertEquals(2, firstPage.size());
+        assertEquals(first.getId(), firstPage.get(0).getId());
+        assertEquals(second.getId(), firstPage.get(1).getId());
+        assertEquals(1, secondPage.size());
+        assertEquals(third.getId(), secondPage.get(0).getId());
+        assertEquals(third.getTitle(), secondPage.get(0).getTitle());
+        assertEquals(third.getDescription(), secondPage.get(0).getDescription());
+        assertFalse(secondPage.get(0).getCompleted());
+    }
+
+    @Test
+    public void shouldFailFindingTasksWithNonPositiveLimit() {
+        assertThrows(InvalidTaskRequestException.class, () -> taskService.findTasksAfter(null, 0));
+    }
+
     @Test
     public void shouldDeleteTask() {
         //having
@@ -238,6 +520,192 @@ public class TaskServiceTest {
         assertThrows(InvalidTaskRequestException.class, () -> taskService.markTaskActive(null));
     }
 
+    @Test
+    public void shouldFindTasksByWordPrefixRankingExactMatchesFirst() {
+        //having
+        Task prefixMatch = taskService.saveTask(new Task("Planificación trimestral", "Revisar presupuesto"));
+        Task exactMatch = taskService.saveTask(new Task("Plan de vacaciones", "Reservar vuelos"));
+        taskService.saveTask(new Task("Comprar leche", "Supermercado"));
+        //when
+        List<TaskView> found = taskSearchService.searchTasks("plan", 0, 10);
+        //then
+        assertEquals(2, found.size());
+        assertEquals(exactMatch.getId(), found.get(0).getId());
+        assertEquals(prefixMatch.getId(), found.get(1).getId());
+        assertEquals(1, taskSearchService.searchTasks("planificacion presu", 0, 10).size());
+        assertEquals(prefixMatch.getId(), taskSearchService.searchTasks("plan", 1, 1).get(0).getId());
+    }
+
+    @Test
+    public void shouldReindexTaskOnUpdateAndDropItOnDelete() {
+        //having
+        Task task = taskService.saveTask(new Task("Pintar valla", "Comprar pintura"));
+        Task update = new Task("Lavar coche", "Comprar jabón");
+        update.setId(task.getId());
+        //when
+        taskService.updateTask(update, task.getId());
+        //then
+        assertTrue(taskSearchService.searchTasks("valla", 0, 10).isEmpty());
+        assertEquals(task.getId(), taskSearchService.searchTasks("jabon", 0, 10).get(0).getId());
+        //when
+        taskService.deleteTaskById(task.getId());
+        //then
+        assertTrue(taskSearchService.searchTasks("jabon", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void shouldFailSearchingWithNegativeOffset() {
+        assertThrows(InvalidTaskRequestException.class, () -> taskSearchService.searchTasks("plan", -1, 10));
+    }
+
+    @Test
+    public void shouldMatchOnlyWholeWordsForTermsShorterThanMinimumPrefix() {
+        //having
+        Task task = taskService.saveTask(new Task("Plan de vacaciones", "Reservar vuelos"));
+        //when
+        //then
+        assertTrue(taskSearchService.searchTasks("pl", 0, 10).isEmpty());
+        assertEquals(task.getId(), taskSearchService.searchTasks("de", 0, 10).get(0).getId());
+        assertEquals(task.getId(), taskSearchService.searchTasks("pla", 0, 10).get(0).getId());
+    }
+
+    @Test
+    public void shouldFillSearchPageWithLiveTasksWhenIndexedTasksAreGone() {
+        //having
+        Task goneTask = taskService.saveTask(new Task("Plan", "Reservar vuelos"));
+        Task firstTask = taskService.saveTask(new Task("Plan de vacaciones", "Reservar vuelos"));
+        Task secondTask = taskService.saveTask(new Task("Planificación trimestral", "Revisar presupuesto"));
+        repository.deleteById(goneTask.getId());
+        //when
+        List<TaskView> found = taskSearchService.searchTasks("plan", 0, 2);
+        //then
+        assertEquals(Arrays.asList(firstTask.getId(), secondTask.getId()),
+                Arrays.asList(found.get(0).getId(), found.get(1).getId()));
+        assertTrue(taskSearchService.searchTasks("plan", 2, 2).isEmpty());
+    }
+
+    @Test
+    public void shouldKeepChangesPublishedWhileIndexIsRebuilt() {
+        //having
+        Task task = new Task("Pintar valla", "Comprar pintura");
+        task.setId(1L);
+        Task changedTask = new Task("Lavar coche", "Comprar jabón");
+        changedTask.setId(1L);
+        TaskService source = mock(TaskService.class);
+        TaskSearchServiceImpl searchService = new TaskSearchServiceImpl(source);
+        when(source.findTenants()).thenReturn(Collections.singletonList(TenantContext.DEFAULT_TENANT));
+        doAnswer(invocation -> {
+            searchService.onTaskChanged(TaskChangedEvent.saved(changedTask));
+            invocation.<Consumer<Task>>getArgument(0).accept(task);
+            return null;
+        }).when(source).exportTasks(any());
+        when(source.findTaskViewsByIds(any())).thenReturn(Collections.singletonList(new TaskView(1L, "Lavar coche",
+                "Comprar jabón", false)));
+        //when
+        searchService.rebuildIndex();
+        //then
+        assertEquals(1, searchService.searchTasks("jabon", 0, 10).size());
+        assertTrue(searchService.searchTasks("valla", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void shouldReturnOnlyTasksChangedAndDeletedSinceRevision() {
+        //having
+        Task updated = taskService.saveTask(new Task("Title A", "Description A"));
+        Task deleted = taskService.saveTask(new Task("Title B", "Description B"));
+        taskService.saveTask(new Task("Title C", "Description C"));
+        long since = latestRevision();
+        //when
+        taskService.markTaskCompleted(updated.getId());
+        taskService.deleteTaskById(deleted.getId());
+        Task created = taskService.saveTask(new Task("Title D", null));
+        TaskChanges changes = taskService.findChangesSince(since, 100);
+        //then
+        assertFalse(changes.getReset());
+        assertEquals(2, changes.getChanged().size());
+        assertEquals(updated.getId(), changes.getChanged().get(0).getId());
+        assertTrue(changes.getChanged().get(0).getCompleted());
+        assertEquals(created.getId(), changes.getChanged().get(1).getId());
+        assertEquals(Arrays.asList(deleted.getId()), changes.getDeleted());
+        TaskChanges nothingNew = taskService.findChangesSince(changes.getRevision(), 100);
+        assertTrue(nothingNew.getChanged().isEmpty());
+        assertTrue(nothingNew.getDeleted().isEmpty());
+    }
+
+    @Test
+    public void shouldPageChangesByRevision() {
+        //having
+        long since = latestRevision();
+        Task first = taskService.saveTask(new Task("Title A", null));
+        Task second = taskService.saveTask(new Task("Title B", null));
+        //when
+        TaskChanges firstPage = taskService.findChangesSince(since, 1);
+        TaskChanges secondPage = taskService.findChangesSince(firstPage.getRevision(), 1);
+        //then
+        assertEquals(first.getId(), firstPage.getChanged().get(0).getId());
+        assertEquals(second.getId(), secondPage.getChanged().get(0).getId());
+        assertTrue(taskService.findChangesSince(Long.MAX_VALUE, 1).getReset());
+    }
+
+    @Test
+    public void shouldQueryTasksByStatusAndIdRangeInDescendingIdOrder() {
+        //having
+        Task first = taskService.saveTask(new Task("Title A", null));
+        Task second = taskService.saveTask(new Task("Title B", null));
+        Task third = taskService.saveTask(new Task("Title C", null));
+        Task fourth = taskService.saveTask(new Task("Title D", null));
+        taskService.markTaskCompleted(third.getId());
+        //when
+        List<TaskView> tasks = taskService.queryTasks(
+                TaskQuery.of(false, null, first.getId(), fourth.getId(), "id,desc", 2));
+        //then
+        assertEquals(2, tasks.size());
+        assertEquals(fourth.getId(), tasks.get(0).getId());
+        assertEquals(second.getId(), tasks.get(1).getId());
+    }
+
+    @Test
+    public void shouldQueryTasksByTitlePrefixInTitleOrder() {
+        //having
+        Task shopping = taskService.saveTask(new Task("Comprar pan", null));
+        Task cooking = taskService.saveTask(new Task("Cocinar", null));
+        taskService.saveTask(new Task("Limpiar", null));
+        Task calling = taskService.saveTask(new Task("Comprar leche", null));
+        //when
+        List<TaskView> tasks = taskService.queryTasks(TaskQuery.of(null, "Co", null, null, "title", 10));
+        //then
+        assertEquals(3, tasks.size());
+        assertEquals(cooking.getId(), tasks.get(0).getId());
+        assertEquals(calling.getId(), tasks.get(1).getId());
+        assertEquals(shopping.getId(), tasks.get(2).getId());
+    }
+
+    @Test
+    public void shouldRejectQueriesThatCannotUseAnIndex() {
+        //having
+        taskService.saveTask(createTestTask());
+        //when
+        //then
+        assertThrows(InvalidTaskRequestException.class,
+                () -> taskService.queryTasks(TaskQuery.of(null, null, null, null, "description", 10)));
+        assertThrows(InvalidTaskRequestException.class,
+                () -> taskService.queryTasks(TaskQuery.of(null, "Crea", null, null, "id", 10)));
+        assertThrows(InvalidTaskRequestException.class,
+                () -> taskService.queryTasks(TaskQuery.of(null, null, 1L, null, "title", 10)));
+        assertThrows(InvalidTaskRequestException.class,
+                () -> taskService.queryTasks(TaskQuery.of(null, null, null, null, "id,sideways", 10)));
+    }
+
+    private long latestRevision() {
+        TaskChanges changes;
+        long revision = 0;
+        do {
+            changes = taskService.findChangesSince(revision, 1000);
+            revision = changes.getRevision();
+        } while (changes.getChanged().size() + changes.getDeleted().size() == 1000);
+        return revision;
+    }
+
     private Task createTestTask() {
         return new Task(TASK_TITLE, TASK_DESCRIPTION);
     }
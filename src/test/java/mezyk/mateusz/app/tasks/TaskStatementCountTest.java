@@ -0,0 +1,113 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.core.data.exception.TaskNotFoundException;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.persistence.EntityManagerFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:statementcount",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+public class TaskStatementCountTest {
+
+    @Autowired
+    private TaskServiceImpl taskService;
+
+    @Autowired
+    private TaskRepository repository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @AfterEach
+    public void clean() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void shouldReturnNextVersionOnConditionalUpdateWithSingleStatement() {
+        //having
+        Task task = repository.save(new Task("Title", "Description"));
+        Long version = task.getVersion();
+        task.setTitle("New title");
+        long before = statistics.getPrepareStatementCount();
+        //when
+        Task updatedTask = taskService.updateTask(task, task.getId(), version);
+        //then
+        assertEquals(1, statistics.getPrepareStatementCount() - before);
+        assertEquals(version + 1, updatedTask.getVersion());
+        assertEquals(version + 1, repository.findById(task.getId()).get().getVersion());
+    }
+
+    @Test
+    public void shouldReadBackStoredVersionWhenUpdateHasNoVersion() {
+        //having
+        Task task = repository.save(new Task("Title", "Description"));
+        Long version = task.getVersion();
+        Task update = new Task("New title", "Description");
+        update.setId(task.getId());
+        long before = statistics.getPrepareStatementCount();
+        //when
+        Task updatedTask = taskService.updateTask(update, update.getId());
+        //then
+        assertEquals(2, statistics.getPrepareStatementCount() - before);
+        assertEquals(version + 1, updatedTask.getVersion());
+        assertEquals("New title", repository.findById(task.getId()).get().getTitle());
+    }
+
+    @Test
+    public void shouldDetectMissingTaskOnUpdateWithSingleStatement() {
+        //having
+        Task task = new Task("Title", "Description");
+        task.setId(Long.MAX_VALUE);
+        long before = statistics.getPrepareStatementCount();
+        //when
+        assertThrows(TaskNotFoundException.class, () -> taskService.updateTask(task, task.getId()));
+        //then
+        assertEquals(1, statistics.getPrepareStatementCount() - before);
+    }
+
+    @Test
+    public void shouldMarkTaskCompletedWithUpdateAndSingleRead() {
+        //having
+        Task task = repository.save(new Task("Title", "Description"));
+        long before = statistics.getPrepareStatementCount();
+        //when
+        Task completedTask = taskService.markTaskCompleted(task.getId());
+        //then
+        assertEquals(2, statistics.getPrepareStatementCount() - before);
+        assertTrue(completedTask.getCompleted());
+    }
+
+    @Test
+    public void shouldDeleteTaskAndRecordTombstoneWithTwoStatements() {
+        //having
+        Task task = repository.save(new Task("Title", "Description"));
+        long before = statistics.getPrepareStatementCount();
+        //when
+        taskService.deleteTaskById(task.getId());
+        //then
+        assertEquals(2, statistics.getPrepareStatementCount() - before);
+        assertFalse(repository.existsById(task.getId()));
+    }
+
+}
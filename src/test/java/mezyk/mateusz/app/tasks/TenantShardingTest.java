@@ -0,0 +1,162 @@
+package mezyk.mateusz.app.tasks;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import mezyk.mateusz.app.tasks.core.data.jdbc.TenantRoutingDataSource;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import mezyk.mateusz.app.tasks.integration.config.StatementCacheConfig;
+import mezyk.mateusz.app.tasks.integration.tenant.TenantShardConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "tasks.tenancy.shards=4",
+        "tasks.jdbc.statement-cache.enabled=true"
+})
+public class TenantShardingTest {
+
+    private static final List<String> TENANTS = List.of("acme", "globex", "initech", "umbrella", "hooli");
+
+    @Autowired
+    private TaskServiceImpl taskService;
+
+    @Autowired
+    private TaskRepository repository;
+
+    @Autowired
+    private TenantShards tenantShards;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @AfterEach
+    public void clean() {
+        tenantShards.onEachShard(() -> {
+            repository.deleteAll();
+            return null;
+        });
+    }
+
+    @Test
+    public void shouldStoreEachTenantOnItsOwnShardWithGloballyUniqueIds() {
+        //having
+        assertTrue(dataSource instanceof TenantRoutingDataSource);
+        List<DataSource> shards = ((TenantRoutingDataSource) dataSource).getShards();
+        Set<Long> ids = new HashSet<>();
+        //when
+        for (String tenant : TENANTS) {
+            for (int i = 0; i < 3; i++) {
+                Task task = TenantContext.call(tenant, () -> taskService.saveTask(new Task("Title " + tenant, null)));
+                ids.add(task.getId());
+                //then
+                int shard = tenantShards.shardOf(tenant);
+                assertEquals(shard, Math.floorMod(task.getId(), tenantShards.getCount()));
+                for (int other = 0; other < shards.size(); other++) {
+                    Long rows = new JdbcTemplate(shards.get(other))
+                            .queryForObject("select count(*) from task where id = ?", Long.class, task.getId());
+                    assertEquals(other == shard ? 1L : 0L, rows);
+                }
+            }
+        }
+        assertEquals(TENANTS.size() * 3, ids.size());
+    }
+
+    @Test
+    public void shouldGenerateUniqueIdsFromTaskTenantShardWhenTenantContextIsUnset() {
+        //having
+        String tenant = otherShardTenant(TenantContext.DEFAULT_TENANT);
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        IdentifierGenerator generator = sessionFactory.getMetamodel().entityPersister(Task.class).getIdentifierGenerator();
+        Set<Long> ids = new HashSet<>();
+        //when
+        for (int i = 0; i < 120; i++) {
+            Task probe = new Task("Title", null);
+            probe.setTenant(tenant);
+            try (StatelessSession session = sessionFactory.openStatelessSession()) {
+                ids.add((Long) generator.generate((SharedSessionContractImplementor) session, probe));
+            }
+            ids.add(TenantContext.call(tenant, () -> taskService.saveTask(new Task("Title", null))).getId());
+        }
+        //then
+        assertEquals(240, ids.size());
+        for (Long id : ids) {
+            assertEquals(tenantShards.shardOf(tenant), Math.floorMod(id, tenantShards.getCount()));
+        }
+    }
+
+    @Test
+    public void shouldRejectTaskWhoseTenantIsNotOnTheShardOfTheTenantContext() {
+        //having
+        String tenant = otherShardTenant(TenantContext.DEFAULT_TENANT);
+        Task task = new Task("Title", null);
+        task.setTenant(tenant);
+        //when
+        //then
+        assertThrows(InvalidDataAccessApiUsageException.class, () -> repository.save(task));
+        assertTrue(TenantContext.call(tenant, repository::findAll).isEmpty());
+    }
+
+    @Test
+    public void shouldListOnlyTasksOfCurrentTenantAndAllTenantsAcrossShards() {
+        //having
+        for (String tenant : TENANTS) {
+            TenantContext.run(tenant, () -> taskService.saveTask(new Task("Title " + tenant, null)));
+        }
+        //when
+        List<Task> acmeTasks = TenantContext.call("acme", taskService::findAllTasks);
+        List<String> tenants = taskService.findTenants();
+        //then
+        assertEquals(1, acmeTasks.size());
+        assertEquals("Title acme", acmeTasks.get(0).getTitle());
+        assertEquals(List.of("acme", "globex", "hooli", "initech", "umbrella"), tenants);
+    }
+
+    @Test
+    public void shouldPublishPoolAndStatementCacheMetricsForEveryShard() {
+        //having
+        for (String tenant : TENANTS) {
+            TenantContext.run(tenant, () -> taskService.saveTask(new Task("Title " + tenant, null)));
+        }
+        //when
+        //then
+        for (int shard = 0; shard < tenantShards.getCount(); shard++) {
+            String pool = String.format(TenantShardConfig.SHARD_POOL_NAME, shard);
+            assertNotNull(meterRegistry.find("hikaricp.connections").tag(StatementCacheConfig.POOL_TAG, pool).gauge());
+            assertNotNull(meterRegistry.find(StatementCacheConfig.STATEMENTS).tag(StatementCacheConfig.POOL_TAG, pool)
+                    .functionCounter());
+        }
+    }
+
+    private String otherShardTenant(String tenant) {
+        return TENANTS.stream()
+                .filter(other -> tenantShards.shardOf(other) != tenantShards.shardOf(tenant))
+                .findFirst()
+                .orElseThrow();
+    }
+
+}
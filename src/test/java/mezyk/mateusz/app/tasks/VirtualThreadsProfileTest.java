@@ -0,0 +1,61 @@
+package mezyk.mateusz.app.tasks;
+
+import mezyk.mateusz.app.tasks.integration.model.CreateTaskDto;
+import mezyk.mateusz.app.tasks.integration.model.TaskDto;
+import org.apache.coyote.AbstractProtocol;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("virtual-threads")
+public class VirtualThreadsProfileTest {
+
+    private static final int TOMCAT_DEFAULT_MAX_CONNECTIONS = 8192;
+    private static final int TOMCAT_DEFAULT_ACCEPT_COUNT = 100;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    @Test
+    public void shouldRaiseConnectionLimitsOnlyWhenVirtualThreadsServeThem() {
+        //having
+        AbstractProtocol<?> protocol = (AbstractProtocol<?>) ((TomcatWebServer) context.getWebServer()).getTomcat()
+                .getConnector().getProtocolHandler();
+        //when
+        ResponseEntity<TaskDto> created =
+                restTemplate.postForEntity("/task/new", new CreateTaskDto("Title", null), TaskDto.class);
+        //then
+        assertEquals(HttpStatus.CREATED, created.getStatusCode());
+        if (virtualThreadsAvailable()) {
+            assertEquals(20000, protocol.getMaxConnections());
+            assertEquals(1000, protocol.getAcceptCount());
+        } else {
+            assertEquals(TOMCAT_DEFAULT_MAX_CONNECTIONS, protocol.getMaxConnections());
+            assertEquals(TOMCAT_DEFAULT_ACCEPT_COUNT, protocol.getAcceptCount());
+        }
+    }
+
+    private static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+}
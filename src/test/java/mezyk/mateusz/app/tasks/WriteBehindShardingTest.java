@@ -0,0 +1,93 @@
+package mezyk.mateusz.app.tasks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mezyk.mateusz.app.tasks.core.data.journal.JournalRecord;
+import mezyk.mateusz.app.tasks.core.data.journal.TaskJournal;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import mezyk.mateusz.app.tasks.core.data.service.WriteBehindTaskService;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantContext;
+import mezyk.mateusz.app.tasks.core.data.tenant.TenantShards;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:writebehindsharding",
+        "tasks.tenancy.shard-url=jdbc:h2:mem:writebehindsharding-%d",
+        "tasks.tenancy.shards=2",
+        "tasks.write-behind.enabled=true",
+        "tasks.write-behind.flush-interval-millis=600000"
+})
+public class WriteBehindShardingTest {
+
+    @Autowired
+    private WriteBehindTaskService taskService;
+
+    @Autowired
+    private TaskServiceImpl taskServiceImpl;
+
+    @Autowired
+    private TaskRepository repository;
+
+    @Autowired
+    private TenantShards tenantShards;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void clean() {
+        taskService.awaitFlushed();
+        tenantShards.onEachShard(() -> {
+            repository.deleteAll();
+            return null;
+        });
+    }
+
+    @Test
+    public void shouldGenerateIdsPastTasksReplayedFromJournalOnTheirTenantShard() throws Exception {
+        //having
+        String tenant = Stream.of("acme", "globex", "initech", "umbrella")
+                .filter(other -> tenantShards.shardOf(other) != tenantShards.shardOf(TenantContext.DEFAULT_TENANT))
+                .findFirst()
+                .orElseThrow();
+        Task replayedTask = new Task("Replayed", "Description");
+        replayedTask.setId(1000L * tenantShards.getCount() + tenantShards.shardOf(tenant));
+        replayedTask.setTenant(tenant);
+        replayedTask.setVersion(0L);
+        TaskJournal journal = new TaskJournal(directory, false, 100);
+        journal.open(record -> { }, () -> new TaskJournal.Snapshot(List.of(replayedTask), 0));
+        journal.append(List.of(JournalRecord.save(replayedTask))).join();
+        journal.close();
+        //when
+        WriteBehindTaskService recovered = new WriteBehindTaskService(taskServiceImpl, transactionManager,
+                entityManagerFactory, new SimpleMeterRegistry(), 10, 10, 600000, true, directory.toString(), false);
+        recovered.start();
+        Task task = TenantContext.call(tenant, () -> recovered.saveTask(new Task("Title", "Description")));
+        //then
+        assertTrue(task.getId() > replayedTask.getId());
+        recovered.awaitFlushed();
+        assertTrue(TenantContext.call(tenant, () -> repository.existsById(replayedTask.getId())));
+        assertTrue(TenantContext.call(tenant, () -> repository.existsById(task.getId())));
+        recovered.close();
+    }
+
+}
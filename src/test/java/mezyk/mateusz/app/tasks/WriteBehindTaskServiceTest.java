@@ -0,0 +1,215 @@
+package mezyk.mateusz.app.tasks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import mezyk.mateusz.app.tasks.core.data.exception.TaskQueueFullException;
+import mezyk.mateusz.app.tasks.core.data.journal.JournalRecord;
+import mezyk.mateusz.app.tasks.core.data.journal.TaskJournal;
+import mezyk.mateusz.app.tasks.core.data.model.Task;
+import mezyk.mateusz.app.tasks.core.data.repository.TaskRepository;
+import mezyk.mateusz.app.tasks.core.data.service.TaskServiceImpl;
+import mezyk.mateusz.app.tasks.core.data.service.WriteBehindTaskService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import javax.persistence.EntityManagerFactory;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@SpringBootTest(properties = {
+        "tasks.write-behind.enabled=true",
+        "tasks.write-behind.capacity=3",
+        "tasks.write-behind.flush-interval-millis=600000"
+})
+public class WriteBehindTaskServiceTest {
+
+    @Autowired
+    private WriteBehindTaskService taskService;
+
+    @Autowired
+    private TaskRepository repository;
+
+    @Autowired
+    private TaskServiceImpl taskServiceImpl;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    public void clean() {
+        taskService.awaitFlushed();
+        repository.deleteAll();
+    }
+
+    @Test
+    public void shouldAcknowledgeSaveBeforeWritingIt() {
+        //having
+        Task task = new Task("Title", "Description");
+        //when
+        Task queuedTask = taskService.saveTask(task);
+        //then
+        assertNotNull(queuedTask.getId());
+        assertFalse(repository.existsById(queuedTask.getId()));
+        assertEquals("Title", taskService.findTaskById(queuedTask.getId()).getTitle());
+        assertEquals(1, taskService.pendingCount());
+
+        taskService.awaitFlushed();
+        assertEquals(0, taskService.pendingCount());
+        Task savedTask = repository.findById(queuedTask.getId()).orElseThrow();
+        assertEquals("Description", savedTask.getDescription());
+        assertNotNull(savedTask.getRevision());
+    }
+
+    @Test
+    public void shouldCoalesceQueuedChangesOfSameTaskIntoOneWrite() {
+        //having
+        Long id = taskService.saveTask(new Task("Title", "Description")).getId();
+        //when
+        taskService.markTaskCompleted(id);
+        taskService.markTaskActive(id);
+        Task lastChange = taskService.markTaskCompleted(id);
+        taskService.awaitFlushed();
+        //then
+        assertTrue(lastChange.getCompleted());
+        Task savedTask = repository.findById(id).orElseThrow();
+        assertTrue(savedTask.getCompleted());
+        assertEquals(0L, savedTask.getVersion());
+    }
+
+    @Test
+    public void shouldQueueCompletionOfStoredTask() {
+        //having
+        Task storedTask = repository.save(new Task("Title", "Description"));
+        //when
+        Task queuedTask = taskService.markTaskCompleted(storedTask.getId());
+        //then
+        assertTrue(queuedTask.getCompleted());
+        assertFalse(repository.findById(storedTask.getId()).orElseThrow().getCompleted());
+
+        taskService.awaitFlushed();
+        assertTrue(repository.findById(storedTask.getId()).orElseThrow().getCompleted());
+    }
+
+    @Test
+    public void shouldRejectNewTasksWhenQueueIsFull() {
+        //having
+        Long firstId = taskService.saveTask(new Task("Title 1", "Description")).getId();
+        taskService.saveTask(new Task("Title 2", "Description"));
+        taskService.saveTask(new Task("Title 3", "Description"));
+        //when
+        //then
+        assertThrows(TaskQueueFullException.class, () -> taskService.saveTask(new Task("Title 4", "Description")));
+        assertTrue(taskService.markTaskCompleted(firstId).getCompleted());
+
+        taskService.awaitFlushed();
+        assertEquals(3, repository.count());
+        assertTrue(repository.findById(firstId).orElseThrow().getCompleted());
+    }
+
+    @Test
+    public void shouldWriteQueuedTaskBeforeDeletingIt() {
+        //having
+        Long id = taskService.saveTask(new Task("Title", "Description")).getId();
+        //when
+        taskService.deleteTaskById(id);
+        //then
+        assertEquals(0, taskService.pendingCount());
+        assertFalse(repository.existsById(id));
+    }
+
+    @Test
+    public void shouldGenerateIdsPastTasksReplayedFromJournal() throws Exception {
+        //having
+        Task replayedTask = new Task("Replayed", "Description");
+        replayedTask.setId(10_000L);
+        replayedTask.setVersion(0L);
+        TaskJournal journal = new TaskJournal(directory, false, 100);
+        journal.open(record -> { }, () -> new TaskJournal.Snapshot(Collections.singletonList(replayedTask), 0));
+        journal.append(Collections.singletonList(JournalRecord.save(replayedTask))).join();
+        journal.close();
+        //when
+        WriteBehindTaskService recovered = open(taskServiceImpl, true);
+        Task task = recovered.saveTask(new Task("Title", "Description"));
+        //then
+        assertTrue(task.getId() > 10_000L);
+        recovered.awaitFlushed();
+        assertTrue(repository.existsById(10_000L));
+        assertTrue(repository.existsById(task.getId()));
+        recovered.close();
+    }
+
+    @Test
+    public void shouldFailWaitersAndRejectWritesWhenWriterStops() throws Exception {
+        //having
+        TaskServiceImpl delegate = mock(TaskServiceImpl.class);
+        when(delegate.saveTasks(anyList())).thenThrow(new OutOfMemoryError("Simulated"));
+        WriteBehindTaskService failing = open(delegate, false);
+        failing.saveTask(new Task("Title", "Description"));
+        //when
+        //then
+        assertTimeoutPreemptively(Duration.ofSeconds(10), () ->
+                assertThrows(DataAccessResourceFailureException.class, failing::awaitFlushed));
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> failing.saveTask(new Task("Title", "Description")));
+        failing.close();
+    }
+
+    @Test
+    public void shouldNotQueueChangeOfTaskWhileItIsWrittenSynchronously() throws Exception {
+        //having
+        Task storedTask = new Task("Title", "Description");
+        storedTask.setId(1L);
+        CountDownLatch updateStarted = new CountDownLatch(1);
+        CountDownLatch releaseUpdate = new CountDownLatch(1);
+        TaskServiceImpl delegate = mock(TaskServiceImpl.class);
+        when(delegate.findTaskById(1L)).thenReturn(storedTask);
+        when(delegate.updateTask(any(Task.class), eq(1L))).thenAnswer(invocation -> {
+            updateStarted.countDown();
+            releaseUpdate.await();
+            return storedTask;
+        });
+        WriteBehindTaskService service = open(delegate, false);
+        CompletableFuture<Task> update = CompletableFuture.supplyAsync(
+                () -> service.updateTask(new Task("Changed", "Description"), 1L));
+        assertTrue(updateStarted.await(10, TimeUnit.SECONDS));
+        //when
+        CompletableFuture<Task> completion = CompletableFuture.supplyAsync(() -> service.markTaskCompleted(1L));
+        //then
+        Thread.sleep(200);
+        assertFalse(completion.isDone());
+        assertEquals(0, service.pendingCount());
+        releaseUpdate.countDown();
+        update.get(10, TimeUnit.SECONDS);
+        assertTrue(completion.get(10, TimeUnit.SECONDS).getCompleted());
+        service.close();
+    }
+
+    private WriteBehindTaskService open(TaskServiceImpl delegate, boolean journal) throws Exception {
+        WriteBehindTaskService service = new WriteBehindTaskService(delegate, transactionManager, entityManagerFactory,
+                new SimpleMeterRegistry(), 3, 10, 600000, journal, directory.toString(), false);
+        service.start();
+        return service;
+    }
+
+}